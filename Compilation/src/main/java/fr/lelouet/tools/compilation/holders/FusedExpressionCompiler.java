@@ -0,0 +1,157 @@
+package fr.lelouet.tools.compilation.holders;
+
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.helger.jcodemodel.IJExpression;
+import com.helger.jcodemodel.JClassAlreadyExistsException;
+import com.helger.jcodemodel.JCodeModel;
+import com.helger.jcodemodel.JDefinedClass;
+import com.helger.jcodemodel.JExpr;
+import com.helger.jcodemodel.JFieldVar;
+import com.helger.jcodemodel.JMethod;
+import com.helger.jcodemodel.JMod;
+import com.helger.jcodemodel.JOp;
+import com.helger.jcodemodel.JVar;
+
+import fr.lelouet.tools.compilation.inmemory.DynamicClassLoader;
+import fr.lelouet.tools.holders.impl.numbers.FusedExpression;
+import fr.lelouet.tools.holders.impl.numbers.FusedExpression.DoubleEvaluator;
+import fr.lelouet.tools.holders.impl.numbers.FusedExpression.Operator;
+import fr.lelouet.tools.holders.interfaces.ObjHolder;
+
+/**
+ * compiles a {@link FusedExpression} into a generated class, whose eval method
+ * is a single arithmetic expression on the inputs array.
+ * <p>
+ * The constants of the expression are not written in the class, but given to
+ * its constructor : the generated classes are cached by shape of the
+ * expression, so two expressions with the same operations on different
+ * holders or different constants share the same class, and the number of
+ * classes generated only depends on the number of shapes.
+ * </p>
+ * <p>
+ * use with {@link FusedExpression#setCompiler(FusedExpression.Compiler)} or
+ * {@link FusedExpression#toDouble(FusedExpression.Compiler)}
+ * </p>
+ */
+public class FusedExpressionCompiler implements FusedExpression.Compiler {
+
+	public static final FusedExpressionCompiler INSTANCE = new FusedExpressionCompiler();
+
+	public static final String PACKAGE = "fr.lelouet.tools.compilation.holders.generated";
+
+	/** constructor of the generated class, from the constants, by shape */
+	private final ConcurrentHashMap<String, Constructor<? extends DoubleEvaluator>> cache = new ConcurrentHashMap<>();
+
+	private final AtomicInteger nextId = new AtomicInteger();
+
+	@Override
+	public DoubleEvaluator compile(FusedExpression expression, List<ObjHolder<? extends Number>> inputs) {
+		List<Double> constants = new ArrayList<>();
+		String shape = expression.visit(new FusedExpression.Visitor<String>() {
+
+			@Override
+			public String input(int index) {
+				return "in[" + index + "]";
+			}
+
+			@Override
+			public String constant(double value) {
+				constants.add(value);
+				return "c[" + (constants.size() - 1) + "]";
+			}
+
+			@Override
+			public String operation(Operator operator, String left, String right) {
+				return "(" + left + operator.symbol + right + ")";
+			}
+		}, inputs);
+		double[] values = new double[constants.size()];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = constants.get(i);
+		}
+		Constructor<? extends DoubleEvaluator> constructor = cache.computeIfAbsent(shape,
+				s -> generate(expression, inputs));
+		try {
+			return constructor.newInstance((Object) values);
+		} catch (ReflectiveOperationException e) {
+			throw new UnsupportedOperationException("catch this exception", e);
+		}
+	}
+
+	/**
+	 * @return the number of classes generated
+	 */
+	public int generated() {
+		return cache.size();
+	}
+
+	/**
+	 * generate the class of an expression. The constants are read from an array
+	 * given to the constructor, in the order they are visited.
+	 *
+	 * @return the constructor of the class, that takes the constants.
+	 */
+	protected Constructor<? extends DoubleEvaluator> generate(FusedExpression expression,
+			List<ObjHolder<? extends Number>> inputs) {
+		String name = PACKAGE + ".Fused" + nextId.getAndIncrement();
+		JCodeModel cm = new JCodeModel();
+		JDefinedClass cl;
+		try {
+			cl = cm._class(JMod.PUBLIC, name);
+		} catch (JClassAlreadyExistsException e) {
+			throw new UnsupportedOperationException("catch this exception", e);
+		}
+		cl._implements(DoubleEvaluator.class);
+		JFieldVar constants = cl.field(JMod.PRIVATE | JMod.FINAL, cm.DOUBLE.array(), "constants");
+		JMethod init = cl.constructor(JMod.PUBLIC);
+		JVar initConstants = init.param(cm.DOUBLE.array(), "constants");
+		init.body().assign(JExpr.refthis("constants"), initConstants);
+		JMethod eval = cl.method(JMod.PUBLIC, cm.DOUBLE, "eval");
+		eval.annotate(Override.class);
+		JVar in = eval.param(cm.DOUBLE.array(), "inputs");
+		IJExpression body = expression.visit(new FusedExpression.Visitor<IJExpression>() {
+
+			private int nextConstant = 0;
+
+			@Override
+			public IJExpression input(int index) {
+				return JExpr.component(in, JExpr.lit(index));
+			}
+
+			@Override
+			public IJExpression constant(double value) {
+				return JExpr.component(constants, JExpr.lit(nextConstant++));
+			}
+
+			@Override
+			public IJExpression operation(Operator operator, IJExpression left, IJExpression right) {
+				switch (operator) {
+				case ADD:
+					return JOp.plus(left, right);
+				case SUB:
+					return JOp.minus(left, right);
+				case MULT:
+					return JOp.mul(left, right);
+				case DIV:
+					return JOp.div(left, right);
+				default:
+					throw new UnsupportedOperationException("can't handle operator " + operator);
+				}
+			}
+		}, inputs);
+		eval.body()._return(body);
+		DynamicClassLoader dcl = DynamicClassLoader.generate(cm,
+				new DynamicClassLoader(DoubleEvaluator.class.getClassLoader()));
+		try {
+			return dcl.loadClass(name).asSubclass(DoubleEvaluator.class).getConstructor(double[].class);
+		} catch (ReflectiveOperationException e) {
+			throw new UnsupportedOperationException("catch this exception", e);
+		}
+	}
+
+}
@@ -0,0 +1,54 @@
+package fr.lelouet.tools.compilation.holders;
+
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import fr.lelouet.tools.holders.impl.numbers.DoubleHolderImpl;
+import fr.lelouet.tools.holders.impl.numbers.FusedExpression;
+import fr.lelouet.tools.holders.impl.numbers.FusedExpression.DoubleEvaluator;
+import fr.lelouet.tools.holders.impl.numbers.IntHolderImpl;
+import fr.lelouet.tools.holders.impl.numbers.LongHolderImpl;
+import fr.lelouet.tools.holders.interfaces.ObjHolder;
+import fr.lelouet.tools.holders.interfaces.numbers.DoubleHolder;
+
+public class FusedExpressionCompilerTest {
+
+	@Test(timeOut = 10000)
+	public void testCompile() {
+		FusedExpressionCompiler compiler = new FusedExpressionCompiler();
+		IntHolderImpl a = new IntHolderImpl(3);
+		DoubleHolderImpl b = new DoubleHolderImpl(2.5);
+		FusedExpression expr = FusedExpression.of(a).add(1).mult(b).div(FusedExpression.of(a).sub(0.5));
+		List<ObjHolder<? extends Number>> inputs = expr.inputs();
+		DoubleEvaluator compiled = compiler.compile(expr, inputs);
+		DoubleEvaluator lambda = FusedExpression.LAMBDA_COMPILER.compile(expr, inputs);
+		for (double[] values : new double[][] { { 3, 2.5 }, { -1, 0 }, { 0.5, 7 }, { 1e300, -1e-300 } }) {
+			Assert.assertEquals(compiled.eval(values), lambda.eval(values));
+		}
+
+		// same shape on other holders and constants : the class is reused
+		IntHolderImpl c = new IntHolderImpl(4);
+		LongHolderImpl d = new LongHolderImpl(2l);
+		FusedExpression same = FusedExpression.of(c).add(2).mult(d).div(FusedExpression.of(c).sub(-3));
+		DoubleEvaluator sameCompiled = compiler.compile(same, same.inputs());
+		Assert.assertSame(sameCompiled.getClass(), compiled.getClass());
+		Assert.assertEquals(compiler.generated(), 1);
+		double[] values = new double[] { 4, 2 };
+		Assert.assertEquals(sameCompiled.eval(values),
+				FusedExpression.LAMBDA_COMPILER.compile(same, same.inputs()).eval(values));
+
+		// another shape generates another class
+		FusedExpression other = FusedExpression.of(a).mult(b);
+		Assert.assertNotSame(compiler.compile(other, other.inputs()).getClass(), compiled.getClass());
+		Assert.assertEquals(compiler.generated(), 2);
+
+		DoubleHolder value = expr.toDouble(compiler);
+		Assert.assertEquals(value.get(), 4.0, 1e-9);
+		a.set(1);
+		Assert.assertEquals(value.get(), 10.0, 1e-9);
+		Assert.assertEquals(compiler.generated(), 2);
+	}
+
+}
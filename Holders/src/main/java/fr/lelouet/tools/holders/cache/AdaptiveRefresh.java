@@ -0,0 +1,159 @@
+package fr.lelouet.tools.holders.cache;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * adaptive refresh delays for an {@link URIBasedCache}, made with
+ * {@link URIBasedCache#adaptive}.
+ * <p>
+ * Each URI has its own {@link Schedule}, that is its nextSchedule function.
+ * While the fetched resource is not modified, the delay is multiplied by a
+ * factor after each fetch, up to a ceiling ; once the resource is modified, the
+ * delay goes back to the floor. A resource that changes hourly but is polled
+ * every 30s is thus fetched a few times after each change, then rarely.
+ * </p>
+ * <p>
+ * The schedule also estimates the mean interval between two changes of its
+ * resource, as an exponential moving average.
+ * </p>
+ */
+public class AdaptiveRefresh {
+
+	/** weight of the last interval between changes in the average */
+	public static final double AVERAGE_WEIGHT = 0.25;
+
+	private final long floorMs;
+
+	private final long ceilingMs;
+
+	private final double factor;
+
+	private final LongSupplier clockMs;
+
+	/**
+	 * the schedules by URI. The URI is the key of the cache, so a schedule is
+	 * kept as long as the resource is cached.
+	 */
+	private final Map<String, Schedule<?>> schedules = Collections.synchronizedMap(new WeakHashMap<>());
+
+	/**
+	 * @param floorMs
+	 *          the delay after a change, in ms
+	 * @param ceilingMs
+	 *          the maximum delay, in ms
+	 * @param factor
+	 *          the multiplication of the delay after each fetch without change.
+	 *          must be at least 1.
+	 */
+	public AdaptiveRefresh(long floorMs, long ceilingMs, double factor) {
+		this(floorMs, ceilingMs, factor, System::currentTimeMillis);
+	}
+
+	/**
+	 * @param clockMs
+	 *          the source of time of the estimations, in ms.
+	 */
+	public AdaptiveRefresh(long floorMs, long ceilingMs, double factor, LongSupplier clockMs) {
+		if (floorMs <= 0 || ceilingMs < floorMs) {
+			throw new IllegalArgumentException("invalid floor " + floorMs + " and ceiling " + ceilingMs);
+		}
+		if (factor < 1) {
+			throw new IllegalArgumentException("factor must be at least 1, got " + factor);
+		}
+		this.floorMs = floorMs;
+		this.ceilingMs = ceilingMs;
+		this.factor = factor;
+		this.clockMs = clockMs;
+	}
+
+	/**
+	 * create the schedule of an URI.
+	 *
+	 * @param uri
+	 *          the URI fetched
+	 * @param changed
+	 *          test if a fetched value is modified, typically the newValue of the
+	 *          cache.
+	 * @return a new schedule, to use as the nextSchedule of that URI.
+	 */
+	public <Intermediate> Schedule<Intermediate> schedule(String uri, Predicate<Intermediate> changed) {
+		Schedule<Intermediate> ret = new Schedule<>(changed);
+		schedules.put(uri, ret);
+		return ret;
+	}
+
+	/**
+	 * @return the schedule of an URI, or null if that URI is not cached.
+	 */
+	public Schedule<?> scheduleOf(String uri) {
+		return schedules.get(uri);
+	}
+
+	/**
+	 * the refresh delays of an URI. Only used by the fetches of that URI, which
+	 * are sequential ; the fields are volatile to be read from other threads.
+	 */
+	public class Schedule<Intermediate> implements ToLongFunction<Intermediate> {
+
+		private final Predicate<Intermediate> changed;
+
+		private volatile long delayMs = floorMs;
+
+		private long lastChangeMs = -1;
+
+		private volatile double changeIntervalMs = -1;
+
+		protected Schedule(Predicate<Intermediate> changed) {
+			this.changed = changed;
+		}
+
+		/**
+		 * record a fetch and compute the delay before the next one.
+		 */
+		@Override
+		public long applyAsLong(Intermediate value) {
+			if (changed.test(value)) {
+				long now = clockMs.getAsLong();
+				if (lastChangeMs >= 0) {
+					long interval = now - lastChangeMs;
+					changeIntervalMs = changeIntervalMs < 0 ? interval
+							: changeIntervalMs + AVERAGE_WEIGHT * (interval - changeIntervalMs);
+				}
+				lastChangeMs = now;
+				delayMs = floorMs;
+			} else {
+				delayMs = (long) Math.min(ceilingMs, Math.ceil(delayMs * factor));
+			}
+			return delayMs;
+		}
+
+		/** @return the last delay returned, or the floor before the first fetch. */
+		public long delayMs() {
+			return delayMs;
+		}
+
+		/**
+		 * @return the estimated mean interval between two changes of the resource,
+		 *         in ms, or -1 if less than two changes were seen.
+		 */
+		public double changeIntervalMs() {
+			return changeIntervalMs;
+		}
+
+		/**
+		 * @return the estimated number of changes of the resource per second, or
+		 *         -1 if less than two changes were seen.
+		 */
+		public double changeRate() {
+			double interval = changeIntervalMs;
+			return interval < 0 ? -1 : interval == 0 ? Double.POSITIVE_INFINITY : 1000.0 / interval;
+		}
+
+	}
+
+}
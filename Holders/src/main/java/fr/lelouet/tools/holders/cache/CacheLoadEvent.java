@@ -0,0 +1,25 @@
+package fr.lelouet.tools.holders.cache;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event of the generation of a value by a {@link WeakCache} that records
+ * its statistics.
+ */
+@Name("fr.lelouet.tools.holders.CacheLoad")
+@Label("Cache Load")
+@Category({ "Holders", "Cache" })
+@Description("generation of a missing value by a WeakCache")
+class CacheLoadEvent extends Event {
+
+	@Label("Key")
+	String key;
+
+	@Label("Failed")
+	boolean failed;
+
+}
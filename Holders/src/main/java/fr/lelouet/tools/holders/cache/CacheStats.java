@@ -0,0 +1,93 @@
+package fr.lelouet.tools.holders.cache;
+
+import java.util.Arrays;
+
+/**
+ * immutable snapshot of the statistics of a {@link WeakCache}, made with
+ * {@link WeakCache#stats()}.
+ */
+public final class CacheStats {
+
+	/** requests that found a value */
+	public final long hits;
+
+	/** requests that did not find a value, and generated or waited for it */
+	public final long misses;
+
+	/** generations that returned a value */
+	public final long loadSuccesses;
+
+	/** generations that threw an exception */
+	public final long loadFailures;
+
+	/** total time spent in the generations, in ns */
+	public final long totalLoadNanos;
+
+	/**
+	 * count of the generations by duration : index i counts the generations that
+	 * took from 2^i to 2^(i+1) µs, index 0 also counts the ones under 1µs.
+	 */
+	private final long[] loadHistogram;
+
+	/** entries removed because their value was garbage collected */
+	public final long collected;
+
+	/** entries removed by the size or weight bound */
+	public final long evictions;
+
+	/** entries removed because they expired */
+	public final long expirations;
+
+	/** generations in progress when the snapshot was made */
+	public final long inFlight;
+
+	public CacheStats(long hits, long misses, long loadSuccesses, long loadFailures, long totalLoadNanos,
+			long[] loadHistogram, long collected, long evictions, long expirations, long inFlight) {
+		this.hits = hits;
+		this.misses = misses;
+		this.loadSuccesses = loadSuccesses;
+		this.loadFailures = loadFailures;
+		this.totalLoadNanos = totalLoadNanos;
+		this.loadHistogram = loadHistogram.clone();
+		this.collected = collected;
+		this.evictions = evictions;
+		this.expirations = expirations;
+		this.inFlight = inFlight;
+	}
+
+	/** statistics of a cache that does not record them */
+	public static final CacheStats EMPTY = new CacheStats(0, 0, 0, 0, 0, new long[0], 0, 0, 0, 0);
+
+	public long requests() {
+		return hits + misses;
+	}
+
+	/** @return the ratio of requests that found a value, 1 if no request */
+	public double hitRate() {
+		long requests = requests();
+		return requests == 0 ? 1.0 : (double) hits / requests;
+	}
+
+	/** @return the average duration of a generation in ns, 0 if none */
+	public double averageLoadNanos() {
+		long loads = loadSuccesses + loadFailures;
+		return loads == 0 ? 0.0 : (double) totalLoadNanos / loads;
+	}
+
+	/**
+	 * @return a copy of the histogram of the durations of the generations. Index
+	 *         i counts the generations that took from 2^i to 2^(i+1) µs.
+	 */
+	public long[] loadHistogram() {
+		return loadHistogram.clone();
+	}
+
+	@Override
+	public String toString() {
+		return "CacheStats[hits=" + hits + " misses=" + misses + " loadSuccesses=" + loadSuccesses + " loadFailures="
+				+ loadFailures + " totalLoadNanos=" + totalLoadNanos + " loadHistogram=" + Arrays.toString(loadHistogram)
+				+ " collected=" + collected + " evictions=" + evictions + " expirations=" + expirations + " inFlight="
+				+ inFlight + "]";
+	}
+
+}
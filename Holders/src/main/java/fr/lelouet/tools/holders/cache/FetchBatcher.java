@@ -0,0 +1,161 @@
+package fr.lelouet.tools.holders.cache;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * groups the fetches of an {@link URIBasedCache} that come due within a window,
+ * to make them with a single call to a bulk fetcher.
+ * <p>
+ * The first fetch added to an empty batch schedules the flush of that batch
+ * after the window ; a batch that reaches the maximum size is flushed
+ * immediately, in the thread that added the last fetch.
+ * </p>
+ */
+class FetchBatcher<Intermediate> {
+
+	private static final Logger logger = LoggerFactory.getLogger(FetchBatcher.class);
+
+	/** a fetch waiting in a batch */
+	private static class Pending<Intermediate> {
+
+		final String uri;
+
+		final Intermediate last;
+
+		final Consumer<Intermediate> onFetched;
+
+		final Runnable onMissing;
+
+		final Consumer<Throwable> onFailure;
+
+		Pending(String uri, Intermediate last, Consumer<Intermediate> onFetched, Runnable onMissing,
+				Consumer<Throwable> onFailure) {
+			this.uri = uri;
+			this.last = last;
+			this.onFetched = onFetched;
+			this.onMissing = onMissing;
+			this.onFailure = onFailure;
+		}
+	}
+
+	private final BiConsumer<Callable<?>, Long> executor;
+
+	private final Function<Map<String, Intermediate>, Map<String, Intermediate>> fetch;
+
+	private final long windowMs;
+
+	private final int maxBatch;
+
+	/** the batch being filled, or null */
+	private List<Pending<Intermediate>> current = null;
+
+	/**
+	 * @param executor
+	 *          executor of the cache, to flush a batch after the window.
+	 * @param fetch
+	 *          the bulk fetcher, that receives the last value of each URI of a
+	 *          batch - null for the first fetch - and returns the new values.
+	 * @param windowMs
+	 *          delay after the first fetch of a batch before it's flushed, in ms.
+	 * @param maxBatch
+	 *          number of fetches that flushes a batch immediately.
+	 */
+	FetchBatcher(BiConsumer<Callable<?>, Long> executor,
+			Function<Map<String, Intermediate>, Map<String, Intermediate>> fetch, long windowMs, int maxBatch) {
+		if (maxBatch <= 0) {
+			throw new IllegalArgumentException("batch size must be positive, got " + maxBatch);
+		}
+		this.executor = executor;
+		this.fetch = fetch;
+		this.windowMs = windowMs;
+		this.maxBatch = maxBatch;
+	}
+
+	/**
+	 * add the fetch of an URI in the current batch.
+	 *
+	 * @param onFetched
+	 *          called with the value fetched for the URI
+	 * @param onMissing
+	 *          called if the bulk fetch returned no value for the URI, eg because
+	 *          it was not modified
+	 * @param onFailure
+	 *          called if the bulk fetch failed
+	 */
+	void add(String uri, Intermediate last, Consumer<Intermediate> onFetched, Runnable onMissing,
+			Consumer<Throwable> onFailure) {
+		List<Pending<Intermediate>> created = null;
+		List<Pending<Intermediate>> full = null;
+		synchronized (this) {
+			if (current == null) {
+				current = new ArrayList<>(Math.min(maxBatch, 16));
+				created = current;
+			}
+			current.add(new Pending<>(uri, last, onFetched, onMissing, onFailure));
+			if (current.size() >= maxBatch) {
+				full = current;
+				current = null;
+			}
+		}
+		if (full != null) {
+			flush(full);
+		} else if (created != null) {
+			List<Pending<Intermediate>> batch = created;
+			executor.accept(() -> {
+				flushIfCurrent(batch);
+				return null;
+			}, windowMs);
+		}
+	}
+
+	/** flush a batch, if it was not flushed for being full */
+	private void flushIfCurrent(List<Pending<Intermediate>> batch) {
+		synchronized (this) {
+			if (current != batch) {
+				return;
+			}
+			current = null;
+		}
+		flush(batch);
+	}
+
+	private void flush(List<Pending<Intermediate>> batch) {
+		Map<String, Intermediate> lasts = new LinkedHashMap<>();
+		for (Pending<Intermediate> p : batch) {
+			lasts.put(p.uri, p.last);
+		}
+		Map<String, Intermediate> fetched;
+		try {
+			fetched = fetch.apply(lasts);
+		} catch (RuntimeException e) {
+			logger.warn("while fetching " + lasts.keySet(), e);
+			for (Pending<Intermediate> p : batch) {
+				p.onFailure.accept(e);
+			}
+			return;
+		}
+		for (Pending<Intermediate> p : batch) {
+			try {
+				if (fetched == null || !fetched.containsKey(p.uri)) {
+					p.onMissing.run();
+				} else {
+					p.onFetched.accept(fetched.get(p.uri));
+				}
+			} catch (RuntimeException e) {
+				logger.warn("while receiving " + p.uri, e);
+				p.onFailure.accept(e);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,46 @@
+package fr.lelouet.tools.holders.cache;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import fr.lelouet.tools.holders.persist.DiskTier;
+
+/**
+ * state shared by the fetches of an {@link URIBasedCache} : the settings that
+ * can be modified after its creation, and the concurrent counters of its
+ * fetches.
+ */
+class FetchContext {
+
+	/**
+	 * delay after which a resource without follower stops being refreshed, in
+	 * ns. Negative to never stop.
+	 */
+	volatile long idleGraceNanos = -1;
+
+	/** persistent store of the last value fetched for each URI, or null */
+	volatile DiskTier<?> disk = null;
+
+	final LongAdder fetches = new LongAdder();
+
+	final LongAdder unchanged = new LongAdder();
+
+	final LongAdder failures = new LongAdder();
+
+	final LongAdder suspensions = new LongAdder();
+
+	final LongAdder totalLagNanos = new LongAdder();
+
+	final LongAccumulator maxLagNanos = new LongAccumulator(Math::max, 0);
+
+	void recordLag(long lagNanos) {
+		totalLagNanos.add(lagNanos);
+		maxLagNanos.accumulate(lagNanos);
+	}
+
+	FetchStats snapshot() {
+		return new FetchStats(fetches.sum(), unchanged.sum(), failures.sum(), suspensions.sum(), totalLagNanos.sum(),
+				maxLagNanos.get());
+	}
+
+}
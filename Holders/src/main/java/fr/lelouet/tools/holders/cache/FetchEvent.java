@@ -0,0 +1,33 @@
+package fr.lelouet.tools.holders.cache;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event of a fetch of a resource by a {@link URIBasedCache} that records
+ * its statistics.
+ */
+@Name("fr.lelouet.tools.holders.Fetch")
+@Label("URI Fetch")
+@Category({ "Holders", "Cache" })
+@Description("fetch of a resource by an URIBasedCache")
+class FetchEvent extends Event {
+
+	@Label("URI")
+	String uri;
+
+	@Label("Changed")
+	boolean changed;
+
+	@Label("Failed")
+	boolean failed;
+
+	@Label("Scheduling Lag")
+	@Timespan(Timespan.NANOSECONDS)
+	long lag;
+
+}
@@ -0,0 +1,56 @@
+package fr.lelouet.tools.holders.cache;
+
+/**
+ * immutable snapshot of the statistics of the fetches of an
+ * {@link URIBasedCache}, made with {@link URIBasedCache#fetchStats()}.
+ */
+public final class FetchStats {
+
+	/** fetches that returned a result */
+	public final long fetches;
+
+	/** fetches whose result was not a new value */
+	public final long unchanged;
+
+	/** fetches that threw an exception */
+	public final long failures;
+
+	/** refreshes suspended because the resource had no follower */
+	public final long suspensions;
+
+	/**
+	 * total delay between the time a fetch was scheduled for, and the time it
+	 * started, in ns
+	 */
+	public final long totalLagNanos;
+
+	/** maximum delay between the scheduled time of a fetch and its start */
+	public final long maxLagNanos;
+
+	public FetchStats(long fetches, long unchanged, long failures, long suspensions, long totalLagNanos, long maxLagNanos) {
+		this.fetches = fetches;
+		this.unchanged = unchanged;
+		this.failures = failures;
+		this.suspensions = suspensions;
+		this.totalLagNanos = totalLagNanos;
+		this.maxLagNanos = maxLagNanos;
+	}
+
+	/** @return the ratio of the fetches that did not return a new value */
+	public double unchangedRatio() {
+		return fetches == 0 ? 0.0 : (double) unchanged / fetches;
+	}
+
+	/** @return the average scheduling lag of the fetches, in ns */
+	public double averageLagNanos() {
+		long started = fetches + failures;
+		return started == 0 ? 0.0 : (double) totalLagNanos / started;
+	}
+
+	@Override
+	public String toString() {
+		return "FetchStats[fetches=" + fetches + " unchanged=" + unchanged + " failures=" + failures + " suspensions="
+				+ suspensions + " totalLagNanos=" + totalLagNanos + " maxLagNanos=" + maxLagNanos + "]";
+	}
+
+}
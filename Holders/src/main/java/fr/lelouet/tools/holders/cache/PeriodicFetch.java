@@ -99,55 +99,55 @@ public class PeriodicFetch {
 
 	public static URIBasedCache<Integer, IntHolder> cacheToInt(ScheduledExecutorService exec,
 			Function<String, Integer> access, long delay_MS) {
-		return cache((r, l) -> exec.schedule(r, delay_MS, TimeUnit.MILLISECONDS), IntHolderImpl::new, i -> i, access,
+		return cache((r, l) -> exec.schedule(r, l, TimeUnit.MILLISECONDS), IntHolderImpl::new, i -> i, access,
 				delay_MS);
 	}
 
 	public static URIBasedCache<Long, LongHolder> cacheToLong(ScheduledExecutorService exec,
 			Function<String, Long> access, long delay_MS) {
-		return cache((r, l) -> exec.schedule(r, delay_MS, TimeUnit.MILLISECONDS), LongHolderImpl::new, i -> i, access,
+		return cache((r, l) -> exec.schedule(r, l, TimeUnit.MILLISECONDS), LongHolderImpl::new, i -> i, access,
 				delay_MS);
 	}
 
 	public static URIBasedCache<Float, FloatHolder> cacheToFloat(ScheduledExecutorService exec,
 			Function<String, Float> access, long delay_MS) {
-		return cache((r, l) -> exec.schedule(r, delay_MS, TimeUnit.MILLISECONDS), FloatHolderImpl::new, i -> i, access,
+		return cache((r, l) -> exec.schedule(r, l, TimeUnit.MILLISECONDS), FloatHolderImpl::new, i -> i, access,
 				delay_MS);
 	}
 
 	public static URIBasedCache<Double, DoubleHolder> cacheToDouble(ScheduledExecutorService exec,
 			Function<String, Double> access, long delay_MS) {
-		return cache((r, l) -> exec.schedule(r, delay_MS, TimeUnit.MILLISECONDS), DoubleHolderImpl::new, i -> i, access,
+		return cache((r, l) -> exec.schedule(r, l, TimeUnit.MILLISECONDS), DoubleHolderImpl::new, i -> i, access,
 				delay_MS);
 	}
 
 	public static URIBasedCache<Boolean, BoolHolder> cacheToBool(ScheduledExecutorService exec,
 			Function<String, Boolean> access, long delay_MS) {
-		return cache((r, l) -> exec.schedule(r, delay_MS, TimeUnit.MILLISECONDS), BoolHolderImpl::new, i -> i, access,
+		return cache((r, l) -> exec.schedule(r, l, TimeUnit.MILLISECONDS), BoolHolderImpl::new, i -> i, access,
 				delay_MS);
 	}
 
 	public static <T> URIBasedCache<T, ObjHolder<T>> cacheToObj(ScheduledExecutorService exec,
 			Function<String, T> access, long delay_MS) {
-		return cache((r, l) -> exec.schedule(r, delay_MS, TimeUnit.MILLISECONDS), ObjHolderSimple::new, i -> i, access,
+		return cache((r, l) -> exec.schedule(r, l, TimeUnit.MILLISECONDS), ObjHolderSimple::new, i -> i, access,
 				delay_MS);
 	}
 
 	public static <T> URIBasedCache<List<T>, ListHolder<T>> cacheToList(ScheduledExecutorService exec,
 			Function<String, List<T>> access, long delay_MS) {
-		return cache((r, l) -> exec.schedule(r, delay_MS, TimeUnit.MILLISECONDS), ListHolderImpl::new, i -> i, access,
+		return cache((r, l) -> exec.schedule(r, l, TimeUnit.MILLISECONDS), ListHolderImpl::new, i -> i, access,
 				delay_MS);
 	}
 
 	public static <T> URIBasedCache<Set<T>, SetHolder<T>> cacheToSet(ScheduledExecutorService exec,
 			Function<String, Set<T>> access, long delay_MS) {
-		return cache((r, l) -> exec.schedule(r, delay_MS, TimeUnit.MILLISECONDS), SetHolderImpl::new, i -> i, access,
+		return cache((r, l) -> exec.schedule(r, l, TimeUnit.MILLISECONDS), SetHolderImpl::new, i -> i, access,
 				delay_MS);
 	}
 
 	public static <K, V> URIBasedCache<Map<K, V>, MapHolder<K, V>> cacheToMap(ScheduledExecutorService exec,
 			Function<String, Map<K, V>> access, long delay_MS) {
-		return cache((r, l) -> exec.schedule(r, delay_MS, TimeUnit.MILLISECONDS), MapHolderImpl::new, i -> i, access,
+		return cache((r, l) -> exec.schedule(r, l, TimeUnit.MILLISECONDS), MapHolderImpl::new, i -> i, access,
 				delay_MS);
 	}
 
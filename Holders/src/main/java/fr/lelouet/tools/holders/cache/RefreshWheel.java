@@ -0,0 +1,234 @@
+package fr.lelouet.tools.holders.cache;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * hashed timer wheel to schedule the refreshes of an {@link URIBasedCache}.
+ * <p>
+ * It is the executor of the cache, that runs a callable after a delay in ms.
+ * Unlike a ScheduledExecutorService, scheduling is O(1) and allocates one small
+ * object : the callable is queued, then placed by the thread of the wheel in
+ * the bucket of its deadline. Each tick, that thread takes the due callables of
+ * the current bucket and gives them to the workers by batches, so the workers
+ * are not woken up once per refresh.
+ * </p>
+ * <p>
+ * A random jitter, as a ratio of the delay, is added to each delay, so the
+ * resources refreshed with the same period don't stay grouped on the same
+ * tick. A callable with no delay is given directly to the workers.
+ * </p>
+ * <p>
+ * The delays are rounded up to the tick ; a wheel is thus adapted to refreshes
+ * whose period is large compared to the tick.
+ * </p>
+ */
+public class RefreshWheel implements BiConsumer<Callable<?>, Long>, AutoCloseable {
+
+	private static final Logger logger = LoggerFactory.getLogger(RefreshWheel.class);
+
+	private static final AtomicInteger INSTANCES = new AtomicInteger();
+
+	/** a callable and its deadline, in ticks since the start of the wheel */
+	private static class Timeout {
+
+		final Callable<?> task;
+
+		final long deadline;
+
+		Timeout(Callable<?> task, long deadline) {
+			this.task = task;
+			this.deadline = deadline;
+		}
+	}
+
+	private final long tickNanos;
+
+	private final double jitter;
+
+	private final Executor workers;
+
+	private final int batchSize;
+
+	private final long start = System.nanoTime();
+
+	/** buckets of the wheel, only accessed by the thread of the wheel */
+	private final ArrayDeque<Timeout>[] buckets;
+
+	/** callables scheduled and not yet placed in their bucket */
+	private final ConcurrentLinkedQueue<Timeout> pending = new ConcurrentLinkedQueue<>();
+
+	private final AtomicInteger scheduled = new AtomicInteger();
+
+	private final Thread thread;
+
+	private volatile boolean closed = false;
+
+	/**
+	 * create a wheel and start its thread.
+	 *
+	 * @param tickMs
+	 *          duration of a tick, in ms.
+	 * @param wheelSize
+	 *          number of buckets.
+	 * @param jitter
+	 *          maximum ratio of the delay added to it, eg 0.1 to delay each
+	 *          refresh by up to 10% of its delay. 0 for no jitter.
+	 * @param workers
+	 *          the executor that runs the batches of due callables. It should be
+	 *          bounded, eg a fixed thread pool.
+	 * @param batchSize
+	 *          maximum number of callables given to the workers in a single task.
+	 */
+	@SuppressWarnings("unchecked")
+	public RefreshWheel(long tickMs, int wheelSize, double jitter, Executor workers, int batchSize) {
+		if (tickMs <= 0 || wheelSize <= 0 || batchSize <= 0) {
+			throw new IllegalArgumentException(
+					"tick, size and batch must be positive, got " + tickMs + " " + wheelSize + " " + batchSize);
+		}
+		if (jitter < 0) {
+			throw new IllegalArgumentException("jitter must not be negative, got " + jitter);
+		}
+		tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMs);
+		this.jitter = jitter;
+		this.workers = workers;
+		this.batchSize = batchSize;
+		buckets = new ArrayDeque[wheelSize];
+		for (int i = 0; i < wheelSize; i++) {
+			buckets[i] = new ArrayDeque<>();
+		}
+		thread = new Thread(this::runTicks, "refresh-wheel-" + INSTANCES.incrementAndGet());
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * create a wheel with a tick of 100ms, 512 buckets, a jitter of 10% and
+	 * batches of 64 callables.
+	 */
+	public RefreshWheel(Executor workers) {
+		this(100, 512, 0.1, workers, 64);
+	}
+
+	/**
+	 * schedule a callable.
+	 *
+	 * @param task
+	 *          the callable to run
+	 * @param delayMs
+	 *          the delay in ms before it's run, before the jitter is added.
+	 */
+	@Override
+	public void accept(Callable<?> task, Long delayMs) {
+		if (closed) {
+			return;
+		}
+		if (delayMs <= 0) {
+			scheduled.incrementAndGet();
+			dispatch(List.of(task));
+			return;
+		}
+		long delayNanos = TimeUnit.MILLISECONDS.toNanos(delayMs);
+		if (jitter > 0) {
+			delayNanos += (long) (ThreadLocalRandom.current().nextDouble() * jitter * delayNanos);
+		}
+		long elapsed = System.nanoTime() - start + delayNanos;
+		scheduled.incrementAndGet();
+		pending.add(new Timeout(task, (elapsed + tickNanos - 1) / tickNanos));
+	}
+
+	/**
+	 * @return the number of callables scheduled and not yet run.
+	 */
+	public int scheduled() {
+		return scheduled.get();
+	}
+
+	/** loop of the thread of the wheel */
+	private void runTicks() {
+		long tick = 0;
+		while (!closed) {
+			long sleep = start + tick * tickNanos - System.nanoTime();
+			if (sleep > 0) {
+				LockSupport.parkNanos(this, sleep);
+				continue;
+			}
+			try {
+				placePending(tick);
+				expire(tick);
+			} catch (RuntimeException e) {
+				logger.warn("in refresh wheel " + thread.getName(), e);
+			}
+			tick++;
+		}
+	}
+
+	/** place the pending callables in their bucket, at least the current one */
+	private void placePending(long tick) {
+		for (Timeout t; (t = pending.poll()) != null;) {
+			long at = Math.max(t.deadline, tick);
+			buckets[(int) (at % buckets.length)].add(t);
+		}
+	}
+
+	/** dispatch the callables of the current bucket that are due */
+	private void expire(long tick) {
+		ArrayDeque<Timeout> bucket = buckets[(int) (tick % buckets.length)];
+		List<Callable<?>> batch = null;
+		for (int i = bucket.size(); i > 0; i--) {
+			Timeout t = bucket.poll();
+			if (t.deadline > tick) {
+				// due in a later round
+				bucket.add(t);
+				continue;
+			}
+			if (batch == null) {
+				batch = new ArrayList<>(Math.min(batchSize, bucket.size() + 1));
+			}
+			batch.add(t.task);
+			if (batch.size() == batchSize) {
+				dispatch(batch);
+				batch = null;
+			}
+		}
+		if (batch != null) {
+			dispatch(batch);
+		}
+	}
+
+	private void dispatch(List<Callable<?>> batch) {
+		workers.execute(() -> {
+			for (Callable<?> task : batch) {
+				scheduled.decrementAndGet();
+				try {
+					task.call();
+				} catch (Exception e) {
+					logger.warn("while refreshing with " + task, e);
+				}
+			}
+		});
+	}
+
+	/**
+	 * stop the thread of the wheel. The callables not yet dispatched are
+	 * dropped, and the new ones are ignored.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		LockSupport.unpark(thread);
+	}
+
+}
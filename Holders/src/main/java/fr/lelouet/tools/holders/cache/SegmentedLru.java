@@ -0,0 +1,167 @@
+package fr.lelouet.tools.holders.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+import fr.lelouet.tools.holders.cache.WeakCache.Entry;
+
+/**
+ * segmented LRU eviction policy of a bounded {@link WeakCache}.
+ * <p>
+ * The entries are in two LRU lists : new entries are added in the probation
+ * segment, and moved to the protected segment when they are accessed again.
+ * When the protected segment is over its share of the maximum weight, its
+ * least recently used entries go back to the probation segment. When the total
+ * weight is over the maximum, the least recently used entries of the probation
+ * segment are evicted. An entry used only once can thus not evict an entry used
+ * several times.
+ * </p>
+ * <p>
+ * The accesses are recorded only if the lock is free : under contention, a hit
+ * does not wait for the policy, and the order of the entries is approximate.
+ * </p>
+ */
+class SegmentedLru {
+
+	/** share of the maximum weight for the protected segment */
+	public static final double PROTECTED_SHARE = 0.8;
+
+	private final ReentrantLock lock = new ReentrantLock();
+
+	private final long maxWeight;
+
+	private final long maxProtected;
+
+	private long probationWeight = 0;
+
+	private long protectedWeight = 0;
+
+	/** sentinel of the probation list. next is the LRU, prev the MRU */
+	private final Entry<?> probation = sentinel();
+
+	/** sentinel of the protected list. next is the LRU, prev the MRU */
+	private final Entry<?> protect = sentinel();
+
+	public SegmentedLru(long maxWeight) {
+		this.maxWeight = maxWeight;
+		maxProtected = (long) (maxWeight * PROTECTED_SHARE);
+	}
+
+	private static Entry<?> sentinel() {
+		Entry<?> ret = new Entry<>(null, null, WeakCache.Strength.STRONG, null, 0, 0);
+		ret.prev = ret;
+		ret.next = ret;
+		return ret;
+	}
+
+	private static void unlink(Entry<?> e) {
+		e.prev.next = e.next;
+		e.next.prev = e.prev;
+		e.prev = null;
+		e.next = null;
+	}
+
+	private static void linkLast(Entry<?> list, Entry<?> e) {
+		e.prev = list.prev;
+		e.next = list;
+		list.prev.next = e;
+		list.prev = e;
+	}
+
+	/**
+	 * add a new entry in the probation segment.
+	 *
+	 * @return the entries to evict, that have been removed from the policy.
+	 */
+	public List<Entry<?>> add(Entry<?> e) {
+		lock.lock();
+		try {
+			if (e.removed) {
+				return List.of();
+			}
+			linkLast(probation, e);
+			e.protect = false;
+			probationWeight += e.weight;
+			List<Entry<?>> ret = null;
+			// an entry alone heavier than the maximum evicts itself
+			while (probationWeight + protectedWeight > maxWeight) {
+				Entry<?> victim = probation.next != probation ? probation.next : protect.next;
+				if (victim == protect) {
+					// only with a negative weight
+					break;
+				}
+				remove(victim);
+				if (ret == null) {
+					ret = new ArrayList<>();
+				}
+				ret.add(victim);
+			}
+			return ret == null ? List.of() : ret;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * record an access to an entry, if the lock is free.
+	 */
+	public void access(Entry<?> e) {
+		if (!lock.tryLock()) {
+			return;
+		}
+		try {
+			if (e.next == null) {
+				// removed
+				return;
+			}
+			unlink(e);
+			if (e.protect) {
+				linkLast(protect, e);
+			} else {
+				probationWeight -= e.weight;
+				protectedWeight += e.weight;
+				e.protect = true;
+				linkLast(protect, e);
+				while (protectedWeight > maxProtected && protect.next != e) {
+					Entry<?> demoted = protect.next;
+					unlink(demoted);
+					protectedWeight -= demoted.weight;
+					probationWeight += demoted.weight;
+					demoted.protect = false;
+					linkLast(probation, demoted);
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/** remove an entry removed from the map. */
+	public void remove(Entry<?> e) {
+		lock.lock();
+		try {
+			if (e.next == null) {
+				return;
+			}
+			unlink(e);
+			if (e.protect) {
+				protectedWeight -= e.weight;
+			} else {
+				probationWeight -= e.weight;
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public long weight() {
+		lock.lock();
+		try {
+			return probationWeight + protectedWeight;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+}
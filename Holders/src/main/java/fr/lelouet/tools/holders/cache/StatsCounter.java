@@ -0,0 +1,61 @@
+package fr.lelouet.tools.holders.cache;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * concurrent counters of a {@link WeakCache}. Each counter is a
+ * {@link LongAdder}, so recording a hit from several threads does not contend.
+ */
+class StatsCounter {
+
+	/** number of buckets of the load time histogram */
+	public static final int BUCKETS = 32;
+
+	final LongAdder hits = new LongAdder();
+
+	final LongAdder misses = new LongAdder();
+
+	final LongAdder loadSuccesses = new LongAdder();
+
+	final LongAdder loadFailures = new LongAdder();
+
+	final LongAdder totalLoadNanos = new LongAdder();
+
+	final LongAdder[] loadHistogram = new LongAdder[BUCKETS];
+
+	final LongAdder collected = new LongAdder();
+
+	final LongAdder evictions = new LongAdder();
+
+	final LongAdder expirations = new LongAdder();
+
+	final LongAdder inFlight = new LongAdder();
+
+	StatsCounter() {
+		for (int i = 0; i < BUCKETS; i++) {
+			loadHistogram[i] = new LongAdder();
+		}
+	}
+
+	/** bucket of a duration : floor(log2(µs)), 0 under 1µs */
+	static int bucket(long nanos) {
+		long micros = nanos / 1000;
+		return micros <= 1 ? 0 : Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(micros));
+	}
+
+	void recordLoad(long nanos, boolean success) {
+		(success ? loadSuccesses : loadFailures).increment();
+		totalLoadNanos.add(nanos);
+		loadHistogram[bucket(nanos)].increment();
+	}
+
+	CacheStats snapshot() {
+		long[] histogram = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++) {
+			histogram[i] = loadHistogram[i].sum();
+		}
+		return new CacheStats(hits.sum(), misses.sum(), loadSuccesses.sum(), loadFailures.sum(), totalLoadNanos.sum(),
+				histogram, collected.sum(), evictions.sum(), expirations.sum(), inFlight.sum());
+	}
+
+}
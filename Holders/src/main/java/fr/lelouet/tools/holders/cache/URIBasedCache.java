@@ -1,7 +1,17 @@
 package fr.lelouet.tools.holders.cache;
 
 import java.lang.ref.WeakReference;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.Function;
@@ -9,13 +19,24 @@ import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.function.ToLongFunction;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import fr.lelouet.tools.holders.impl.ObjHolderSimple;
 import fr.lelouet.tools.holders.interfaces.ObjHolder;
 import fr.lelouet.tools.holders.interfaces.RWObjHolder;
+import fr.lelouet.tools.holders.interfaces.Subscription;
 import fr.lelouet.tools.holders.interfaces.collections.MapHolder;
 import fr.lelouet.tools.holders.interfaces.numbers.IntHolder;
+import fr.lelouet.tools.holders.persist.DiskTier;
 
 /**
  * common class for caching various fetching methods.
+ * <p>
+ * The first fetch of a resource is requested to the executor with a delay of
+ * 0 when its holder is created, so it is made as soon as the executor can run
+ * it - or, for a batched cache, when its batch is fetched.
+ * </p>
  *
  * @author glelouet
  *
@@ -31,6 +52,8 @@ import fr.lelouet.tools.holders.interfaces.numbers.IntHolder;
 public class URIBasedCache<Resource, Hold extends ObjHolder<Resource>>
 extends WeakCache<String, Hold> {
 
+	private static final Logger logger = LoggerFactory.getLogger(URIBasedCache.class);
+
 	/**
 	 * private because it's better to use the {@link WeakCache} directly in that
 	 * case.
@@ -38,8 +61,173 @@ extends WeakCache<String, Hold> {
 	 * @param generator
 	 */
 
-	private URIBasedCache(Function<String, Hold> generator) {
+	private URIBasedCache(Function<String, Hold> generator, FetchContext fetchContext) {
 		super(generator);
+		this.fetchContext = fetchContext;
+	}
+
+	private final FetchContext fetchContext;
+
+	/**
+	 * @return a snapshot of the statistics of the fetches made for the resources
+	 *         of this cache.
+	 */
+	public FetchStats fetchStats() {
+		return fetchContext.snapshot();
+	}
+
+	/**
+	 * stop refreshing the resources that have no follower for a grace period.
+	 * The refresh of such a resource is resumed as soon as it is followed again
+	 * : the new follower first receives the last value fetched, then the fresh
+	 * one. A suspended resource is not scheduled in the executor anymore.
+	 * <p>
+	 * Only works with holders that extend {@link ObjHolderSimple}. The followers
+	 * are checked before each fetch, so the refresh is suspended at the first
+	 * fetch after the grace period.
+	 * </p>
+	 *
+	 * @param grace
+	 *          the duration without follower before the refresh is suspended.
+	 *          null to always refresh, which is the default.
+	 * @return this
+	 */
+	public URIBasedCache<Resource, Hold> suspendIdle(Duration grace) {
+		fetchContext.idleGraceNanos = grace == null ? -1 : grace.toNanos();
+		return this;
+	}
+
+	/**
+	 * keep the last value fetched for each URI on disk. A new holder is then set
+	 * immediately with the value stored for its URI, if any, and the first fetch
+	 * receives that value as the last one : with an ETag-like intermediate, it
+	 * only revalidates the resource.
+	 * <p>
+	 * Only the values that pass the newValue test are stored. Should be called
+	 * before the first holder is created.
+	 * </p>
+	 *
+	 * @param disk
+	 *          the store of the intermediate values, with a codec of the
+	 *          intermediate type of this cache. null to stop storing.
+	 * @return this
+	 */
+	public URIBasedCache<Resource, Hold> persistTo(DiskTier<?> disk) {
+		fetchContext.disk = disk;
+		return this;
+	}
+
+	/**
+	 * load the resources of a set of URIs, with at most a given number of them
+	 * being loaded at the same time. An URI is loaded once its holder has a
+	 * value ; the next URI is then requested.
+	 * <p>
+	 * The future keeps the holders, so they are not garbage collected before
+	 * the warm up is complete. An URI whose fetch fails is never loaded, so the
+	 * future should be waited with a timeout, eg with
+	 * {@link CompletableFuture#orTimeout}.
+	 * </p>
+	 *
+	 * @param uris
+	 *          the URIs to load. Duplicates are loaded once.
+	 * @param parallelism
+	 *          the maximum number of URIs loading at the same time.
+	 * @return a future completed with the holder of each URI once they all have
+	 *         a value.
+	 */
+	public CompletableFuture<Map<String, Hold>> warmUp(Collection<String> uris, int parallelism) {
+		if (parallelism <= 0) {
+			throw new IllegalArgumentException("parallelism must be positive, got " + parallelism);
+		}
+		return new WarmUp(new ArrayList<>(new LinkedHashSet<>(uris)), parallelism).start();
+	}
+
+	/**
+	 * requests the URIs of a warm up as the previous ones are loaded. The
+	 * requests are made in a drain loop, that only one thread runs at a time, so
+	 * a holder that already has a value does not start the next request
+	 * recursively.
+	 */
+	private class WarmUp {
+
+		private final List<String> uris;
+
+		private final ConcurrentHashMap<String, Hold> holders = new ConcurrentHashMap<>();
+
+		private final CompletableFuture<Map<String, Hold>> future = new CompletableFuture<>();
+
+		/** number of URIs that can be requested */
+		private final AtomicInteger available;
+
+		private final AtomicInteger remaining;
+
+		/** number of calls to drain, while one is running */
+		private final AtomicInteger wip = new AtomicInteger();
+
+		/** next URI to request. Only modified in the drain loop */
+		private int next = 0;
+
+		WarmUp(List<String> uris, int parallelism) {
+			this.uris = uris;
+			available = new AtomicInteger(parallelism);
+			remaining = new AtomicInteger(uris.size());
+		}
+
+		CompletableFuture<Map<String, Hold>> start() {
+			if (uris.isEmpty()) {
+				future.complete(holders);
+			} else {
+				drain();
+			}
+			return future;
+		}
+
+		private void drain() {
+			if (wip.getAndIncrement() != 0) {
+				return;
+			}
+			do {
+				while (next < uris.size() && available.get() > 0) {
+					available.decrementAndGet();
+					request(uris.get(next++));
+				}
+			} while (wip.decrementAndGet() != 0);
+		}
+
+		private void request(String uri) {
+			Hold holder;
+			try {
+				holder = get(uri);
+			} catch (RuntimeException e) {
+				future.completeExceptionally(e);
+				return;
+			}
+			holders.put(uri, holder);
+			AtomicBoolean loaded = new AtomicBoolean(false);
+			Subscription[] sub = new Subscription[1];
+			sub[0] = holder.subscribe(v -> {
+				if (loaded.compareAndSet(false, true)) {
+					Subscription s = sub[0];
+					if (s != null) {
+						s.cancel();
+					}
+					loaded(uri);
+				}
+			});
+			// the value was delivered during the subscription
+			if (loaded.get()) {
+				sub[0].cancel();
+			}
+		}
+
+		private void loaded(String uri) {
+			if (remaining.decrementAndGet() == 0) {
+				future.complete(holders);
+			} else {
+				available.incrementAndGet();
+				drain();
+			}
+		}
 	}
 
 	/**
@@ -84,7 +272,16 @@ extends WeakCache<String, Hold> {
 			Supplier<RWHold> init, Function<RWHold, Hold> convert, BiFunction<String, Intermediate, Intermediate> fetch,
 			Predicate<Intermediate> newValue, Function<Intermediate, Resource> extractor, Predicate<Intermediate> reschedule,
 			ToLongFunction<Intermediate> nextSchedule) {
-		this(generatorSync(executor, init, convert, fetch, newValue, extractor, reschedule, nextSchedule));
+		this(new FetchContext(), executor, init, convert, fetch, newValue, extractor, reschedule, nextSchedule);
+	}
+
+	private <Intermediate, RWHold extends RWObjHolder<Resource>> URIBasedCache(FetchContext fetchContext,
+			BiConsumer<Callable<?>, Long> executor, Supplier<RWHold> init, Function<RWHold, Hold> convert,
+			BiFunction<String, Intermediate, Intermediate> fetch, Predicate<Intermediate> newValue,
+			Function<Intermediate, Resource> extractor, Predicate<Intermediate> reschedule,
+			ToLongFunction<Intermediate> nextSchedule) {
+		this(generatorSync(executor, init, convert, fetch, newValue, extractor, reschedule, uri -> nextSchedule,
+				fetchContext), fetchContext);
 	}
 
 	public static <Resource, Hold extends ObjHolder<Resource>, Intermediate, RWHold extends RWObjHolder<Resource>> URIBasedCache<Resource, Hold> sync(
@@ -92,8 +289,70 @@ extends WeakCache<String, Hold> {
 			BiFunction<String, Intermediate, Intermediate> fetch, Predicate<Intermediate> newValue,
 			Function<Intermediate, Resource> extractor, Predicate<Intermediate> reschedule,
 			ToLongFunction<Intermediate> nextSchedule) {
+		FetchContext fetchContext = new FetchContext();
 		return new URIBasedCache<>(
-				generatorSync(executor, init, convert, fetch, newValue, extractor, reschedule, nextSchedule));
+				generatorSync(executor, init, convert, fetch, newValue, extractor, reschedule, uri -> nextSchedule,
+						fetchContext),
+				fetchContext);
+	}
+
+	/**
+	 * create a cache whose refresh delay of each URI adapts to how often its
+	 * resource changes.
+	 *
+	 * @param refresh
+	 *          the policy that creates the {@link AdaptiveRefresh.Schedule} of each
+	 *          URI, from the newValue predicate.
+	 * @see #URIBasedCache(BiConsumer, Supplier, Function, BiFunction, Predicate,
+	 *      Function, Predicate, ToLongFunction)
+	 */
+	public static <Resource, Hold extends ObjHolder<Resource>, Intermediate, RWHold extends RWObjHolder<Resource>> URIBasedCache<Resource, Hold> adaptive(
+			BiConsumer<Callable<?>, Long> executor, Supplier<RWHold> init, Function<RWHold, Hold> convert,
+			BiFunction<String, Intermediate, Intermediate> fetch, Predicate<Intermediate> newValue,
+			Function<Intermediate, Resource> extractor, Predicate<Intermediate> reschedule, AdaptiveRefresh refresh) {
+		FetchContext fetchContext = new FetchContext();
+		return new URIBasedCache<>(
+				generatorSync(executor, init, convert, fetch, newValue, extractor, reschedule,
+						uri -> refresh.schedule(uri, newValue), fetchContext),
+				fetchContext);
+	}
+
+	/**
+	 * create a cache that fetches its resources in bulk. The fetches that come
+	 * due within a window are grouped, up to a maximum number, and made with a
+	 * single call to the fetcher.
+	 *
+	 * @param fetchAll
+	 *          the bulk fetcher. It receives the last value fetched for each URI
+	 *          of the batch, null for the first fetch, and returns the new values
+	 *          by URI. An URI with no value returned is considered not
+	 *          modified. If the fetcher throws an exception, the URIs of the
+	 *          batch are rescheduled with their last value.
+	 * @param windowMs
+	 *          the delay in ms between the first fetch added to a batch and the
+	 *          fetch of that batch.
+	 * @param maxBatch
+	 *          the maximum number of URIs of a batch. A full batch is fetched
+	 *          immediately.
+	 * @see #URIBasedCache(BiConsumer, Supplier, Function, BiFunction, Predicate,
+	 *      Function, Predicate, ToLongFunction)
+	 */
+	public static <Resource, Hold extends ObjHolder<Resource>, Intermediate, RWHold extends RWObjHolder<Resource>> URIBasedCache<Resource, Hold> batch(
+			BiConsumer<Callable<?>, Long> executor, Supplier<RWHold> init, Function<RWHold, Hold> convert,
+			Function<Map<String, Intermediate>, Map<String, Intermediate>> fetchAll, Predicate<Intermediate> newValue,
+			Function<Intermediate, Resource> extractor, Predicate<Intermediate> reschedule,
+			ToLongFunction<Intermediate> nextSchedule, long windowMs, int maxBatch) {
+		FetchContext fetchContext = new FetchContext();
+		FetchBatcher<Intermediate> batcher = new FetchBatcher<>(executor, fetchAll, windowMs, maxBatch);
+		return new URIBasedCache<>(uri -> {
+			RWHold store = init.get();
+			Hold ret = convert.apply(store);
+			SelfSchedule<Resource, Intermediate, RWHold> exec = new SelfSchedule<>(executor, store, batcher, newValue,
+					extractor, reschedule, nextSchedule, uri, fetchContext);
+			exec.seed(store);
+			executor.accept(exec, 0l);
+			return ret;
+		}, fetchContext);
 	}
 
 	protected static <
@@ -109,11 +368,12 @@ extends WeakCache<String, Hold> {
 			Predicate<Intermediate> newValue,
 			Function<Intermediate, Resource> extractor,
 			Predicate<Intermediate> reschedule,
-			ToLongFunction<Intermediate> nextSchedule
+			Function<String, ToLongFunction<Intermediate>> nextSchedules,
+			FetchContext fetchContext
 			) {
 		return uri -> generateSync(executor, init, convert, last -> fetch.apply(uri, last), newValue, extractor,
 				reschedule,
-				nextSchedule);
+				nextSchedules.apply(uri), uri, fetchContext);
 	}
 
 	protected static <
@@ -129,10 +389,13 @@ extends WeakCache<String, Hold> {
 			Predicate<Intermediate> newValue,
 			Function<Intermediate, Resource> extractor,
 			Predicate<Intermediate> reschedule,
-			ToLongFunction<Intermediate> nextSchedule
+			ToLongFunction<Intermediate> nextSchedule,
+			String uri,
+			FetchContext fetchContext
 			) {
 		RWHold store = init.get();
-		return generateSync(executor, store, convert.apply(store), fetch, newValue, extractor, reschedule, nextSchedule);
+		return generateSync(executor, store, convert.apply(store), fetch, newValue, extractor, reschedule, nextSchedule,
+				uri, fetchContext);
 
 	}
 
@@ -149,9 +412,13 @@ extends WeakCache<String, Hold> {
 			Predicate<Intermediate> newValue,
 			Function<Intermediate, Resource> extractor,
 			Predicate<Intermediate> reschedule,
-			ToLongFunction<Intermediate> nextSchedule
+			ToLongFunction<Intermediate> nextSchedule,
+			String uri,
+			FetchContext fetchContext
 			) {
-				Callable<Void> exec = new SelfSchedule<>(executor, store, fetch, newValue, extractor, reschedule, nextSchedule);
+		SelfSchedule<Resource, Intermediate, RWHold> exec = new SelfSchedule<>(executor, store, fetch, newValue, extractor,
+				reschedule, nextSchedule, uri, fetchContext);
+		exec.seed(store);
 		executor.accept(exec, 0l);
 		return cached;
 	}
@@ -167,6 +434,24 @@ extends WeakCache<String, Hold> {
 	 * also strong referenced and this could lead to memory leakage when the
 	 * selfschedule is the only one strongly referencing it.
 	 * </p>
+	 * <p>
+	 * Each fetch is counted in the fetch context, if any, along with the delay
+	 * between the time it was scheduled for and the time it started.
+	 * </p>
+	 * <p>
+	 * If the context has an idle grace, the fetch is not made when the store has
+	 * been without follower for that grace ; this then does not reschedule
+	 * itself, but is scheduled again by the next follow of the store.
+	 * </p>
+	 * <p>
+	 * If the context has a {@link DiskTier}, the store is first set with the value
+	 * stored for the URI, and each new value fetched is stored.
+	 * </p>
+	 * <p>
+	 * If it has a {@link FetchBatcher}, the fetch is added to the current batch
+	 * instead of being made, and the resource is set and rescheduled once the
+	 * batch is fetched.
+	 * </p>
 	 *
 	 * @author glelouet
 	 *
@@ -183,11 +468,18 @@ extends WeakCache<String, Hold> {
 		private final BiConsumer<Callable<?>, Long> executor;
 		private final WeakReference<RWHold> store;
 		private final Function<Intermediate, Intermediate> fetch;
+		private final FetchBatcher<Intermediate> batcher;
 		private final Predicate<Intermediate> newValue;
 		private final Function<Intermediate, Resource> extractor;
 		private final Predicate<Intermediate> reschedule;
 		private final ToLongFunction<Intermediate> nextSchedule;
 		private Intermediate last = null;
+		private final String uri;
+		private final FetchContext fetchContext;
+		/** time this is scheduled for, in ns */
+		private long planned = System.nanoTime();
+		/** first time the store was seen without follower, or -1 */
+		private long idleSince = -1;
 
 		public SelfSchedule(
 				BiConsumer<Callable<?>, Long> executor,
@@ -197,6 +489,49 @@ extends WeakCache<String, Hold> {
 				Function<Intermediate, Resource> extractor,
 				Predicate<Intermediate> reschedule,
 				ToLongFunction<Intermediate> nextSchedule) {
+			this(executor, store, fetch, newValue, extractor, reschedule, nextSchedule, null, null);
+		}
+
+		public SelfSchedule(
+				BiConsumer<Callable<?>, Long> executor,
+				RWHold store,
+				Function<Intermediate, Intermediate> fetch,
+				Predicate<Intermediate> newValue,
+				Function<Intermediate, Resource> extractor,
+				Predicate<Intermediate> reschedule,
+				ToLongFunction<Intermediate> nextSchedule,
+				String uri,
+				FetchContext fetchContext) {
+			this(executor, store, fetch, null, newValue, extractor, reschedule, nextSchedule, uri, fetchContext);
+		}
+
+		SelfSchedule(
+				BiConsumer<Callable<?>, Long> executor,
+				RWHold store,
+				FetchBatcher<Intermediate> batcher,
+				Predicate<Intermediate> newValue,
+				Function<Intermediate, Resource> extractor,
+				Predicate<Intermediate> reschedule,
+				ToLongFunction<Intermediate> nextSchedule,
+				String uri,
+				FetchContext fetchContext) {
+			this(executor, store, null, batcher, newValue, extractor, reschedule, nextSchedule, uri, fetchContext);
+		}
+
+		private SelfSchedule(
+				BiConsumer<Callable<?>, Long> executor,
+				RWHold store,
+				Function<Intermediate, Intermediate> fetch,
+				FetchBatcher<Intermediate> batcher,
+				Predicate<Intermediate> newValue,
+				Function<Intermediate, Resource> extractor,
+				Predicate<Intermediate> reschedule,
+				ToLongFunction<Intermediate> nextSchedule,
+				String uri,
+				FetchContext fetchContext) {
+			this.batcher = batcher;
+			this.uri = uri;
+			this.fetchContext = fetchContext;
 			this.executor = executor;
 			this.store = new WeakReference<>(store);
 			this.fetch = fetch;
@@ -212,16 +547,190 @@ extends WeakCache<String, Hold> {
 			if (storeRef == null) {
 				return null;
 			}
-			last = fetch.apply(last);
-			if (newValue.test(last)) {
-				storeRef.set(extractor.apply(last));
+			if (suspendIdle(storeRef)) {
+				return null;
 			}
-			if (reschedule.test(last)) {
-				executor.accept(this, nextSchedule.applyAsLong(last));
+			if (batcher != null) {
+				if (fetchContext != null) {
+					fetchContext.recordLag(Math.max(0, System.nanoTime() - planned));
+				}
+				batcher.add(uri, last, this::batched, this::batchMissing, this::batchFailed);
+				return null;
 			}
+			if (fetchContext == null) {
+				last = fetch.apply(last);
+				if (newValue.test(last)) {
+					storeRef.set(extractor.apply(last));
+				}
+			} else {
+				fetchCounted(storeRef);
+			}
+			scheduleNext();
 			return null;
 		}
 
+		protected void scheduleNext() {
+			if (reschedule.test(last)) {
+				long delay = nextSchedule.applyAsLong(last);
+				planned = System.nanoTime() + delay * 1000000;
+				executor.accept(this, delay);
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		private DiskTier<Intermediate> disk() {
+			return fetchContext == null ? null : (DiskTier<Intermediate>) fetchContext.disk;
+		}
+
+		/** set the value stored on disk for the URI, if any */
+		protected void seed(RWHold storeRef) {
+			DiskTier<Intermediate> disk = disk();
+			if (disk == null) {
+				return;
+			}
+			try {
+				Intermediate stored = disk.get(uri);
+				if (stored != null) {
+					last = stored;
+					storeRef.set(extractor.apply(stored));
+				}
+			} catch (RuntimeException e) {
+				logger.warn("while reading " + uri + " from disk", e);
+			}
+		}
+
+		/** store the last value fetched on disk */
+		protected void persist() {
+			DiskTier<Intermediate> disk = disk();
+			if (disk == null || last == null) {
+				return;
+			}
+			try {
+				disk.put(uri, last);
+			} catch (RuntimeException e) {
+				logger.warn("while writing " + uri + " to disk", e);
+			}
+		}
+
+		/** receive the value fetched by the batcher */
+		protected void batched(Intermediate value) {
+			last = value;
+			boolean changed = newValue.test(value);
+			RWHold storeRef = store.get();
+			if (changed && storeRef != null) {
+				storeRef.set(extractor.apply(value));
+			}
+			if (changed) {
+				persist();
+			}
+			if (fetchContext != null) {
+				fetchContext.fetches.increment();
+				if (!changed) {
+					fetchContext.unchanged.increment();
+				}
+			}
+			if (storeRef != null) {
+				scheduleNext();
+			}
+		}
+
+		/** the batch returned no value for the URI : it is not modified */
+		protected void batchMissing() {
+			if (fetchContext != null) {
+				fetchContext.fetches.increment();
+				fetchContext.unchanged.increment();
+			}
+			if (store.get() != null) {
+				scheduleNext();
+			}
+		}
+
+		/**
+		 * the batch failed. Since it may be a transient failure shared by all the
+		 * URIs of the batch, this is rescheduled with the last value.
+		 */
+		protected void batchFailed(Throwable error) {
+			if (fetchContext != null) {
+				fetchContext.failures.increment();
+			}
+			if (store.get() == null) {
+				return;
+			}
+			try {
+				scheduleNext();
+			} catch (RuntimeException e) {
+				logger.warn("while rescheduling " + uri + " after a failure", e);
+			}
+		}
+
+		/**
+		 * @return true if the store has been without follower for the grace of
+		 *         the context, in which case this will be scheduled again by the
+		 *         next follow.
+		 */
+		protected boolean suspendIdle(RWHold storeRef) {
+			long grace = fetchContext == null ? -1 : fetchContext.idleGraceNanos;
+			if (grace < 0 || !(storeRef instanceof ObjHolderSimple)) {
+				return false;
+			}
+			ObjHolderSimple<?> holder = (ObjHolderSimple<?>) storeRef;
+			if (holder.hasFollowers()) {
+				idleSince = -1;
+				return false;
+			}
+			long now = System.nanoTime();
+			if (idleSince < 0) {
+				idleSince = now;
+			}
+			if (now - idleSince < grace || !holder.onNextFollow(this::resume)) {
+				return false;
+			}
+			fetchContext.suspensions.increment();
+			return true;
+		}
+
+		/** schedule this immediately, after a suspension */
+		protected void resume() {
+			idleSince = -1;
+			planned = System.nanoTime();
+			executor.accept(this, 0l);
+		}
+
+		/** fetch and set the resource, and record it in the context */
+		protected void fetchCounted(RWHold storeRef) {
+			long lag = Math.max(0, System.nanoTime() - planned);
+			fetchContext.recordLag(lag);
+			FetchEvent event = new FetchEvent();
+			event.begin();
+			boolean changed = false;
+			try {
+				last = fetch.apply(last);
+				changed = newValue.test(last);
+				if (changed) {
+					storeRef.set(extractor.apply(last));
+					persist();
+				}
+			} catch (RuntimeException | Error e) {
+				fetchContext.failures.increment();
+				event.failed = true;
+				throw e;
+			} finally {
+				if (!event.failed) {
+					fetchContext.fetches.increment();
+					if (!changed) {
+						fetchContext.unchanged.increment();
+					}
+				}
+				event.end();
+				if (event.shouldCommit()) {
+					event.uri = uri;
+					event.changed = changed;
+					event.lag = lag;
+					event.commit();
+				}
+			}
+		}
+
 	}
 
 }
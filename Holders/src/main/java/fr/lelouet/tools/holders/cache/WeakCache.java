@@ -1,13 +1,27 @@
 package fr.lelouet.tools.holders.cache;
 
+import java.lang.ref.Reference;
 import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
 import java.lang.ref.WeakReference;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.time.Duration;
 import java.util.Objects;
-import java.util.Set;
 import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.ToLongFunction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import fr.lelouet.tools.holders.impl.ObjHolderSimple;
+import fr.lelouet.tools.holders.interfaces.ObjHolder;
 
 /**
  * A cache that present a single get(Key) method and returns a Value by caching
@@ -23,16 +37,36 @@ import java.util.function.Function;
  * {@link Function#compose}
  * </p>
  * <p>
- * The cache is using an internal Map<Key, Weakreference<Value>> and the
- * {@link #get(Object)} calls are synchronized after a first failed check ( see
- * Double-checked locking )
+ * The cache is using an internal concurrent map of the keys to entries, that
+ * hold a weak reference on the values by default. A hit does not lock. On a
+ * miss, a loading entry is put for the key, and the thread that put it runs
+ * the generator : the other threads that request the same key wait for that
+ * generation, while the other keys are not blocked.
+ * </p>
+ * <p>
+ * {@link #getAsync(Object)} and {@link #getHolder(Object)} do not block the
+ * calling thread : a missing value is generated on the {@link #executor(Executor)
+ * executor} of the cache, and the callers of the same key, synchronous or not,
+ * share that generation.
  * </p>
  * <p>
- * The {@link #removeEmptyReferences()} is only called internally when a
- * modification is called. This method is very fast and can be called regularly
- * by an external manager to ensure a minimal memory footprint ; however this
- * should not have real impact on the memory unless the cached elements are very
- * small AND they are created in bulk, then the cache is never used again.
+ * Each reference knows its entry, so the {@link #removeEmptyReferences()}
+ * removes each cleared reference from the map in O(1). It is called internally
+ * on each call ; it can also be called regularly by an external manager to
+ * ensure a minimal memory footprint ; however this should not have real impact
+ * on the memory unless the cached elements are very small AND they are created
+ * in bulk, then the cache is never used again.
+ * </p>
+ * <p>
+ * The cache can be configured, before it's used, to :
+ * <ul>
+ * <li>keep the values with soft or strong references instead of weak ones</li>
+ * <li>keep a bounded number of entries, or a bounded total weight, with a
+ * {@link SegmentedLru segmented LRU} eviction</li>
+ * <li>expire the entries after a duration since their creation or their last
+ * access. Expired entries are removed when they are requested, or by
+ * {@link #cleanUp()}</li>
+ * </ul>
  * </p>
  * <p>
  * Most code is based on the {@link WeakHashMap} class
@@ -43,9 +77,25 @@ import java.util.function.Function;
  */
 public class WeakCache<Key, Value> implements Function<Key, Value> {
 
-	protected static final WeakReference<Object> NULLREF = new WeakReference<>(null);
+	private static final Logger logger = LoggerFactory.getLogger(WeakCache.class);
 
-	protected final HashMap<Key, WeakReference<Value>> cache = new HashMap<>();
+	/** the key stored for a null key, since the map does not accept null */
+	protected static final Object NULLKEY = new Object();
+
+	/** how an entry references its value */
+	public static enum Strength {
+		/** the value is removed once not strongly referenced */
+		WEAK,
+		/** the value is removed when the memory is needed */
+		SOFT,
+		/** the value is only removed by eviction or expiration */
+		STRONG
+	}
+
+	/**
+	 * map of the (masked) keys to an {@link Entry} or a {@link Loading}
+	 */
+	protected final ConcurrentHashMap<Object, Object> cache = new ConcurrentHashMap<>();
 
 	/**
 	 * Reference queue for cleared WeakValues
@@ -54,6 +104,27 @@ public class WeakCache<Key, Value> implements Function<Key, Value> {
 
 	private final Function<Key, Value> generator;
 
+	//
+	// configuration
+	//
+
+	private volatile Strength strength = Strength.WEAK;
+
+	private volatile SegmentedLru policy = null;
+
+	private volatile ToLongFunction<? super Value> weigher = v -> 1;
+
+	private volatile long expireAfterWriteNanos = 0;
+
+	private volatile long expireAfterAccessNanos = 0;
+
+	private volatile LongSupplier ticker = System::nanoTime;
+
+	private volatile Executor executor = ForkJoinPool.commonPool();
+
+	/** null unless {@link #recordStats()} was called */
+	private volatile StatsCounter stats = null;
+
 	/**
 	 * create a new WeakCache based on a function
 	 *
@@ -83,35 +154,493 @@ public class WeakCache<Key, Value> implements Function<Key, Value> {
 		return new WeakCache<>(generator);
 	}
 
+	/**
+	 * set how the values generated are referenced.
+	 *
+	 * @return this
+	 */
+	public WeakCache<Key, Value> values(Strength strength) {
+		this.strength = Objects.requireNonNull(strength);
+		return this;
+	}
+
+	public WeakCache<Key, Value> softValues() {
+		return values(Strength.SOFT);
+	}
+
+	public WeakCache<Key, Value> strongValues() {
+		return values(Strength.STRONG);
+	}
+
+	/**
+	 * bound the number of entries.
+	 *
+	 * @return this
+	 */
+	public WeakCache<Key, Value> maximumSize(long size) {
+		return maximumWeight(size, v -> 1);
+	}
+
+	/**
+	 * bound the total weight of the entries. The weight of an entry is computed
+	 * once, when its value is generated.
+	 *
+	 * @param weight
+	 *          maximum total weight
+	 * @param weigher
+	 *          weight of a value, positive or zero. If it throws an exception or
+	 *          returns a negative weight, the generation fails and the value is
+	 *          not stored.
+	 * @return this
+	 */
+	public WeakCache<Key, Value> maximumWeight(long weight, ToLongFunction<? super Value> weigher) {
+		if (weight < 0) {
+			throw new IllegalArgumentException("maximum weight must not be negative, got " + weight);
+		}
+		if (!cache.isEmpty()) {
+			throw new IllegalStateException("the bound must be set before the cache is used");
+		}
+		this.weigher = Objects.requireNonNull(weigher);
+		policy = new SegmentedLru(weight);
+		return this;
+	}
+
+	/**
+	 * remove the entries after a duration since their generation.
+	 *
+	 * @return this
+	 */
+	public WeakCache<Key, Value> expireAfterWrite(Duration duration) {
+		expireAfterWriteNanos = duration.toNanos();
+		return this;
+	}
+
+	/**
+	 * remove the entries after a duration since their last request.
+	 *
+	 * @return this
+	 */
+	public WeakCache<Key, Value> expireAfterAccess(Duration duration) {
+		expireAfterAccessNanos = duration.toNanos();
+		return this;
+	}
+
+	/**
+	 * set the source of time of the expirations, in ns.
+	 *
+	 * @return this
+	 */
+	public WeakCache<Key, Value> ticker(LongSupplier ticker) {
+		this.ticker = Objects.requireNonNull(ticker);
+		return this;
+	}
+
+	/**
+	 * set the executor that generates the values requested by
+	 * {@link #getAsync(Object)}. Default is the common pool.
+	 *
+	 * @return this
+	 */
+	public WeakCache<Key, Value> executor(Executor executor) {
+		this.executor = Objects.requireNonNull(executor);
+		return this;
+	}
+
+	/**
+	 * record the statistics of this cache, and emit a {@link CacheLoadEvent} JFR
+	 * event for each generation. A hit then costs one more counter increment.
+	 *
+	 * @return this
+	 */
+	public WeakCache<Key, Value> recordStats() {
+		if (stats == null) {
+			stats = new StatsCounter();
+		}
+		return this;
+	}
+
+	public boolean isRecordingStats() {
+		return stats != null;
+	}
+
+	/**
+	 * @return a snapshot of the statistics, or {@link CacheStats#EMPTY} if they
+	 *         are not recorded.
+	 */
+	public CacheStats stats() {
+		StatsCounter s = stats;
+		return s == null ? CacheStats.EMPTY : s.snapshot();
+	}
+
+	//
+	// entries
+	//
+
+	/** a reference on a value, that knows its entry */
+	protected static interface ValueRef {
+		Entry<?> entry();
+	}
+
+	protected static class WeakValue<V> extends WeakReference<V> implements ValueRef {
+
+		private final Entry<?> entry;
+
+		public WeakValue(Entry<?> entry, V value, ReferenceQueue<Object> queue) {
+			super(value, queue);
+			this.entry = entry;
+		}
+
+		@Override
+		public Entry<?> entry() {
+			return entry;
+		}
+	}
+
+	protected static class SoftValue<V> extends SoftReference<V> implements ValueRef {
+
+		private final Entry<?> entry;
+
+		public SoftValue(Entry<?> entry, V value, ReferenceQueue<Object> queue) {
+			super(value, queue);
+			this.entry = entry;
+		}
+
+		@Override
+		public Entry<?> entry() {
+			return entry;
+		}
+	}
+
+	/** a value stored for a key */
+	protected static class Entry<V> {
+
+		protected final Object key;
+
+		/** the reference on the value, or null if the value is strongly kept */
+		private final Reference<V> ref;
+
+		private final V strong;
+
+		protected final long weight;
+
+		protected final long written;
+
+		protected volatile long accessed;
+
+		protected volatile boolean removed = false;
+
+		// fields of the eviction policy, guarded by its lock
+
+		Entry<?> prev;
+
+		Entry<?> next;
+
+		boolean protect;
+
+		protected Entry(Object key, V value, Strength strength, ReferenceQueue<Object> queue, long weight, long now) {
+			this.key = key;
+			if (value == null || strength == Strength.STRONG) {
+				ref = null;
+				strong = value;
+			} else {
+				ref = strength == Strength.SOFT ? new SoftValue<>(this, value, queue) : new WeakValue<>(this, value, queue);
+				strong = null;
+			}
+			this.weight = weight;
+			written = now;
+			accessed = now;
+		}
+
+		/** @return the value, or null if it was collected or is null. */
+		protected V value() {
+			return ref == null ? strong : ref.get();
+		}
+
+		protected boolean isCollected() {
+			return ref != null && ref.get() == null;
+		}
+	}
+
+	/** entry of a key whose value is being generated */
+	protected static class Loading<V> extends CompletableFuture<V> {
+
+		/**
+		 * the thread generating the value, or null while an asynchronous
+		 * generation is not started
+		 */
+		protected volatile Thread loader;
+
+		protected Loading(Thread loader) {
+			this.loader = loader;
+		}
+	}
+
+	protected static Object mask(Object key) {
+		return key == null ? NULLKEY : key;
+	}
+
+	protected boolean isExpired(Entry<?> e, long now) {
+		return expireAfterWriteNanos > 0 && now - e.written >= expireAfterWriteNanos
+				|| expireAfterAccessNanos > 0 && now - e.accessed >= expireAfterAccessNanos;
+	}
+
+	protected boolean expires() {
+		return expireAfterWriteNanos > 0 || expireAfterAccessNanos > 0;
+	}
+
+	/**
+	 * remove an entry from the map, if it is still the one stored for its key.
+	 *
+	 * @return true if the entry was removed
+	 */
+	protected boolean removeEntry(Entry<?> e) {
+		if (cache.remove(e.key, e)) {
+			removed(e);
+			return true;
+		}
+		return false;
+	}
+
+	/** called once an entry has been removed from the map */
+	protected void removed(Entry<?> e) {
+		e.removed = true;
+		SegmentedLru p = policy;
+		if (p != null) {
+			p.remove(e);
+		}
+	}
+
+	//
+	// get
+	//
+
+	/**
+	 * get the value cached for a key, or generate it.
+	 *
+	 * @throws IllegalStateException
+	 *           if the generator of a key requests the same key.
+	 */
 	@SuppressWarnings("unchecked")
 	public Value get(Key key) {
-		removeEmptyReferences();
-		WeakReference<Value> ref = cache.get(key);
-		if (ref == NULLREF) {
-			return null;
-		}
-		Value ret = ref != null ? ref.get() : null;
-		if (ret == null) {
-			synchronized (cache) {
-				ref = cache.get(key);
-				if (ref == NULLREF) {
-					return null;
+		Object masked = mask(key);
+		while (true) {
+			removeEmptyReferences();
+			Object found = cache.get(masked);
+			if (found instanceof Entry) {
+				Object ret = hit((Entry<Value>) found);
+				if (ret != RETRY) {
+					return (Value) ret;
 				}
-				ret = ref != null ? ref.get() : null;
-				if (ret == null) {
-					ret = generator.apply(key);
-					ref = ret == null ? (WeakReference<Value>) NULLREF : new WeakReference<>(ret, queue);
-					cache.put(key, ref);
+				continue;
+			}
+			if (found instanceof Loading) {
+				StatsCounter s = stats;
+				if (s != null) {
+					s.misses.increment();
 				}
+				return await((Loading<Value>) found);
+			}
+			Loading<Value> loading = new Loading<>(Thread.currentThread());
+			if (cache.putIfAbsent(masked, loading) == null) {
+				return load(key, masked, loading);
 			}
 		}
+	}
+
+	/**
+	 * get the value cached for a key, or generate it on the executor of this
+	 * cache. The callers of a key being generated share the same generation.
+	 *
+	 * @return a future completed with the value, or with the exception of the
+	 *         generator. Completing it does not modify the cache.
+	 */
+	@SuppressWarnings("unchecked")
+	public CompletableFuture<Value> getAsync(Key key) {
+		Object masked = mask(key);
+		while (true) {
+			removeEmptyReferences();
+			Object found = cache.get(masked);
+			if (found instanceof Entry) {
+				Object ret = hit((Entry<Value>) found);
+				if (ret != RETRY) {
+					return CompletableFuture.completedFuture((Value) ret);
+				}
+				continue;
+			}
+			if (found instanceof Loading) {
+				StatsCounter s = stats;
+				if (s != null) {
+					s.misses.increment();
+				}
+				return ((Loading<Value>) found).copy();
+			}
+			Loading<Value> loading = new Loading<>(null);
+			if (cache.putIfAbsent(masked, loading) == null) {
+				try {
+					executor.execute(() -> {
+						try {
+							load(key, masked, loading);
+						} catch (RuntimeException | Error e) {
+							// given to the future
+						}
+					});
+				} catch (RejectedExecutionException e) {
+					cache.remove(masked, loading);
+					loading.completeExceptionally(e);
+				}
+				return loading.copy();
+			}
+		}
+	}
+
+	/**
+	 * get an holder on the value of a key. The holder is returned immediately,
+	 * and set once the value is generated on the executor of this cache. If the
+	 * generation fails, the holder is never set.
+	 */
+	public ObjHolder<Value> getHolder(Key key) {
+		ObjHolderSimple<Value> ret = new ObjHolderSimple<>();
+		getAsync(key).whenComplete((v, e) -> {
+			if (e == null) {
+				ret.set(v);
+			} else {
+				logger.warn("while generating value for key " + key, e);
+			}
+		});
 		return ret;
 	}
 
+	/** returned by {@link #hit(Entry)} when the entry is no more valid */
+	private static final Object RETRY = new Object();
+
+	/**
+	 * get the value of an entry found, and record the access.
+	 *
+	 * @return the value, or {@link #RETRY} if the entry was collected or
+	 *         expired, and thus removed.
+	 */
+	private Object hit(Entry<Value> entry) {
+		Value ret = entry.value();
+		if (ret == null && entry.isCollected()) {
+			if (removeEntry(entry) && stats != null) {
+				stats.collected.increment();
+			}
+			return RETRY;
+		}
+		if (expires()) {
+			long now = ticker.getAsLong();
+			if (isExpired(entry, now)) {
+				if (removeEntry(entry) && stats != null) {
+					stats.expirations.increment();
+				}
+				return RETRY;
+			}
+			if (expireAfterAccessNanos > 0) {
+				entry.accessed = now;
+			}
+		}
+		SegmentedLru p = policy;
+		if (p != null) {
+			p.access(entry);
+		}
+		StatsCounter s = stats;
+		if (s != null) {
+			s.hits.increment();
+		}
+		return ret;
+	}
+
+	/** wait for the value generated by another thread */
+	protected Value await(Loading<Value> loading) {
+		if (loading.loader == Thread.currentThread()) {
+			throw new IllegalStateException("recursive generation of a key");
+		}
+		try {
+			return loading.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * generate the value of a key, store it, and give it to the threads waiting
+	 * for it. If the key was removed during the generation, the value is not
+	 * stored.
+	 */
+	protected Value load(Key key, Object masked, Loading<Value> loading) {
+		loading.loader = Thread.currentThread();
+		StatsCounter s = stats;
+		CacheLoadEvent event = null;
+		long start = 0;
+		if (s != null) {
+			s.misses.increment();
+			s.inFlight.increment();
+			event = new CacheLoadEvent();
+			event.begin();
+			start = System.nanoTime();
+		}
+		boolean generated = false;
+		try {
+			Value ret = generator.apply(key);
+			generated = true;
+			if (s != null) {
+				recordLoad(s, event, start, key, true);
+			}
+			SegmentedLru p = policy;
+			long weight = 0;
+			if (p != null) {
+				weight = weigher.applyAsLong(ret);
+				if (weight < 0) {
+					throw new IllegalArgumentException("negative weight " + weight + " for key " + key);
+				}
+			}
+			Entry<Value> entry = new Entry<>(masked, ret, strength, queue, weight, expires() ? ticker.getAsLong() : 0);
+			if (cache.replace(masked, loading, entry) && p != null) {
+				for (Entry<?> evicted : p.add(entry)) {
+					if (cache.remove(evicted.key, evicted)) {
+						evicted.removed = true;
+						if (s != null) {
+							s.evictions.increment();
+						}
+					}
+				}
+			}
+			loading.complete(ret);
+			return ret;
+		} catch (RuntimeException | Error e) {
+			// the generator or the weigher failed : the waiting threads must not wait
+			// forever
+			if (s != null && !generated) {
+				recordLoad(s, event, start, key, false);
+			}
+			cache.remove(masked, loading);
+			loading.completeExceptionally(e);
+			throw e;
+		}
+	}
+
+	private void recordLoad(StatsCounter s, CacheLoadEvent event, long start, Key key, boolean success) {
+		s.recordLoad(System.nanoTime() - start, success);
+		s.inFlight.decrement();
+		event.end();
+		if (event.shouldCommit()) {
+			event.key = String.valueOf(key);
+			event.failed = !success;
+			event.commit();
+		}
+	}
+
 	/**
 	 * <p>
-	 * checks if the queue contains a value, in which case it empties it in a set,
-	 * and then remove the values from the cached map.
+	 * remove from the map the references whose value has been garbage
+	 * collected. Each reference is removed in O(1), only if it is still the one
+	 * stored for its key.
 	 * </p>
 	 * <p>
 	 * This only removes the existing dereferenced ; between this invocation and
@@ -120,17 +649,26 @@ public class WeakCache<Key, Value> implements Function<Key, Value> {
 	 * null. However this is good for freeing a bit of memory.
 	 * </p>
 	 */
-	@SuppressWarnings("unchecked")
 	public void removeEmptyReferences() {
-		Object item = queue.poll();
-		if (item != null) {
-			synchronized (cache) {
-				Set<WeakReference<Value>> remove = new HashSet<>();
-				remove.add((WeakReference<Value>) item);
-				for (Object x; (x = queue.poll()) != null;) {
-					remove.add((WeakReference<Value>) x);
+		for (Object x; (x = queue.poll()) != null;) {
+			if (removeEntry(((ValueRef) x).entry()) && stats != null) {
+				stats.collected.increment();
+			}
+		}
+	}
+
+	/**
+	 * remove the collected and the expired entries. The expired entries are
+	 * searched in all the entries, so this is O(n).
+	 */
+	public void cleanUp() {
+		removeEmptyReferences();
+		if (expires()) {
+			long now = ticker.getAsLong();
+			for (Object o : cache.values()) {
+				if (o instanceof Entry && isExpired((Entry<?>) o, now) && removeEntry((Entry<?>) o) && stats != null) {
+					stats.expirations.increment();
 				}
-				cache.values().removeAll(remove);
 			}
 		}
 	}
@@ -141,13 +679,15 @@ public class WeakCache<Key, Value> implements Function<Key, Value> {
 	}
 
 	/**
-	 * synchronized call to internal map.
+	 * remove the value of a key. A generation in progress for the key is not
+	 * stored.
 	 *
 	 * @param k
 	 */
 	public void remove(Key k) {
-		synchronized (cache) {
-			cache.remove(k);
+		Object old = cache.remove(mask(k));
+		if (old instanceof Entry) {
+			removed((Entry<?>) old);
 		}
 	}
 
@@ -160,4 +700,13 @@ public class WeakCache<Key, Value> implements Function<Key, Value> {
 		return cache.size();
 	}
 
+	/**
+	 * @return the total weight of the entries, if the cache is bounded. 0
+	 *         otherwise.
+	 */
+	public long weight() {
+		SegmentedLru p = policy;
+		return p == null ? 0 : p.weight();
+	}
+
 }
@@ -6,6 +6,7 @@ import java.util.Set;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.function.ToDoubleFunction;
 import java.util.function.ToIntFunction;
 import java.util.function.ToLongFunction;
@@ -13,7 +14,11 @@ import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
+import fr.lelouet.tools.holders.cache.WeakCache;
+import fr.lelouet.tools.holders.impl.collections.DoubleListHolderImpl;
+import fr.lelouet.tools.holders.impl.collections.IntListHolderImpl;
 import fr.lelouet.tools.holders.impl.collections.ListHolderImpl;
+import fr.lelouet.tools.holders.impl.collections.LongListHolderImpl;
 import fr.lelouet.tools.holders.impl.collections.MapHolderImpl;
 import fr.lelouet.tools.holders.impl.collections.SetHolderImpl;
 import fr.lelouet.tools.holders.impl.numbers.BoolHolderImpl;
@@ -22,7 +27,10 @@ import fr.lelouet.tools.holders.impl.numbers.FloatHolderImpl;
 import fr.lelouet.tools.holders.impl.numbers.IntHolderImpl;
 import fr.lelouet.tools.holders.impl.numbers.LongHolderImpl;
 import fr.lelouet.tools.holders.interfaces.ObjHolder;
+import fr.lelouet.tools.holders.interfaces.collections.DoubleListHolder;
+import fr.lelouet.tools.holders.interfaces.collections.IntListHolder;
 import fr.lelouet.tools.holders.interfaces.collections.ListHolder;
+import fr.lelouet.tools.holders.interfaces.collections.LongListHolder;
 import fr.lelouet.tools.holders.interfaces.collections.MapHolder;
 import fr.lelouet.tools.holders.interfaces.collections.SetHolder;
 import fr.lelouet.tools.holders.interfaces.numbers.BoolHolder;
@@ -38,87 +46,229 @@ import fr.lelouet.tools.holders.interfaces.numbers.LongHolder;
  */
 public abstract class AObjHolder<U> implements ObjHolder<U> {
 
+	//
+	// cache of the derived holders
+	//
+
+	/**
+	 * key of a derived holder : the operator and the mapper. The creator is only
+	 * used to create the holder when it's missing.
+	 */
+	private static final class DerivedKey {
+
+		private final String operator;
+
+		private final Object mapper;
+
+		private Supplier<?> creator;
+
+		private DerivedKey(String operator, Object mapper, Supplier<?> creator) {
+			this.operator = operator;
+			this.mapper = mapper;
+			this.creator = creator;
+		}
+
+		private Object create() {
+			Object ret = creator.get();
+			creator = null;
+			return ret;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj == null || obj.getClass() != DerivedKey.class) {
+				return false;
+			}
+			DerivedKey other = (DerivedKey) obj;
+			return operator.equals(other.operator) && mapper.equals(other.mapper);
+		}
+
+		@Override
+		public int hashCode() {
+			return operator.hashCode() * 31 + mapper.hashCode();
+		}
+	}
+
+	/** null unless {@link #shareDerived()} was called */
+	private volatile WeakCache<DerivedKey, Object> derived = null;
+
+	/**
+	 * make the derivations of this with the same operator and the same mapper
+	 * (eg <code>map(Item::getName)</code> in two places) return the same holder,
+	 * as long as that holder is still used. The mappers are compared with
+	 * equals, so two method references are only the same if they come from the
+	 * same call site, or if the mapper is stored and reused.
+	 *
+	 * @return this
+	 */
+	public AObjHolder<U> shareDerived() {
+		if (derived == null) {
+			synchronized (this) {
+				if (derived == null) {
+					derived = new WeakCache<>(DerivedKey::create);
+				}
+			}
+		}
+		return this;
+	}
+
+	public boolean isSharingDerived() {
+		return derived != null;
+	}
+
+	/**
+	 * create a derived holder, or return the existing one if this shares its
+	 * derivations.
+	 *
+	 * @param operator
+	 *          the name of the derivation
+	 * @param mapper
+	 *          the function used to derive
+	 * @param creator
+	 *          creates the holder and makes it follow this.
+	 * @return a derived holder, frozen if this is frozen and the holder already
+	 *         has an item.
+	 */
+	@SuppressWarnings("unchecked")
+	protected <H> H derive(String operator, Object mapper, Supplier<H> creator) {
+		WeakCache<DerivedKey, Object> cache = derived;
+		H ret = cache == null || mapper == null ? creator.get() : (H) cache.get(new DerivedKey(operator, mapper, creator));
+		// a holder derived only from a frozen holder won't change either
+		if (isFrozen() && ret instanceof ObjHolderSimple<?>) {
+			((ObjHolderSimple<?>) ret).upstreamFrozen();
+		}
+		return ret;
+	}
+
+
 	@Override
 	public <V> ObjHolder<V> map(Function<U, V> mapper) {
-		ObjHolderSimple<V> ret = new ObjHolderSimple<>();
-		follow(v -> ret.set(mapper.apply(v)), ret);
-		return ret;
+		return derive("map", mapper, () -> {
+			ObjHolderSimple<V> ret = new ObjHolderSimple<>();
+			follow(v -> ret.set(mapper.apply(v)), ret);
+			return ret;
+		});
 	}
 
 	@Override
 	public BoolHolder test(Predicate<U> test) {
-		BoolHolderImpl ret = new BoolHolderImpl();
-		follow((newValue) -> ret.set(test.test(newValue)), ret);
-		return ret;
+		return derive("test", test, () -> {
+			BoolHolderImpl ret = new BoolHolderImpl();
+			follow((newValue) -> ret.set(test.test(newValue)), ret);
+			return ret;
+		});
 	}
 
 	@Override
 	public IntHolder mapInt(ToIntFunction<U> mapper) {
-		IntHolderImpl ret = new IntHolderImpl();
-		follow(newValue -> ret.set(mapper.applyAsInt(newValue)), ret);
-		return ret;
+		return derive("mapInt", mapper, () -> {
+			IntHolderImpl ret = new IntHolderImpl();
+			follow(newValue -> ret.set(mapper.applyAsInt(newValue)), ret);
+			return ret;
+		});
 	}
 
 	@Override
 	public LongHolder mapLong(ToLongFunction<U> mapper) {
-		LongHolderImpl ret = new LongHolderImpl();
-		follow((newValue) -> ret.set(mapper.applyAsLong(newValue)), ret);
-		return ret;
+		return derive("mapLong", mapper, () -> {
+			LongHolderImpl ret = new LongHolderImpl();
+			follow((newValue) -> ret.set(mapper.applyAsLong(newValue)), ret);
+			return ret;
+		});
 	}
 
 	@Override
 	public FloatHolder mapFloat(ToDoubleFunction<U> mapper) {
-		FloatHolderImpl ret = new FloatHolderImpl();
-		follow((newValue) -> ret.set((float) mapper.applyAsDouble(newValue)), ret);
-		return ret;
+		return derive("mapFloat", mapper, () -> {
+			FloatHolderImpl ret = new FloatHolderImpl();
+			follow((newValue) -> ret.set((float) mapper.applyAsDouble(newValue)), ret);
+			return ret;
+		});
 	}
 
 	@Override
 	public DoubleHolder mapDouble(ToDoubleFunction<U> mapper) {
-		DoubleHolderImpl ret = new DoubleHolderImpl();
-		follow((newValue) -> ret.set(mapper.applyAsDouble(newValue)), ret);
-		return ret;
+		return derive("mapDouble", mapper, () -> {
+			DoubleHolderImpl ret = new DoubleHolderImpl();
+			follow((newValue) -> ret.set(mapper.applyAsDouble(newValue)), ret);
+			return ret;
+		});
 	}
 
 	@Override
 	public <K> ListHolder<K> mapList(Function<U, List<K>> mapper) {
-		ListHolderImpl<K> ret = new ListHolderImpl<>();
-		follow((newValue) -> {
-			List<K> newlist = mapper.apply(newValue);
-			ret.set(newlist);
-		}, ret);
-		return ret;
+		return derive("mapList", mapper, () -> {
+			ListHolderImpl<K> ret = new ListHolderImpl<>();
+			follow((newValue) -> {
+				List<K> newlist = mapper.apply(newValue);
+				ret.set(newlist);
+			}, ret);
+			return ret;
+		});
+	}
+
+	@Override
+	public IntListHolder mapIntList(Function<U, int[]> mapper) {
+		return derive("mapIntList", mapper, () -> {
+			IntListHolderImpl ret = new IntListHolderImpl();
+			follow((newValue) -> ret.set(mapper.apply(newValue)), ret);
+			return ret;
+		});
+	}
+
+	@Override
+	public LongListHolder mapLongList(Function<U, long[]> mapper) {
+		return derive("mapLongList", mapper, () -> {
+			LongListHolderImpl ret = new LongListHolderImpl();
+			follow((newValue) -> ret.set(mapper.apply(newValue)), ret);
+			return ret;
+		});
+	}
+
+	@Override
+	public DoubleListHolder mapDoubleList(Function<U, double[]> mapper) {
+		return derive("mapDoubleList", mapper, () -> {
+			DoubleListHolderImpl ret = new DoubleListHolderImpl();
+			follow((newValue) -> ret.set(mapper.apply(newValue)), ret);
+			return ret;
+		});
 	}
 
 	@Override
 	public <K, V> MapHolder<K, V> mapMap(Function<U, Map<K, V>> mapper) {
-		MapHolderImpl<K, V> ret = new MapHolderImpl<>();
-		follow((newValue) -> {
-			Map<K, V> newlist = mapper.apply(newValue);
-			ret.set(newlist);
-		}, ret);
-		return ret;
+		return derive("mapMap", mapper, () -> {
+			MapHolderImpl<K, V> ret = new MapHolderImpl<>();
+			follow((newValue) -> {
+				Map<K, V> newlist = mapper.apply(newValue);
+				ret.set(newlist);
+			}, ret);
+			return ret;
+		});
 	}
 
 	@Override
 	public <V> ListHolder<V> toList(Function<U, Iterable<V>> generator) {
-		ListHolderImpl<V> ret = new ListHolderImpl<>();
-		follow((newValue) -> {
-			List<V> newlist = StreamSupport.stream(generator.apply(newValue).spliterator(), false)
-					.collect(Collectors.toList());
-			ret.set(newlist);
-		}, ret);
-		return ret;
+		return derive("toList", generator, () -> {
+			ListHolderImpl<V> ret = new ListHolderImpl<>();
+			follow((newValue) -> {
+				List<V> newlist = StreamSupport.stream(generator.apply(newValue).spliterator(), false)
+						.collect(Collectors.toList());
+				ret.set(newlist);
+			}, ret);
+			return ret;
+		});
 	}
 
 	@Override
 	public <V> SetHolder<V> toSet(Function<U, Iterable<V>> generator) {
-		SetHolderImpl<V> ret = new SetHolderImpl<>();
-		follow((newValue) -> {
-			Set<V> newlist = StreamSupport.stream(generator.apply(newValue).spliterator(), false).collect(Collectors.toSet());
-			ret.set(newlist);
-		}, ret);
-		return ret;
+		return derive("toSet", generator, () -> {
+			SetHolderImpl<V> ret = new SetHolderImpl<>();
+			follow((newValue) -> {
+				Set<V> newlist = StreamSupport.stream(generator.apply(newValue).spliterator(), false).collect(Collectors.toSet());
+				ret.set(newlist);
+			}, ret);
+			return ret;
+		});
 	}
 
 	@Override
@@ -0,0 +1,265 @@
+package fr.lelouet.tools.holders.impl;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.Consumer;
+
+import fr.lelouet.tools.holders.interfaces.ObjHolder;
+import fr.lelouet.tools.holders.interfaces.RWObjHolder;
+import fr.lelouet.tools.lambdaref.references.HardRef;
+import fr.lelouet.tools.lambdaref.references.IRef;
+import fr.lelouet.tools.lambdaref.references.WeakRef;
+
+/**
+ * an object holder with a small memory footprint, for when millions of holders
+ * are used.
+ * <p>
+ * Compared to {@link ObjHolderSimple} :
+ * <ul>
+ * <li>the availability of the data is a state byte, threads waiting for the
+ * data wait on the holder's monitor, instead of a latch</li>
+ * <li>the followers are stored in a single field, that is null, a reference,
+ * or an array of references. No list node is created.</li>
+ * <li>the objects to keep alive are stored the same way, and added without
+ * lock</li>
+ * <li>following this with a holder makes the holder keep the consumer and
+ * this, without wrapping them in an array</li>
+ * <li>there is no name</li>
+ * </ul>
+ * </p>
+ */
+public class CompactObjHolder<U> extends AObjHolder<U> implements RWObjHolder<U>, Consumer<Object> {
+
+	private static final byte EMPTY = 0;
+
+	private static final byte AVAILABLE = 1;
+
+	public CompactObjHolder() {
+	}
+
+	public CompactObjHolder(U item) {
+		set(item);
+	}
+
+	private volatile byte state = EMPTY;
+
+	private volatile U item;
+
+	public void waitData() {
+		if (state == AVAILABLE) {
+			return;
+		}
+		synchronized (this) {
+			while (state == EMPTY) {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					throw new UnsupportedOperationException("catch this", e);
+				}
+			}
+		}
+	}
+
+	@Override
+	public boolean isDataAvailable() {
+		return state == AVAILABLE;
+	}
+
+	@Override
+	public U peek() {
+		return item;
+	}
+
+	@Override
+	public U get() {
+		waitData();
+		return item;
+	}
+
+	@Override
+	public synchronized void set(U newitem) {
+		// if there was already a value set, and we set to this same value, don't
+		// propagate.
+		if (state == AVAILABLE && (newitem == item || newitem != null && newitem.equals(item))) {
+			return;
+		}
+		item = newitem;
+		transmitToListeners();
+		if (state == EMPTY) {
+			state = AVAILABLE;
+			notifyAll();
+		}
+	}
+
+	@Override
+	public ObjHolder<U> or(U defaultValue) {
+		CompactObjHolder<U> ret = new CompactObjHolder<>(defaultValue);
+		follow(ret::set, ret);
+		return ret;
+	}
+
+	//
+	// followers
+	//
+
+	/** null, an IRef&lt;Consumer&lt;U&gt;&gt;, or an IRef[] with null slots */
+	private Object followers = null;
+
+	@Override
+	public synchronized ObjHolder<U> follow(Consumer<U> cons, Consumer<Object> holder) {
+		IRef<Consumer<U>> ref;
+		if (holder == null) {
+			ref = new HardRef<>(cons);
+			IRef.hard(this);
+		} else {
+			holder.accept(cons);
+			holder.accept(this);
+			ref = new WeakRef<>(cons);
+			if (holder instanceof ObjHolderSimple<?>) {
+				((ObjHolderSimple<?>) holder).followsUntracked();
+			}
+		}
+		if (followers == null) {
+			followers = ref;
+		} else if (followers instanceof IRef[]) {
+			IRef<?>[] arr = (IRef<?>[]) followers;
+			int free = 0;
+			while (free < arr.length && arr[free] != null) {
+				free++;
+			}
+			if (free == arr.length) {
+				arr = Arrays.copyOf(arr, arr.length + (arr.length >> 1) + 1);
+				followers = arr;
+			}
+			arr[free] = ref;
+		} else {
+			followers = new IRef<?>[] { (IRef<?>) followers, ref };
+		}
+		if (state == AVAILABLE) {
+			cons.accept(item);
+		}
+		return this;
+	}
+
+	@Override
+	public synchronized void unfollow(Consumer<U> cons) {
+		if (followers instanceof IRef[]) {
+			IRef<?>[] arr = (IRef<?>[]) followers;
+			for (int i = 0; i < arr.length; i++) {
+				if (arr[i] != null) {
+					Object h = arr[i].get();
+					if (h == null || h.equals(cons)) {
+						arr[i] = null;
+					}
+				}
+			}
+			compactFollowers();
+		} else if (followers != null) {
+			Object h = ((IRef<?>) followers).get();
+			if (h == null || h.equals(cons)) {
+				followers = null;
+			}
+		}
+	}
+
+	/** reduce the followers array to null or a single reference if possible */
+	private void compactFollowers() {
+		IRef<?>[] arr = (IRef<?>[]) followers;
+		IRef<?> last = null;
+		int count = 0;
+		for (IRef<?> ref : arr) {
+			if (ref != null) {
+				last = ref;
+				count++;
+			}
+		}
+		if (count == 0) {
+			followers = null;
+		} else if (count == 1) {
+			followers = last;
+		}
+	}
+
+	/**
+	 * transmit the item to the listeners. Should be called inside a synchronized
+	 * call.
+	 */
+	@SuppressWarnings("unchecked")
+	protected void transmitToListeners() {
+		if (followers instanceof IRef[]) {
+			IRef<Consumer<U>>[] arr = (IRef<Consumer<U>>[]) followers;
+			boolean removed = false;
+			for (int i = 0; i < arr.length; i++) {
+				if (arr[i] != null) {
+					Consumer<U> cons = arr[i].get();
+					if (cons == null) {
+						arr[i] = null;
+						removed = true;
+					} else {
+						cons.accept(item);
+					}
+				}
+			}
+			if (removed && followers == arr) {
+				compactFollowers();
+			}
+		} else if (followers != null) {
+			Consumer<U> cons = ((IRef<Consumer<U>>) followers).get();
+			if (cons == null) {
+				followers = null;
+			} else {
+				cons.accept(item);
+			}
+		}
+	}
+
+	public synchronized int followers() {
+		if (followers instanceof IRef[]) {
+			int ret = 0;
+			for (IRef<?> ref : (IRef<?>[]) followers) {
+				if (ref != null) {
+					ret++;
+				}
+			}
+			return ret;
+		}
+		return followers == null ? 0 : 1;
+	}
+
+	//
+	// consumer<Object>
+	//
+
+	/**
+	 * null, an object, or an Object[] of the objects to keep alive. If the first
+	 * object stored is an Object[], it will be considered as the store ; this
+	 * does not matter since its items are kept alive anyhow.
+	 */
+	private volatile Object stored = null;
+
+	@SuppressWarnings("rawtypes")
+	private static final AtomicReferenceFieldUpdater<CompactObjHolder, Object> STORED = AtomicReferenceFieldUpdater
+	.newUpdater(CompactObjHolder.class, Object.class, "stored");
+
+	@Override
+	public void accept(Object t) {
+		while (true) {
+			Object prev = stored;
+			Object next;
+			if (prev == null) {
+				next = t;
+			} else if (prev instanceof Object[]) {
+				Object[] arr = (Object[]) prev;
+				Object[] grown = Arrays.copyOf(arr, arr.length + 1, Object[].class);
+				grown[arr.length] = t;
+				next = grown;
+			} else {
+				next = new Object[] { prev, t };
+			}
+			if (STORED.compareAndSet(this, prev, next)) {
+				return;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,205 @@
+package fr.lelouet.tools.holders.impl;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import fr.lelouet.tools.holders.interfaces.ObjHolder;
+import fr.lelouet.tools.holders.interfaces.RWObjHolder;
+import fr.lelouet.tools.lambdaref.references.HardRef;
+import fr.lelouet.tools.lambdaref.references.IRef;
+import fr.lelouet.tools.lambdaref.references.WeakRef;
+
+/**
+ * an object holder confined to the thread of a {@link HolderGroup}.
+ * <p>
+ * The item and the followers are only modified in the thread of the group, so
+ * no lock is used. The item is volatile, so it can still be read from any
+ * thread.
+ * </p>
+ * <p>
+ * Unlike {@link ObjHolderSimple}, a call to {@link #set(Object)} or
+ * {@link #follow(Consumer, Consumer)} made from another thread is queued, and
+ * returns before the item is set or delivered. {@link #map(Function)} creates
+ * a holder in the same group ; the other derivations create the usual holders,
+ * that follow this in the thread of the group.
+ * </p>
+ */
+public class ConfinedObjHolder<U> extends AObjHolder<U> implements RWObjHolder<U>, Consumer<Object> {
+
+	private final HolderGroup group;
+
+	public ConfinedObjHolder(HolderGroup group) {
+		this.group = group;
+	}
+
+	public HolderGroup group() {
+		return group;
+	}
+
+	private volatile U item;
+
+	private volatile boolean available = false;
+
+	private final CountDownLatch dataReceivedLatch = new CountDownLatch(1);
+
+	public void waitData() {
+		try {
+			dataReceivedLatch.await();
+		} catch (InterruptedException e) {
+			throw new UnsupportedOperationException("catch this", e);
+		}
+	}
+
+	@Override
+	public boolean isDataAvailable() {
+		return available;
+	}
+
+	@Override
+	public U peek() {
+		return item;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Must not be called from the thread of the group before the item is set,
+	 * since that thread is the one that would set it.
+	 * </p>
+	 */
+	@Override
+	public U get() {
+		if (!available) {
+			waitData();
+		}
+		return item;
+	}
+
+	@Override
+	public void set(U newitem) {
+		group.run(() -> doSet(newitem));
+	}
+
+	/** set the item and deliver it. Called in the thread of the group */
+	protected void doSet(U newitem) {
+		if (available && (newitem == item || newitem != null && newitem.equals(item))) {
+			return;
+		}
+		item = newitem;
+		if (!available) {
+			available = true;
+			dataReceivedLatch.countDown();
+		}
+		transmitToListeners(newitem);
+	}
+
+	@Override
+	public ObjHolder<U> or(U defaultValue) {
+		ConfinedObjHolder<U> ret = group.holder(defaultValue);
+		follow(ret::set, ret);
+		return ret;
+	}
+
+	@Override
+	public <V> ObjHolder<V> map(Function<U, V> mapper) {
+		return derive("map", mapper, () -> {
+			ConfinedObjHolder<V> ret = new ConfinedObjHolder<>(group);
+			follow(v -> ret.set(mapper.apply(v)), ret);
+			return ret;
+		});
+	}
+
+	//
+	// followers
+	//
+
+	@SuppressWarnings("rawtypes")
+	private static final IRef[] NO_FOLLOWER = new IRef[0];
+
+	/**
+	 * only modified in the thread of the group. Copied on write, so a follower
+	 * can be added while the item is delivered.
+	 */
+	@SuppressWarnings("unchecked")
+	private IRef<Consumer<U>>[] followers = NO_FOLLOWER;
+
+	@Override
+	public ObjHolder<U> follow(Consumer<U> cons, Consumer<Object> holder) {
+		IRef<Consumer<U>> ref;
+		if (holder == null) {
+			ref = new HardRef<>(cons);
+			IRef.hard(this);
+		} else {
+			holder.accept(new Object[] { cons, this });
+			ref = new WeakRef<>(cons);
+			if (holder instanceof ObjHolderSimple<?>) {
+				((ObjHolderSimple<?>) holder).followsUntracked();
+			}
+		}
+		group.run(() -> {
+			followers = Arrays.copyOf(followers, followers.length + 1);
+			followers[followers.length - 1] = ref;
+			if (available) {
+				cons.accept(item);
+			}
+		});
+		return this;
+	}
+
+	@Override
+	public void unfollow(Consumer<U> cons) {
+		group.run(() -> removeFollowers(cons));
+	}
+
+	/** remove the followers of a consumer, and the garbage collected ones */
+	private void removeFollowers(Consumer<U> cons) {
+		IRef<Consumer<U>>[] copy = Arrays.copyOf(followers, followers.length);
+		int kept = 0;
+		for (IRef<Consumer<U>> ref : followers) {
+			Consumer<U> h = ref.get();
+			if (h != null && !h.equals(cons)) {
+				copy[kept++] = ref;
+			}
+		}
+		if (kept < followers.length) {
+			followers = Arrays.copyOf(copy, kept);
+		}
+	}
+
+	protected void transmitToListeners(U value) {
+		boolean collected = false;
+		for (IRef<Consumer<U>> ref : followers) {
+			Consumer<U> cons = ref.get();
+			if (cons == null) {
+				collected = true;
+			} else {
+				cons.accept(value);
+			}
+		}
+		if (collected) {
+			removeFollowers(null);
+		}
+	}
+
+	/**
+	 * @return the number of followers. Exact only in the thread of the group.
+	 */
+	public int followers() {
+		return followers.length;
+	}
+
+	//
+	// consumer<Object>
+	//
+
+	private final ConcurrentLinkedQueue<Object> stored = new ConcurrentLinkedQueue<>();
+
+	@Override
+	public void accept(Object t) {
+		stored.add(t);
+	}
+
+}
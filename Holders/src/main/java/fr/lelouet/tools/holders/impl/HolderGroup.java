@@ -0,0 +1,129 @@
+package fr.lelouet.tools.holders.impl;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * a group of holders confined to a single thread, like an actor with its
+ * mailbox.
+ * <p>
+ * All the modifications of the {@link ConfinedObjHolder} of a group - set,
+ * follow, unfollow - and the deliveries to their followers run in the thread
+ * of the group, so they don't need any lock. A call made from the thread of
+ * the group runs directly ; a call made from another thread is queued in the
+ * executor of the group, and the call returns before it is run.
+ * </p>
+ * <p>
+ * An edge between two groups, eg a holder of a group that sets a holder of
+ * another group, thus goes through the queue of the executor of the target
+ * group.
+ * </p>
+ */
+public class HolderGroup implements Executor, AutoCloseable {
+
+	private static final Logger logger = LoggerFactory.getLogger(HolderGroup.class);
+
+	private final Executor mailbox;
+
+	/**
+	 * the thread running a task of the mailbox, null between two tasks since the
+	 * thread may then run other code
+	 */
+	private volatile Thread thread = null;
+
+	/**
+	 * create a group on an executor.
+	 *
+	 * @param mailbox
+	 *          the executor to run the modifications of the holders. It must run
+	 *          its tasks one at a time, in the order they are submitted.
+	 */
+	public HolderGroup(Executor mailbox) {
+		this.mailbox = mailbox;
+	}
+
+	/**
+	 * create a group with its own daemon thread, that is stopped when the group
+	 * is closed.
+	 *
+	 * @param name
+	 *          name of the thread
+	 * @return a new group
+	 */
+	public static HolderGroup newSingleThread(String name) {
+		return new HolderGroup(Executors.newSingleThreadExecutor(r -> {
+			Thread ret = new Thread(r, name);
+			ret.setDaemon(true);
+			return ret;
+		}));
+	}
+
+	/**
+	 * @return true if the current thread is running a task of this group.
+	 */
+	public boolean inGroup() {
+		return Thread.currentThread() == thread;
+	}
+
+	/**
+	 * queue a task in the mailbox of this group.
+	 */
+	@Override
+	public void execute(Runnable task) {
+		mailbox.execute(() -> {
+			thread = Thread.currentThread();
+			try {
+				task.run();
+			} catch (RuntimeException e) {
+				logger.warn("in holder group " + this, e);
+			} finally {
+				thread = null;
+			}
+		});
+	}
+
+	/**
+	 * run a task in the thread of this group : directly if called from that
+	 * thread, queued otherwise.
+	 */
+	public void run(Runnable task) {
+		if (inGroup()) {
+			task.run();
+		} else {
+			execute(task);
+		}
+	}
+
+	/**
+	 * @return a new holder confined to this group, with no item
+	 */
+	public <U> ConfinedObjHolder<U> holder() {
+		return new ConfinedObjHolder<>(this);
+	}
+
+	/**
+	 * @return a new holder confined to this group, with an item. The item is set
+	 *         in the thread of the group.
+	 */
+	public <U> ConfinedObjHolder<U> holder(U item) {
+		ConfinedObjHolder<U> ret = new ConfinedObjHolder<>(this);
+		ret.set(item);
+		return ret;
+	}
+
+	/**
+	 * stop the executor of this group, if it is an executor service. The tasks
+	 * already queued are still run.
+	 */
+	@Override
+	public void close() {
+		if (mailbox instanceof ExecutorService) {
+			((ExecutorService) mailbox).shutdown();
+		}
+	}
+
+}
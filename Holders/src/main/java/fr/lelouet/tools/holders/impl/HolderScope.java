@@ -0,0 +1,131 @@
+package fr.lelouet.tools.holders.impl;
+
+import java.util.ArrayList;
+import java.util.function.Consumer;
+
+import fr.lelouet.tools.holders.interfaces.ObjHolder;
+import fr.lelouet.tools.holders.interfaces.Subscription;
+
+/**
+ * owner of subscriptions, to detach them all at once when it's closed.
+ * <p>
+ * A scope is typically created in a try-with-resources. It owns the
+ * subscriptions made explicitly with it : the listeners added with
+ * {@link #follow(ObjHolder, Consumer)}, the holders derived with map, test,
+ * etc. passed to {@link #own(ObjHolder)}, and the subscriptions passed to
+ * {@link #add(Subscription)}. Closing the scope cancels all those
+ * subscriptions, so the listeners and the derived holders immediately stop
+ * receiving values, instead of relying on the garbage collector to remove
+ * them.
+ * </p>
+ * <p>
+ * A scope is not bound to a thread : it can be closed from any thread, and
+ * several scopes can be open at the same time.
+ * </p>
+ */
+public class HolderScope implements AutoCloseable {
+
+	private ArrayList<Subscription> subscriptions = new ArrayList<>();
+
+	/**
+	 * add a subscription to cancel when this is closed. If this is already
+	 * closed, the subscription is cancelled immediately.
+	 *
+	 * @param subscription
+	 *          the subscription to own
+	 * @return subscription
+	 */
+	public Subscription add(Subscription subscription) {
+		synchronized (this) {
+			if (subscriptions != null) {
+				subscriptions.add(subscription);
+				return subscription;
+			}
+		}
+		subscription.cancel();
+		return subscription;
+	}
+
+	/**
+	 * subscribe a listener to a holder, and own the subscription.
+	 *
+	 * @param <U>
+	 *          type of the value hold
+	 * @param holder
+	 *          the holder to follow
+	 * @param listener
+	 *          the listener to receive the values
+	 * @return the subscription, that can be cancelled before this is closed.
+	 */
+	public <U> Subscription follow(ObjHolder<U> holder, Consumer<U> listener) {
+		return add(holder.subscribe(listener));
+	}
+
+	/**
+	 * detach a derived holder from the holders it follows when this is closed.
+	 *
+	 * @param <H>
+	 *          type of the holder
+	 * @param derived
+	 *          a holder derived from other holders, eg with map. It should not be
+	 *          shared, since it won't change anymore once this is closed.
+	 * @return derived
+	 * @throws IllegalArgumentException
+	 *           if the holder is not an {@link ObjHolderSimple}, that can be
+	 *           detached.
+	 * @see ObjHolderSimple#detach()
+	 */
+	public <H extends ObjHolder<?>> H own(H derived) {
+		if (!(derived instanceof ObjHolderSimple<?>)) {
+			throw new IllegalArgumentException("can't detach holder " + derived);
+		}
+		ObjHolderSimple<?> detached = (ObjHolderSimple<?>) derived;
+		add(new Subscription() {
+
+			private volatile boolean active = true;
+
+			@Override
+			public void cancel() {
+				active = false;
+				detached.detach();
+			}
+
+			@Override
+			public boolean isActive() {
+				return active;
+			}
+		});
+		return derived;
+	}
+
+	public synchronized boolean isClosed() {
+		return subscriptions == null;
+	}
+
+	/**
+	 * @return the number of subscriptions owned, including the ones that were
+	 *         cancelled directly.
+	 */
+	public synchronized int size() {
+		return subscriptions == null ? 0 : subscriptions.size();
+	}
+
+	/**
+	 * cancel all the subscriptions, in the reverse order they were made.
+	 */
+	@Override
+	public void close() {
+		ArrayList<Subscription> toCancel;
+		synchronized (this) {
+			if (subscriptions == null) {
+				return;
+			}
+			toCancel = subscriptions;
+			subscriptions = null;
+		}
+		for (int i = toCancel.size() - 1; i >= 0; i--) {
+			toCancel.get(i).cancel();
+		}
+	}
+
+}
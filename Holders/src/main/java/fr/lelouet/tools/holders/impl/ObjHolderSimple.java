@@ -1,12 +1,18 @@
 package fr.lelouet.tools.holders.impl;
 
-import java.util.Iterator;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.concurrent.CountDownLatch;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 import fr.lelouet.tools.holders.interfaces.ObjHolder;
 import fr.lelouet.tools.holders.interfaces.RWObjHolder;
+import fr.lelouet.tools.holders.interfaces.Subscription;
 import fr.lelouet.tools.lambdaref.references.HardRef;
 import fr.lelouet.tools.lambdaref.references.IRef;
 import fr.lelouet.tools.lambdaref.references.UsualRef;
@@ -16,6 +22,12 @@ import lombok.Setter;
 
 /**
  * an implementation that contains the item to return and the list of listeners;
+ * <p>
+ * Once it will not change anymore, the holder can be {@link #freeze() frozen}
+ * : it then releases its followers and its own subscriptions, and delivers its
+ * item directly to new followers. The holders that only followed frozen
+ * holders are frozen in turn.
+ * </p>
  */
 public class ObjHolderSimple<U> extends AObjHolder<U> implements RWObjHolder<U>, Consumer<Object> {
 
@@ -36,59 +48,390 @@ public class ObjHolderSimple<U> extends AObjHolder<U> implements RWObjHolder<U>,
 		}
 	}
 
+	@Override
 	public boolean isDataAvailable() {
-		return dataReceivedLatch.getCount() == 0;
+		return current != null;
 	}
 
-	protected U item;
+	/**
+	 * immutable couple of an item and its sequence number, published in a
+	 * volatile field so that the item can be read without lock.
+	 */
+	public static final class Snapshot<U> {
+
+		public final U item;
+
+		public final long sequence;
+
+		protected Snapshot(U item, long sequence) {
+			this.item = item;
+			this.sequence = sequence;
+		}
+	}
+
+	/** item hold and its sequence number, or null until an item is set */
+	private volatile Snapshot<U> current = null;
 
 	@Override
 	public U get() {
-		waitData();
-		return item;
+		Snapshot<U> snap = current;
+		if (snap == null) {
+			waitData();
+			snap = current;
+		}
+		return snap.item;
+	}
+
+	@Override
+	public U peek() {
+		Snapshot<U> snap = current;
+		return snap == null ? null : snap.item;
+	}
+
+	/**
+	 * @return the last snapshot of the item, or null if no item was set. This
+	 *         call does not block nor lock.
+	 */
+	public Snapshot<U> snapshot() {
+		return current;
+	}
+
+	/**
+	 * a follower, with the sequence number of the last value it received.
+	 * Values are delivered without lock : the last value to deliver is kept, and
+	 * only one thread at a time delivers the values kept, while the others
+	 * return immediately. A value older than the last one delivered is
+	 * discarded, so the follower always ends with the most recent value.
+	 */
+	protected static class Follower<U> {
+
+		private static final VarHandle PENDING;
+
+		private static final VarHandle WIP;
+
+		static {
+			try {
+				MethodHandles.Lookup lookup = MethodHandles.lookup();
+				PENDING = lookup.findVarHandle(Follower.class, "pending", Snapshot.class);
+				WIP = lookup.findVarHandle(Follower.class, "wip", int.class);
+			} catch (ReflectiveOperationException e) {
+				throw new ExceptionInInitializerError(e);
+			}
+		}
+
+		/** set to null once released */
+		private volatile IRef<Consumer<U>> ref;
+
+		/** the most recent value not yet delivered, or null */
+		@SuppressWarnings("unused")
+		private volatile Snapshot<U> pending = null;
+
+		/** number of deliveries requested since the delivering thread started */
+		@SuppressWarnings("unused")
+		private volatile int wip = 0;
+
+		/** only accessed by the delivering thread */
+		private long delivered = 0;
+
+		protected Follower(IRef<Consumer<U>> ref) {
+			this.ref = ref;
+		}
+
+		/**
+		 * @return the consumer, or null if it was released or garbage collected.
+		 */
+		protected Consumer<U> consumer() {
+			IRef<Consumer<U>> r = ref;
+			return r == null ? null : r.get();
+		}
+
+		/**
+		 * stop delivering values to the consumer, and forget it.
+		 *
+		 * @return true if the consumer was not released yet.
+		 */
+		protected boolean release() {
+			IRef<Consumer<U>> r = ref;
+			ref = null;
+			return r != null;
+		}
+
+		protected boolean deliver(U value, long seq) {
+			return deliver(new Snapshot<>(value, seq));
+		}
+
+		/**
+		 * deliver a value, or leave it to the thread already delivering to this.
+		 *
+		 * @return false if the consumer has been released or garbage collected.
+		 */
+		@SuppressWarnings("unchecked")
+		protected boolean deliver(Snapshot<U> snap) {
+			if (consumer() == null) {
+				return false;
+			}
+			Snapshot<U> p;
+			do {
+				p = (Snapshot<U>) PENDING.getVolatile(this);
+			} while ((p == null || p.sequence < snap.sequence) && !PENDING.compareAndSet(this, p, snap));
+			if ((int) WIP.getAndAdd(this, 1) != 0) {
+				return true;
+			}
+			Throwable failure = null;
+			int missed = 1;
+			do {
+				Snapshot<U> next = (Snapshot<U>) PENDING.getAndSet(this, null);
+				Consumer<U> cons = consumer();
+				if (next != null && next.sequence > delivered && cons != null) {
+					delivered = next.sequence;
+					try {
+						cons.accept(next.item);
+					} catch (RuntimeException | Error e) {
+						// keep delivering the values of the other threads
+						if (failure == null) {
+							failure = e;
+						}
+					}
+				}
+				missed = (int) WIP.getAndAdd(this, -missed) - missed;
+			} while (missed != 0);
+			if (failure instanceof RuntimeException) {
+				throw (RuntimeException) failure;
+			} else if (failure != null) {
+				throw (Error) failure;
+			}
+			return true;
+		}
 	}
 
-	private final LinkedList<IRef<Consumer<U>>> followers = new LinkedList<>();
+	/** a follower that is removed with its subscription */
+	protected class Subscribed extends Follower<U> implements Subscription {
+
+		/**
+		 * the holder that keeps the consumer, if it is an {@link ObjHolderSimple}.
+		 * Weak so that this does not keep it.
+		 */
+		private WeakReference<ObjHolderSimple<?>> downstream = null;
+
+		protected Subscribed(IRef<Consumer<U>> ref) {
+			super(ref);
+		}
+
+		@Override
+		public void cancel() {
+			if (release()) {
+				released();
+			}
+		}
+
+		protected ObjHolderSimple<?> downstream() {
+			WeakReference<ObjHolderSimple<?>> d = downstream;
+			return d == null ? null : d.get();
+		}
+
+		@Override
+		public boolean isActive() {
+			return consumer() != null;
+		}
+	}
+
+	@SuppressWarnings("rawtypes")
+	private static final Follower[] NO_FOLLOWER = new Follower[0];
+
+	/** copied on write, so a set only has to read the reference */
+	@SuppressWarnings("unchecked")
+	private Follower<U>[] followers = NO_FOLLOWER;
+
+	/** number of followers released since the last removal */
+	private int releasedCount = 0;
 
 	private static final boolean USEWEAKREF = true;
 
 	@Override
-	public synchronized ObjHolder<U> follow(Consumer<U> cons, Consumer<Object> holder) {
+	public ObjHolder<U> follow(Consumer<U> cons, Consumer<Object> holder) {
+		subscribe(cons, holder);
+		return this;
+	}
+
+	@Override
+	public Subscription subscribe(Consumer<U> cons, Consumer<Object> holder) {
+		if (frozen) {
+			return deliverFrozen(cons);
+		}
+		IRef<Consumer<U>> ref;
 		if (holder == null) {
-			followers.add(new HardRef<>(cons));
+			ref = new HardRef<>(cons);
 			IRef.hard(this);
 		} else {
 			if (USEWEAKREF) {
 				holder.accept(new Object[] { cons, this });
-				followers.add(new WeakRef<>(cons));
+				ref = new WeakRef<>(cons);
 			} else {
-				followers.add(new UsualRef<>(cons));
+				ref = new UsualRef<>(cons);
 			}
 		}
-		if (dataReceivedLatch.getCount() == 0) {
-			cons.accept(item);
+		Subscribed ret = new Subscribed(ref);
+		if (holder instanceof ObjHolderSimple<?>) {
+			ObjHolderSimple<?> downstream = (ObjHolderSimple<?>) holder;
+			ret.downstream = new WeakReference<>(downstream);
+			downstream.addUpstream(ret);
+		}
+		addFollower(ret);
+		return ret;
+	}
+
+	@Override
+	public Subscription subscribe(Consumer<U> listener) {
+		if (frozen) {
+			return deliverFrozen(listener);
+		}
+		Subscribed ret = new Subscribed(new UsualRef<>(listener));
+		addFollower(ret);
+		return ret;
+	}
+
+	/**
+	 * add a follower, then send it the current item if any. If this is frozen,
+	 * the follower is released after receiving the item.
+	 */
+	protected void addFollower(Follower<U> follower) {
+		Snapshot<U> snap;
+		boolean added;
+		Runnable followed = null;
+		synchronized (this) {
+			added = !frozen;
+			if (added) {
+				followers = Arrays.copyOf(followers, followers.length + 1);
+				followers[followers.length - 1] = follower;
+				followed = onFollow;
+				onFollow = null;
+			}
+			snap = current;
+		}
+		if (snap != null) {
+			follower.deliver(snap);
+		}
+		if (!added) {
+			follower.release();
+		}
+		if (followed != null) {
+			followed.run();
+		}
+	}
+
+	/**
+	 * called when a follower is released. The released followers are removed
+	 * when they are half of the followers, so that releasing is amortized O(1).
+	 */
+	protected synchronized void released() {
+		releasedCount++;
+		if (releasedCount * 2 >= followers.length) {
+			removeFollowers(f -> f.consumer() == null);
 		}
-		return this;
 	}
 
 	@Override
 	public synchronized void unfollow(Consumer<U> cons) {
-		followers.removeIf(ref -> {
-			Consumer<U> h = ref.get();
+		removeFollowers(f -> {
+			Consumer<U> h = f.consumer();
 			return h == null || h.equals(cons);
 		});
 	}
 
+	/** must be called with the lock on this */
+	private void removeFollowers(Predicate<Follower<U>> removed) {
+		int kept = 0;
+		Follower<U>[] copy = Arrays.copyOf(followers, followers.length);
+		for (Follower<U> f : followers) {
+			if (!removed.test(f)) {
+				copy[kept++] = f;
+			}
+		}
+		if (kept < followers.length) {
+			followers = Arrays.copyOf(copy, kept);
+		}
+		releasedCount = 0;
+	}
+
+	/**
+	 * compare the item to a new one, to decide if it should be propagated.
+	 * Called with the lock on this.
+	 *
+	 * @return true when the new item is the same as the one hold, and should not
+	 *         be propagated
+	 */
+	protected boolean isSame(U newitem, U olditem) {
+		return newitem == olditem || newitem != null && newitem.equals(olditem);
+	}
+
+	/**
+	 * set the item, then transmit it to the followers. Only the change of the
+	 * item is done with the lock on this ; the transmission is done after, so the
+	 * followers may set other holders without keeping this locked. If another
+	 * thread is delivering to a follower, that thread delivers the item instead,
+	 * so this may return before all the followers received it.
+	 */
 	@Override
-	public synchronized void set(U newitem) {
-		// if there was already a value set, and we set to this same value, don't
-		// propagate.
-		if (isDataAvailable() && (newitem == item || newitem != null && newitem.equals(item))) {
-			return ;
+	public void set(U newitem) {
+		Follower<U>[] targets;
+		Snapshot<U> snap;
+		synchronized (this) {
+			Snapshot<U> old = current;
+			// if there was already a value set, and we set to this same value, don't
+			// propagate.
+			if (old != null && isSame(newitem, old.item)) {
+				return;
+			}
+			if (frozen) {
+				throw new IllegalStateException("can't set a frozen holder");
+			}
+			snap = new Snapshot<>(newitem, old == null ? 1 : old.sequence + 1);
+			current = snap;
+			targets = followers;
+			dataReceivedLatch.countDown();
+		}
+		transmitToListeners(snap, targets);
+	}
+
+	/**
+	 * @return the sequence number of the item hold. 0 if no item was set, then
+	 *         incremented each time the item changes.
+	 */
+	public long sequence() {
+		Snapshot<U> snap = current;
+		return snap == null ? 0 : snap.sequence;
+	}
+
+	/**
+	 * read the items of several holders, as they were all hold at the same
+	 * instant. The snapshots of the holders are read twice ; if one holder has
+	 * changed in between, the read is retried. This never blocks nor locks the
+	 * holders, but may spin while they are modified.
+	 *
+	 * @param holders
+	 *          the holders to read
+	 * @return a new array with the items of the holders, in the same order. The
+	 *         item of a holder with no data is null.
+	 */
+	public static Object[] readConsistent(ObjHolderSimple<?>... holders) {
+		Snapshot<?>[] snaps = new Snapshot<?>[holders.length];
+		while (true) {
+			for (int i = 0; i < holders.length; i++) {
+				snaps[i] = holders[i].current;
+			}
+			boolean consistent = true;
+			for (int i = 0; i < holders.length && consistent; i++) {
+				consistent = holders[i].current == snaps[i];
+			}
+			if (consistent) {
+				Object[] ret = new Object[holders.length];
+				for (int i = 0; i < holders.length; i++) {
+					ret[i] = snaps[i] == null ? null : snaps[i].item;
+				}
+				return ret;
+			}
+			Thread.onSpinWait();
 		}
-		item = newitem;
-		transmitToListeners();
-		dataReceivedLatch.countDown();
 	}
 
 	@Override
@@ -103,22 +446,198 @@ public class ObjHolderSimple<U> extends AObjHolder<U> implements RWObjHolder<U>,
 	private String name = null;
 
 	/**
-	 * transmit the item to the listeners. Should be called inside a synchronized
-	 * call.
+	 * transmit an item to the followers. Should be called without the lock on
+	 * this.
 	 */
-	protected void transmitToListeners() {
-		for (Iterator<IRef<Consumer<U>>> it = followers.iterator(); it.hasNext();) {
-			Consumer<U> cons = it.next().get();
-			if (cons == null) {
-				it.remove();
-			} else {
-				cons.accept(item);
+	protected void transmitToListeners(Snapshot<U> snap, Follower<U>[] targets) {
+		boolean collected = false;
+		for (Follower<U> f : targets) {
+			if (!f.deliver(snap)) {
+				collected = true;
 			}
 		}
+		if (collected) {
+			synchronized (this) {
+				removeFollowers(f -> f.consumer() == null);
+			}
+		}
+	}
+
+	public synchronized int followers() {
+		return followers.length;
+	}
+
+	/** run once when the next follower is added, if any */
+	private Runnable onFollow = null;
+
+	/**
+	 * @return true if this has followers, after removing the garbage collected
+	 *         ones.
+	 */
+	public synchronized boolean hasFollowers() {
+		if (followers.length > 0) {
+			removeFollowers(f -> f.consumer() == null);
+		}
+		return followers.length > 0;
+	}
+
+	/**
+	 * if this has no follower, set a task to run once the next follower is
+	 * added, after it received the current item. It replaces the previous task.
+	 *
+	 * @return true if the task was set, false if this has followers or is frozen.
+	 */
+	public synchronized boolean onNextFollow(Runnable task) {
+		if (frozen || hasFollowers()) {
+			return false;
+		}
+		onFollow = task;
+		return true;
 	}
 
-	public int followers() {
-		return followers.size();
+	//
+	// freezing
+	//
+
+	private volatile boolean frozen = false;
+
+	/**
+	 * the subscriptions to other holders, that are kept by this. null until the
+	 * first one.
+	 */
+	private ArrayList<Subscription> upstreams = null;
+
+	@Override
+	public boolean isFrozen() {
+		return frozen;
+	}
+
+	/**
+	 * mark the item of this as final. This holder then releases its followers,
+	 * cancels its subscriptions to other holders, and forgets the objects it
+	 * kept alive. The followers are not notified, since the item won't change ;
+	 * a new follower receives the item directly and is not stored.
+	 * <p>
+	 * The holders that followed this are frozen too, if they do not follow
+	 * another holder that is not frozen. Only the subscriptions made with a
+	 * holder are known : a holder set by a listener added without holder must
+	 * not be derived from holders that may be frozen. A holder that follows
+	 * another implementation of {@link ObjHolder} is never frozen this way.
+	 * </p>
+	 * <p>
+	 * Setting a different item in a frozen holder throws an
+	 * {@link IllegalStateException}.
+	 * </p>
+	 *
+	 * @return this
+	 * @throws IllegalStateException
+	 *           if this has no item yet.
+	 */
+	public ObjHolderSimple<U> freeze() {
+		Follower<U>[] released;
+		ArrayList<Subscription> cancelled;
+		synchronized (this) {
+			if (frozen) {
+				return this;
+			}
+			if (current == null) {
+				throw new IllegalStateException("can't freeze a holder without item");
+			}
+			frozen = true;
+			released = followers;
+			followers = NO_FOLLOWER;
+			onFollow = null;
+			releasedCount = 0;
+			cancelled = upstreams;
+			upstreams = null;
+		}
+		if (cancelled != null) {
+			for (Subscription sub : cancelled) {
+				sub.cancel();
+			}
+		}
+		synchronized (stored) {
+			stored.clear();
+		}
+		for (Follower<U> f : released) {
+			if (f.release() && f instanceof ObjHolderSimple.Subscribed) {
+				ObjHolderSimple<?> downstream = ((Subscribed) f).downstream();
+				if (downstream != null) {
+					downstream.upstreamFrozen();
+				}
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * cancel the subscriptions of this to other holders, and forget the objects
+	 * it kept alive. This keeps its item and its followers, but is not modified
+	 * by the holders it was derived from anymore.
+	 */
+	public void detach() {
+		ArrayList<Subscription> cancelled;
+		synchronized (this) {
+			cancelled = upstreams;
+			upstreams = null;
+		}
+		if (cancelled != null) {
+			for (Subscription sub : cancelled) {
+				sub.cancel();
+			}
+		}
+		synchronized (stored) {
+			stored.clear();
+		}
+	}
+
+	/** send the item of this frozen holder to a listener, without storing it */
+	private Subscription deliverFrozen(Consumer<U> listener) {
+		listener.accept(current.item);
+		return new Subscribed(null);
+	}
+
+	/**
+	 * true once this follows a holder that does not record its subscription in
+	 * this, so this is never frozen with the holders it follows.
+	 */
+	private volatile boolean untracked = false;
+
+	/**
+	 * mark this as following a holder that is not an {@link ObjHolderSimple}.
+	 * Its subscription is not known, so this won't be frozen when the other
+	 * holders it follows are.
+	 */
+	public void followsUntracked() {
+		untracked = true;
+	}
+
+	protected synchronized void addUpstream(Subscription sub) {
+		if (upstreams == null) {
+			upstreams = new ArrayList<>(1);
+		}
+		upstreams.add(sub);
+	}
+
+	/**
+	 * called when a holder followed by this is frozen, or when this was derived
+	 * from a frozen holder. Freeze this if all its subscriptions are inactive,
+	 * it has an item, and it never followed a holder whose subscription is
+	 * unknown.
+	 */
+	protected void upstreamFrozen() {
+		synchronized (this) {
+			if (frozen || current == null || untracked) {
+				return;
+			}
+			if (upstreams != null) {
+				upstreams.removeIf(sub -> !sub.isActive());
+				if (!upstreams.isEmpty()) {
+					return;
+				}
+			}
+		}
+		freeze();
 	}
 
 	//
@@ -1,6 +1,7 @@
 package fr.lelouet.tools.holders.impl.collections;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -10,6 +11,7 @@ import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -21,6 +23,7 @@ import org.slf4j.LoggerFactory;
 
 import fr.lelouet.tools.holders.impl.ObjHolderSimple;
 import fr.lelouet.tools.holders.interfaces.ObjHolder;
+import fr.lelouet.tools.holders.interfaces.Subscription;
 import fr.lelouet.tools.holders.interfaces.collections.CollectionHolder;
 import fr.lelouet.tools.holders.interfaces.collections.ListHolder;
 import fr.lelouet.tools.holders.interfaces.numbers.BoolHolder;
@@ -68,6 +71,15 @@ implements CollectionHolder<U, C> {
 		return ret;
 	}
 
+	@SuppressWarnings("unchecked")
+	@Override
+	public <K> ListHolderImpl<K> mapItemsParallel(Function<U, K> mapper, ForkJoinPool pool, int threshold) {
+		ListHolderImpl<K> ret = new ListHolderImpl<>();
+		follow(new ParallelItems<U, K, List<K>>(pool, threshold, mapper,
+				(items, results) -> new ArrayList<>((List<K>) Arrays.asList(results)), ret::set)::accept, ret);
+		return ret;
+	}
+
 	@Override
 	public ListHolder<U> sorted(Comparator<U> comparator) {
 		ListHolderImpl<U> ret = new ListHolderImpl<>();
@@ -134,6 +146,8 @@ implements CollectionHolder<U, C> {
 
 		private Consumer<C2> listener;
 
+		private Subscription subscription = null;
+
 		private Runnable updater;
 
 		private String debug = null;
@@ -161,11 +175,13 @@ implements CollectionHolder<U, C> {
 		 * called within a sync and thus create deadlock
 		 */
 		public void addListener() {
-			observed.follow(listener);
+			subscription = observed.subscribe(listener);
 		}
 
 		public void removeListener() {
-			observed.unfollow(listener);
+			if (subscription != null) {
+				subscription.cancel();
+			}
 		}
 
 		public boolean received() {
@@ -186,6 +202,8 @@ implements CollectionHolder<U, C> {
 	public <V, C2 extends Collection<V>> ListHolder<V> flatten(Function<U, CollectionHolder<V, C2>> mapper,
 			String debuger) {
 		ListHolderImpl<V> ret = new ListHolderImpl<>();
+		// the mapped collections are followed without ret
+		ret.followsUntracked();
 
 		/**
 		 * for each item of the collection, the known corresponding obsmapholder we
@@ -267,6 +285,7 @@ implements CollectionHolder<U, C> {
 		Object lock = new Object();
 		List<ObjHolder<K>> holders = new ArrayList<>();
 		List<Consumer<K>> followers = new ArrayList<>();
+		List<Subscription> subscriptions = new ArrayList<>();
 		List<Boolean> receipt = new ArrayList<>();
 		List<K> received = new ArrayList<>();
 		Runnable update = () -> {
@@ -282,9 +301,10 @@ implements CollectionHolder<U, C> {
 		follow(l -> {
 			ObjHolder<K>[] mapped = l.stream().map(mapper).toArray(ObjHolder[]::new);
 			synchronized (lock) {
-				for (int i = 0; i < holders.size(); i++) {
-					holders.get(i).unfollow(followers.get(i));
+				for (Subscription sub : subscriptions) {
+					sub.cancel();
 				}
+				subscriptions.clear();
 				holders.clear();
 				receipt.clear();
 				followers.clear();
@@ -306,9 +326,12 @@ implements CollectionHolder<U, C> {
 				}
 			}
 			for (int i = 0; i < mapped.length; i++) {
-				holders.get(i).follow(followers.get(i), ret);
+				Subscription sub = holders.get(i).subscribe(followers.get(i), ret);
+				synchronized (lock) {
+					subscriptions.add(sub);
+				}
 			}
-		});
+		}, ret);
 		return ret;
 	}
 
@@ -324,7 +347,7 @@ implements CollectionHolder<U, C> {
 			Consumer<Object> holder) {
 		Map<U, BoolHolder> filters = new LinkedHashMap<>();
 		Map<U, Boolean> elementsPredicate = new LinkedHashMap<>();
-		Map<U, Consumer<Boolean>> listeners = new HashMap<>();
+		Map<U, Subscription> subscriptions = new HashMap<>();
 		Runnable update = () -> {
 			synchronized (elementsPredicate) {
 				if (elementsPredicate.size() == filters.size()) {
@@ -345,8 +368,7 @@ implements CollectionHolder<U, C> {
 							elementsPredicate.put(u, b);
 							update.run();
 						};
-						listeners.put(u, cons);
-						predicate.follow(cons, holder);
+						subscriptions.put(u, predicate.subscribe(cons, holder));
 					}
 				}
 				// then remove the elements that need to be removed.
@@ -354,9 +376,8 @@ implements CollectionHolder<U, C> {
 				if (!removed.isEmpty()) {
 					synchronized (elementsPredicate) {
 						for (U u : removed) {
-							BoolHolder filter = filters.remove(u);
-							filter.unfollow(listeners.get(u));
 							filters.remove(u);
+							subscriptions.remove(u).cancel();
 							elementsPredicate.remove(u);
 						}
 					}
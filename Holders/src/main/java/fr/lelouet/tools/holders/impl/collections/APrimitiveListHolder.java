@@ -0,0 +1,51 @@
+package fr.lelouet.tools.holders.impl.collections;
+
+import java.util.function.BiPredicate;
+
+import fr.lelouet.tools.holders.impl.ObjHolderSimple;
+
+/**
+ * common implementation for the holders on primitive arrays.
+ * <p>
+ * The {@link #set(Object)} method translates a null array into the empty one,
+ * and does not propagate an array with the same content as the one already
+ * hold. Arrays are not copied : once set, an array must not be modified.
+ * </p>
+ *
+ * @param <A>
+ *          the array type, eg int[]
+ */
+public abstract class APrimitiveListHolder<A> extends ObjHolderSimple<A> {
+
+	private final A empty;
+
+	private final BiPredicate<A, A> sameContent;
+
+	/**
+	 *
+	 * @param empty
+	 *          the empty array to use instead of null
+	 * @param sameContent
+	 *          test if two arrays have the same content, eg Arrays::equals
+	 */
+	protected APrimitiveListHolder(A empty, BiPredicate<A, A> sameContent) {
+		this.empty = empty;
+		this.sameContent = sameContent;
+	}
+
+	@Override
+	public void set(A newitem) {
+		super.set(newitem == null ? empty : newitem);
+	}
+
+	@Override
+	protected boolean isSame(A newitem, A olditem) {
+		return sameContent.test(olditem, newitem);
+	}
+
+	/** change the array hold with an empty one. */
+	public void setEmpty() {
+		set(empty);
+	}
+
+}
@@ -0,0 +1,46 @@
+package fr.lelouet.tools.holders.impl.collections;
+
+import java.util.Arrays;
+
+import fr.lelouet.tools.holders.interfaces.collections.DoubleListHolder;
+import fr.lelouet.tools.holders.interfaces.numbers.BoolHolder;
+import fr.lelouet.tools.holders.interfaces.numbers.IntHolder;
+import lombok.Getter;
+import lombok.experimental.Accessors;
+
+/**
+ * implementation of the writable double[] holder.
+ */
+public class DoubleListHolderImpl extends APrimitiveListHolder<double[]> implements DoubleListHolder {
+
+	private static final double[] EMPTY = new double[0];
+
+	public DoubleListHolderImpl() {
+		super(EMPTY, Arrays::equals);
+	}
+
+	public DoubleListHolderImpl(double[] values) {
+		this();
+		set(values);
+	}
+
+	/**
+	 * create a holder on given values
+	 *
+	 * @param values
+	 *          the values to hold. The array is not copied.
+	 * @return a new holder
+	 */
+	public static DoubleListHolderImpl of(double... values) {
+		return new DoubleListHolderImpl(values);
+	}
+
+	@Getter(lazy = true)
+	@Accessors(fluent = true)
+	private final IntHolder size = mapInt(arr -> arr.length);
+
+	@Getter(lazy = true)
+	@Accessors(fluent = true)
+	private final BoolHolder isEmpty = test(arr -> arr.length == 0);
+
+}
@@ -0,0 +1,46 @@
+package fr.lelouet.tools.holders.impl.collections;
+
+import java.util.Arrays;
+
+import fr.lelouet.tools.holders.interfaces.collections.IntListHolder;
+import fr.lelouet.tools.holders.interfaces.numbers.BoolHolder;
+import fr.lelouet.tools.holders.interfaces.numbers.IntHolder;
+import lombok.Getter;
+import lombok.experimental.Accessors;
+
+/**
+ * implementation of the writable int[] holder.
+ */
+public class IntListHolderImpl extends APrimitiveListHolder<int[]> implements IntListHolder {
+
+	private static final int[] EMPTY = new int[0];
+
+	public IntListHolderImpl() {
+		super(EMPTY, Arrays::equals);
+	}
+
+	public IntListHolderImpl(int[] values) {
+		this();
+		set(values);
+	}
+
+	/**
+	 * create a holder on given values
+	 *
+	 * @param values
+	 *          the values to hold. The array is not copied.
+	 * @return a new holder
+	 */
+	public static IntListHolderImpl of(int... values) {
+		return new IntListHolderImpl(values);
+	}
+
+	@Getter(lazy = true)
+	@Accessors(fluent = true)
+	private final IntHolder size = mapInt(arr -> arr.length);
+
+	@Getter(lazy = true)
+	@Accessors(fluent = true)
+	private final BoolHolder isEmpty = test(arr -> arr.length == 0);
+
+}
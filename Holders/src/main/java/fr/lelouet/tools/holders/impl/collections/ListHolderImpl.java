@@ -5,6 +5,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.BinaryOperator;
 import java.util.function.Function;
 import java.util.function.Predicate;
@@ -79,6 +80,22 @@ public class ListHolderImpl<U> extends ACollectionHolder<U, List<U>> implements
 		return ret;
 	}
 
+	@SuppressWarnings("unchecked")
+	@Override
+	public ListHolderImpl<U> filterParallel(Predicate<? super U> predicate, ForkJoinPool pool, int threshold) {
+		ListHolderImpl<U> ret = new ListHolderImpl<>();
+		follow(new ParallelItems<U, Boolean, List<U>>(pool, threshold, predicate::test, (items, results) -> {
+			List<U> filtered = new ArrayList<>();
+			for (int i = 0; i < items.length; i++) {
+				if ((Boolean) results[i]) {
+					filtered.add((U) items[i]);
+				}
+			}
+			return filtered;
+		}, ret::set)::accept, ret);
+		return ret;
+	}
+
 	@Override
 	public ListHolderImpl<U> filterWhen(Function<? super U, BoolHolder> filterer) {
 		ListHolderImpl<U> ret = new ListHolderImpl<>();
@@ -0,0 +1,46 @@
+package fr.lelouet.tools.holders.impl.collections;
+
+import java.util.Arrays;
+
+import fr.lelouet.tools.holders.interfaces.collections.LongListHolder;
+import fr.lelouet.tools.holders.interfaces.numbers.BoolHolder;
+import fr.lelouet.tools.holders.interfaces.numbers.IntHolder;
+import lombok.Getter;
+import lombok.experimental.Accessors;
+
+/**
+ * implementation of the writable long[] holder.
+ */
+public class LongListHolderImpl extends APrimitiveListHolder<long[]> implements LongListHolder {
+
+	private static final long[] EMPTY = new long[0];
+
+	public LongListHolderImpl() {
+		super(EMPTY, Arrays::equals);
+	}
+
+	public LongListHolderImpl(long[] values) {
+		this();
+		set(values);
+	}
+
+	/**
+	 * create a holder on given values
+	 *
+	 * @param values
+	 *          the values to hold. The array is not copied.
+	 * @return a new holder
+	 */
+	public static LongListHolderImpl of(long... values) {
+		return new LongListHolderImpl(values);
+	}
+
+	@Getter(lazy = true)
+	@Accessors(fluent = true)
+	private final IntHolder size = mapInt(arr -> arr.length);
+
+	@Getter(lazy = true)
+	@Accessors(fluent = true)
+	private final BoolHolder isEmpty = test(arr -> arr.length == 0);
+
+}
@@ -44,7 +44,7 @@ public class MapHolderImpl<K, V> extends ObjHolderSimple<Map<K, V>> implements M
 	}
 
 	@Override
-	public synchronized void set(Map<K, V> newitem) {
+	public void set(Map<K, V> newitem) {
 		super.set(newitem == null ? Collections.emptyMap() : Collections.unmodifiableMap(newitem));
 	}
 
@@ -101,7 +101,7 @@ public class MapHolderImpl<K, V> extends ObjHolderSimple<Map<K, V>> implements M
 		list.follow((l) -> {
 			Map<K, L> newmap = l.stream().collect(Collectors.toMap(keyExtractor, remapper, mergeFunction));
 			ret.set(newmap);
-		});
+		}, ret);
 		return ret;
 	}
 
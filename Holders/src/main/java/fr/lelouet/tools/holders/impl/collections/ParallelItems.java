@@ -0,0 +1,169 @@
+package fr.lelouet.tools.holders.impl.collections;
+
+import java.util.Collection;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * listener that applies a function on each item of the collections it
+ * receives, and sets the result in a target.
+ * <p>
+ * Collections smaller than a threshold are processed in the calling thread,
+ * like the sequential mapping. Larger collections are split in chunks
+ * processed in a {@link ForkJoinPool}, and the calling thread returns
+ * immediately. The result of each item is stored at the index of the item, so
+ * the order of the collection is kept.
+ * </p>
+ * <p>
+ * Each collection received makes the previous computation stale. The chunks of
+ * a stale computation stop at the next item, and its result is never set in the
+ * target : the target only receives the result of the last collection.
+ * </p>
+ *
+ * @param <U>
+ *          type of the items received
+ * @param <V>
+ *          type of the result of the function for one item
+ * @param <R>
+ *          type of the data set in the target
+ */
+public class ParallelItems<U, V, R> implements Consumer<Collection<U>> {
+
+	private static final Logger logger = LoggerFactory.getLogger(ParallelItems.class);
+
+	private final ForkJoinPool pool;
+
+	private final int threshold;
+
+	private final Function<? super U, V> function;
+
+	/** makes the data to set from the items and the result of each item */
+	private final BiFunction<Object[], Object[], R> finisher;
+
+	private final Consumer<R> target;
+
+	/** incremented for each collection received */
+	private final AtomicLong generation = new AtomicLong();
+
+	/**
+	 *
+	 * @param pool
+	 *          the pool to process the large collections
+	 * @param threshold
+	 *          minimum size of a collection to be processed in the pool
+	 * @param function
+	 *          applied on each item
+	 * @param finisher
+	 *          makes the data to set from the array of items and the array of
+	 *          results, of same length
+	 * @param target
+	 *          receives the data
+	 */
+	public ParallelItems(ForkJoinPool pool, int threshold, Function<? super U, V> function,
+			BiFunction<Object[], Object[], R> finisher, Consumer<R> target) {
+		if (threshold < 1) {
+			throw new IllegalArgumentException("threshold must be positive, got " + threshold);
+		}
+		this.pool = pool;
+		this.threshold = threshold;
+		this.function = function;
+		this.finisher = finisher;
+		this.target = target;
+	}
+
+	@Override
+	public void accept(Collection<U> coll) {
+		long gen = generation.incrementAndGet();
+		Object[] items = coll.toArray();
+		Object[] results = new Object[items.length];
+		if (items.length < threshold) {
+			new Chunk(items, results, 0, items.length, items.length, gen).compute();
+			publish(gen, items, results);
+		} else {
+			int leaf = Math.max(1, items.length / (4 * pool.getParallelism()));
+			pool.execute(new RecursiveAction() {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected void compute() {
+					try {
+						new Chunk(items, results, 0, items.length, leaf, gen).invoke();
+						publish(gen, items, results);
+					} catch (RuntimeException e) {
+						logger.warn("while processing items in parallel", e);
+					}
+				}
+			});
+		}
+	}
+
+	/** @return true if a newer collection was received after the given one */
+	protected boolean isStale(long gen) {
+		return generation.get() != gen;
+	}
+
+	/**
+	 * set the data in the target if not stale. The check and the set are made
+	 * under lock, so that a stale computation can't set its data after a newer
+	 * one.
+	 */
+	protected void publish(long gen, Object[] items, Object[] results) {
+		if (isStale(gen)) {
+			return;
+		}
+		R data = finisher.apply(items, results);
+		synchronized (this) {
+			if (!isStale(gen)) {
+				target.accept(data);
+			}
+		}
+	}
+
+	/** applies the function on a range of the items, splitting it if too large */
+	private class Chunk extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Object[] items;
+
+		private final Object[] results;
+
+		private final int from;
+
+		private final int to;
+
+		private final int leaf;
+
+		private final long gen;
+
+		public Chunk(Object[] items, Object[] results, int from, int to, int leaf, long gen) {
+			this.items = items;
+			this.results = results;
+			this.from = from;
+			this.to = to;
+			this.leaf = leaf;
+			this.gen = gen;
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		protected void compute() {
+			if (to - from > leaf) {
+				int mid = (from + to) >>> 1;
+				invokeAll(new Chunk(items, results, from, mid, leaf, gen), new Chunk(items, results, mid, to, leaf, gen));
+				return;
+			}
+			for (int i = from; i < to && !isStale(gen); i++) {
+				results[i] = function.apply((U) items[i]);
+			}
+		}
+	}
+
+}
@@ -4,6 +4,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.BinaryOperator;
 import java.util.function.Function;
 import java.util.function.Predicate;
@@ -76,6 +77,22 @@ public class SetHolderImpl<U> extends ACollectionHolder<U, Set<U>> implements Se
 		return ret;
 	}
 
+	@SuppressWarnings("unchecked")
+	@Override
+	public SetHolderImpl<U> filterParallel(Predicate<? super U> predicate, ForkJoinPool pool, int threshold) {
+		SetHolderImpl<U> ret = new SetHolderImpl<>();
+		follow(new ParallelItems<U, Boolean, Set<U>>(pool, threshold, predicate::test, (items, results) -> {
+			Set<U> filtered = new HashSet<>();
+			for (int i = 0; i < items.length; i++) {
+				if ((Boolean) results[i]) {
+					filtered.add((U) items[i]);
+				}
+			}
+			return filtered;
+		}, ret::set)::accept, ret);
+		return ret;
+	}
+
 	@Override
 	public SetHolderImpl<U> filterWhen(Function<? super U, BoolHolder> filterer) {
 		SetHolderImpl<U> ret = new SetHolderImpl<>();
@@ -0,0 +1,148 @@
+package fr.lelouet.tools.holders.impl.flow;
+
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import fr.lelouet.tools.holders.interfaces.ObjHolder;
+import fr.lelouet.tools.holders.interfaces.Subscription;
+
+/**
+ * publisher of the values of a holder.
+ * <p>
+ * Each subscription follows the holder, and keeps only the last value it
+ * received : when the subscriber does not request fast enough, the
+ * intermediate values are dropped and it receives the latest one on its next
+ * request. A holder has no end, so the subscribers never receive onComplete ;
+ * they must cancel their subscription to stop following the holder.
+ * </p>
+ * <p>
+ * null values can't be sent to a subscriber, so they are ignored.
+ * </p>
+ *
+ * @param <U>
+ *          the type of the values published
+ */
+public class HolderPublisher<U> implements Flow.Publisher<U> {
+
+	private final ObjHolder<U> source;
+
+	public HolderPublisher(ObjHolder<U> source) {
+		this.source = source;
+	}
+
+	@Override
+	public void subscribe(Flow.Subscriber<? super U> subscriber) {
+		if (subscriber == null) {
+			throw new NullPointerException("subscriber must not be null");
+		}
+		HolderSubscription<U> subscription = new HolderSubscription<>(source, subscriber);
+		subscriber.onSubscribe(subscription);
+		subscription.start();
+	}
+
+	/**
+	 * subscription that stores the last value of the holder until the subscriber
+	 * requests it.
+	 */
+	protected static class HolderSubscription<U> implements Flow.Subscription {
+
+		private static final Object NONE = new Object();
+
+		private final ObjHolder<U> source;
+
+		private final Flow.Subscriber<? super U> subscriber;
+
+		private final AtomicLong requested = new AtomicLong();
+
+		/** last value received and not sent yet, or NONE */
+		private final AtomicReference<Object> latest = new AtomicReference<>(NONE);
+
+		/** number of calls to drain that are missed by the draining thread */
+		private final AtomicInteger wip = new AtomicInteger();
+
+		private volatile boolean cancelled = false;
+
+		/** subscription to the source, that keeps this until cancelled */
+		private volatile Subscription following = null;
+
+		protected HolderSubscription(ObjHolder<U> source, Flow.Subscriber<? super U> subscriber) {
+			this.source = source;
+			this.subscriber = subscriber;
+		}
+
+		protected void start() {
+			if (!cancelled) {
+				Subscription sub = source.subscribe(this::offer);
+				following = sub;
+				if (cancelled) {
+					sub.cancel();
+				}
+			}
+		}
+
+		protected void offer(U value) {
+			if (value == null || cancelled) {
+				return;
+			}
+			latest.set(value);
+			drain();
+		}
+
+		@Override
+		public void request(long n) {
+			if (cancelled) {
+				return;
+			}
+			if (n <= 0) {
+				cancel();
+				subscriber.onError(new IllegalArgumentException("non-positive subscription request " + n));
+				return;
+			}
+			requested.accumulateAndGet(n, (a, b) -> a + b < 0 ? Long.MAX_VALUE : a + b);
+			drain();
+		}
+
+		@Override
+		public void cancel() {
+			if (cancelled) {
+				return;
+			}
+			cancelled = true;
+			Subscription sub = following;
+			if (sub != null) {
+				sub.cancel();
+			}
+			latest.set(NONE);
+		}
+
+		/**
+		 * send the latest value if there is a pending request. Only one thread
+		 * drains at a time ; the other ones just mark that the draining thread must
+		 * loop once more.
+		 */
+		@SuppressWarnings("unchecked")
+		protected void drain() {
+			if (wip.getAndIncrement() != 0) {
+				return;
+			}
+			int missed = 1;
+			do {
+				while (!cancelled && requested.get() > 0) {
+					Object value = latest.getAndSet(NONE);
+					if (value == NONE) {
+						break;
+					}
+					if (requested.get() != Long.MAX_VALUE) {
+						requested.decrementAndGet();
+					}
+					subscriber.onNext((U) value);
+				}
+				missed = wip.addAndGet(-missed);
+			} while (missed != 0);
+		}
+
+	}
+
+}
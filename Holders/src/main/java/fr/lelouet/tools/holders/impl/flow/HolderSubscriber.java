@@ -0,0 +1,67 @@
+package fr.lelouet.tools.holders.impl.flow;
+
+import java.util.concurrent.Flow;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import fr.lelouet.tools.holders.interfaces.RWObjHolder;
+
+/**
+ * subscriber that sets the values it receives into a holder.
+ * <p>
+ * A holder only keeps the last value, so the subscriber requests an unbounded
+ * number of items. On completion the holder keeps the last value received ; on
+ * error the error is logged and the holder keeps the last value received.
+ * </p>
+ *
+ * @param <U>
+ *          the type of the values received
+ */
+public class HolderSubscriber<U> implements Flow.Subscriber<U> {
+
+	private static final Logger logger = LoggerFactory.getLogger(HolderSubscriber.class);
+
+	private final RWObjHolder<U> target;
+
+	private volatile Flow.Subscription subscription = null;
+
+	public HolderSubscriber(RWObjHolder<U> target) {
+		this.target = target;
+	}
+
+	@Override
+	public void onSubscribe(Flow.Subscription subscription) {
+		if (this.subscription != null) {
+			subscription.cancel();
+			return;
+		}
+		this.subscription = subscription;
+		subscription.request(Long.MAX_VALUE);
+	}
+
+	@Override
+	public void onNext(U item) {
+		target.set(item);
+	}
+
+	@Override
+	public void onError(Throwable throwable) {
+		logger.warn("error in publisher for holder " + target, throwable);
+	}
+
+	@Override
+	public void onComplete() {
+	}
+
+	/**
+	 * stop receiving values from the publisher.
+	 */
+	public void cancel() {
+		Flow.Subscription sub = subscription;
+		if (sub != null) {
+			sub.cancel();
+		}
+	}
+
+}
@@ -1,11 +1,13 @@
 package fr.lelouet.tools.holders.impl.numbers;
 
+import java.time.Duration;
 import java.util.function.BiPredicate;
 
 import fr.lelouet.tools.holders.impl.NotNullObjHolderImpl;
 import fr.lelouet.tools.holders.interfaces.ObjHolder;
 import fr.lelouet.tools.holders.interfaces.numbers.BoolHolder;
 import fr.lelouet.tools.holders.interfaces.numbers.NumberHolder;
+import fr.lelouet.tools.holders.interfaces.numbers.NumberWindow;
 
 public abstract class ANumberHolderImpl<Contained extends Number, Self extends NumberHolder<Contained, Self>>
 extends NotNullObjHolderImpl<Contained> implements NumberHolder<Contained, Self> {
@@ -21,4 +23,14 @@ extends NotNullObjHolderImpl<Contained> implements NumberHolder<Contained, Self>
 	public BoolHolder test(BiPredicate<Contained, Contained> test, Self b) {
 		return ObjHolder.combine(this, b, BoolHolderImpl::new, (u, v) -> test.test(u, v));
 	}
+
+	@Override
+	public NumberWindow window(int count) {
+		return NumberWindowImpl.ofCount(this, count);
+	}
+
+	@Override
+	public NumberWindow window(Duration duration) {
+		return NumberWindowImpl.ofDuration(this, duration);
+	}
 }
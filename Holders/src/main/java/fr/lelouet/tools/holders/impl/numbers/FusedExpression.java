@@ -0,0 +1,450 @@
+package fr.lelouet.tools.holders.impl.numbers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import fr.lelouet.tools.holders.interfaces.ObjHolder;
+import fr.lelouet.tools.holders.interfaces.numbers.BoolHolder;
+import fr.lelouet.tools.holders.interfaces.numbers.DoubleHolder;
+
+/**
+ * arithmetic expression over number holders, that is evaluated in a single
+ * holder.
+ * <p>
+ * An expression like <code>a.add(b).mult(c).sub(2)</code> on
+ * {@link fr.lelouet.tools.holders.interfaces.numbers.NumberHolder} creates one
+ * holder per operation, each following the previous one. Instead,
+ * <code>FusedExpression.of(a).add(b).mult(c).sub(2).toDouble()</code> only
+ * builds the tree of the operations, then creates one holder that follows a, b
+ * and c and evaluates the whole tree with primitive doubles when one of them
+ * changes.
+ * </p>
+ * <p>
+ * The tree is translated into a {@link DoubleEvaluator} by a {@link Compiler}.
+ * The default one nests lambdas ; another one can generate bytecode for the
+ * expression, see {@link #setCompiler(Compiler)}.
+ * </p>
+ * <p>
+ * All the computations are done on double, so the result may be different
+ * from the one of an {@link IntHolderImpl} chain, eg for the division.
+ * </p>
+ */
+public abstract class FusedExpression {
+
+	/** evaluation of an expression on the values of its inputs */
+	@FunctionalInterface
+	public static interface DoubleEvaluator {
+
+		/**
+		 * @param inputs
+		 *          the last values of the inputs, in the order of the inputs list
+		 *          used to compile the evaluator.
+		 * @return the value of the expression.
+		 */
+		public double eval(double[] inputs);
+	}
+
+	/** translation of an expression into an evaluator */
+	@FunctionalInterface
+	public static interface Compiler {
+
+		/**
+		 * @param expression
+		 *          the expression to compile
+		 * @param inputs
+		 *          the holders that will provide the values, in the order of the
+		 *          array given to the evaluator.
+		 * @return a new evaluator for the expression.
+		 */
+		public DoubleEvaluator compile(FusedExpression expression, List<ObjHolder<? extends Number>> inputs);
+	}
+
+	/** the operations between two expressions */
+	public static enum Operator {
+		ADD("+"), SUB("-"), MULT("*"), DIV("/");
+
+		/** java symbol of the operator */
+		public final String symbol;
+
+		Operator(String symbol) {
+			this.symbol = symbol;
+		}
+	}
+
+	/**
+	 * visit an expression from its leaves.
+	 *
+	 * @param <T>
+	 *          the type produced for each node
+	 */
+	public static interface Visitor<T> {
+
+		public T input(int index);
+
+		public T constant(double value);
+
+		public T operation(Operator operator, T left, T right);
+	}
+
+	//
+	// nodes
+	//
+
+	private static class Input extends FusedExpression {
+		private final ObjHolder<? extends Number> holder;
+
+		Input(ObjHolder<? extends Number> holder) {
+			this.holder = holder;
+		}
+
+		@Override
+		protected <T> T visit(Visitor<T> visitor, Map<ObjHolder<?>, Integer> indexes) {
+			return visitor.input(indexes.get(holder));
+		}
+
+		@Override
+		protected void collectInputs(List<ObjHolder<? extends Number>> inputs, Map<ObjHolder<?>, Integer> indexes) {
+			if (!indexes.containsKey(holder)) {
+				indexes.put(holder, inputs.size());
+				inputs.add(holder);
+			}
+		}
+	}
+
+	private static class Constant extends FusedExpression {
+		private final double value;
+
+		Constant(double value) {
+			this.value = value;
+		}
+
+		@Override
+		protected <T> T visit(Visitor<T> visitor, Map<ObjHolder<?>, Integer> indexes) {
+			return visitor.constant(value);
+		}
+
+		@Override
+		protected void collectInputs(List<ObjHolder<? extends Number>> inputs, Map<ObjHolder<?>, Integer> indexes) {
+		}
+	}
+
+	private static class Operation extends FusedExpression {
+		private final Operator operator;
+		private final FusedExpression left, right;
+
+		Operation(Operator operator, FusedExpression left, FusedExpression right) {
+			this.operator = operator;
+			this.left = left;
+			this.right = right;
+		}
+
+		@Override
+		protected <T> T visit(Visitor<T> visitor, Map<ObjHolder<?>, Integer> indexes) {
+			return visitor.operation(operator, left.visit(visitor, indexes), right.visit(visitor, indexes));
+		}
+
+		@Override
+		protected void collectInputs(List<ObjHolder<? extends Number>> inputs, Map<ObjHolder<?>, Integer> indexes) {
+			left.collectInputs(inputs, indexes);
+			right.collectInputs(inputs, indexes);
+		}
+	}
+
+	private FusedExpression() {
+	}
+
+	protected abstract <T> T visit(Visitor<T> visitor, Map<ObjHolder<?>, Integer> indexes);
+
+	protected abstract void collectInputs(List<ObjHolder<? extends Number>> inputs,
+			Map<ObjHolder<?>, Integer> indexes);
+
+	/**
+	 * visit this expression
+	 *
+	 * @param <T>
+	 *          type produced by the visitor
+	 * @param visitor
+	 *          the visitor to apply on each node
+	 * @param inputs
+	 *          the list of holders used to find the index of an input node. Must
+	 *          contain all the inputs of this expression.
+	 * @return the result of the visitor on this node.
+	 */
+	public <T> T visit(Visitor<T> visitor, List<ObjHolder<? extends Number>> inputs) {
+		Map<ObjHolder<?>, Integer> indexes = new IdentityHashMap<>();
+		for (int i = 0; i < inputs.size(); i++) {
+			indexes.putIfAbsent(inputs.get(i), i);
+		}
+		return visit(visitor, indexes);
+	}
+
+	/**
+	 * @return the list of the distinct holders this expression depends on, in
+	 *         the order of appearance.
+	 */
+	public List<ObjHolder<? extends Number>> inputs() {
+		List<ObjHolder<? extends Number>> ret = new ArrayList<>();
+		collectInputs(ret, new IdentityHashMap<>());
+		return Collections.unmodifiableList(ret);
+	}
+
+	@Override
+	public String toString() {
+		return visit(new Visitor<String>() {
+
+			@Override
+			public String input(int index) {
+				return "in[" + index + "]";
+			}
+
+			@Override
+			public String constant(double value) {
+				return "" + value;
+			}
+
+			@Override
+			public String operation(Operator operator, String left, String right) {
+				return "(" + left + operator.symbol + right + ")";
+			}
+		}, inputs());
+	}
+
+	//
+	// construction
+	//
+
+	public static FusedExpression of(ObjHolder<? extends Number> holder) {
+		return new Input(holder);
+	}
+
+	public static FusedExpression of(double value) {
+		return new Constant(value);
+	}
+
+	public FusedExpression add(FusedExpression other) {
+		return new Operation(Operator.ADD, this, other);
+	}
+
+	public FusedExpression add(ObjHolder<? extends Number> other) {
+		return add(of(other));
+	}
+
+	public FusedExpression add(double other) {
+		return add(of(other));
+	}
+
+	public FusedExpression sub(FusedExpression other) {
+		return new Operation(Operator.SUB, this, other);
+	}
+
+	public FusedExpression sub(ObjHolder<? extends Number> other) {
+		return sub(of(other));
+	}
+
+	public FusedExpression sub(double other) {
+		return sub(of(other));
+	}
+
+	public FusedExpression mult(FusedExpression other) {
+		return new Operation(Operator.MULT, this, other);
+	}
+
+	public FusedExpression mult(ObjHolder<? extends Number> other) {
+		return mult(of(other));
+	}
+
+	public FusedExpression mult(double other) {
+		return mult(of(other));
+	}
+
+	public FusedExpression div(FusedExpression other) {
+		return new Operation(Operator.DIV, this, other);
+	}
+
+	public FusedExpression div(ObjHolder<? extends Number> other) {
+		return div(of(other));
+	}
+
+	public FusedExpression div(double other) {
+		return div(of(other));
+	}
+
+	//
+	// compilation
+	//
+
+	/**
+	 * compiler that nests one lambda per node of the expression.
+	 */
+	public static final Compiler LAMBDA_COMPILER = (expression, inputs) -> expression
+			.visit(new Visitor<DoubleEvaluator>() {
+
+				@Override
+				public DoubleEvaluator input(int index) {
+					return in -> in[index];
+				}
+
+				@Override
+				public DoubleEvaluator constant(double value) {
+					return in -> value;
+				}
+
+				@Override
+				public DoubleEvaluator operation(Operator operator, DoubleEvaluator left, DoubleEvaluator right) {
+					switch (operator) {
+					case ADD:
+						return in -> left.eval(in) + right.eval(in);
+					case SUB:
+						return in -> left.eval(in) - right.eval(in);
+					case MULT:
+						return in -> left.eval(in) * right.eval(in);
+					case DIV:
+						return in -> left.eval(in) / right.eval(in);
+					default:
+						throw new UnsupportedOperationException("missing case " + operator);
+					}
+				}
+			}, inputs);
+
+	private static volatile Compiler compiler = LAMBDA_COMPILER;
+
+	/**
+	 * set the compiler used by {@link #toDouble()} and the comparisons.
+	 *
+	 * @param compiler
+	 *          the new compiler, or null to use the {@link #LAMBDA_COMPILER}.
+	 */
+	public static void setCompiler(Compiler compiler) {
+		FusedExpression.compiler = compiler == null ? LAMBDA_COMPILER : compiler;
+	}
+
+	//
+	// holders creation
+	//
+
+	/**
+	 * make a holder follow all the inputs, and call a setter with the inputs
+	 * values once they are all received.
+	 */
+	private static void bind(List<ObjHolder<? extends Number>> inputs, Consumer<double[]> onValues,
+			Consumer<Object> holder) {
+		double[] values = new double[inputs.size()];
+		boolean[] receipt = new boolean[inputs.size()];
+		int[] missing = new int[] { inputs.size() };
+		for (int i = 0; i < inputs.size(); i++) {
+			int index = i;
+			inputs.get(i).follow(n -> {
+				synchronized (values) {
+					values[index] = n.doubleValue();
+					if (!receipt[index]) {
+						receipt[index] = true;
+						missing[0]--;
+					}
+					if (missing[0] == 0) {
+						onValues.accept(values);
+					}
+				}
+			}, holder);
+		}
+		if (inputs.isEmpty()) {
+			onValues.accept(values);
+		}
+	}
+
+	/**
+	 * @return a new holder on the value of this expression, computed with the
+	 *         current compiler.
+	 */
+	public DoubleHolder toDouble() {
+		return toDouble(compiler);
+	}
+
+	public DoubleHolder toDouble(Compiler compiler) {
+		List<ObjHolder<? extends Number>> inputs = inputs();
+		DoubleEvaluator evaluator = compiler.compile(this, inputs);
+		DoubleHolderImpl ret = new DoubleHolderImpl();
+		bind(inputs, values -> ret.set(evaluator.eval(values)), ret);
+		return ret;
+	}
+
+	/** comparison of the left and right values of a predicate */
+	@FunctionalInterface
+	private static interface DoubleComparison {
+		boolean test(double left, double right);
+	}
+
+	protected BoolHolder compare(FusedExpression other, DoubleComparison comparison) {
+		Operation both = new Operation(Operator.SUB, this, other);
+		List<ObjHolder<? extends Number>> inputs = both.inputs();
+		DoubleEvaluator leftEval = compiler.compile(this, inputs);
+		DoubleEvaluator rightEval = compiler.compile(other, inputs);
+		BoolHolderImpl ret = new BoolHolderImpl();
+		bind(inputs, values -> ret.set(comparison.test(leftEval.eval(values), rightEval.eval(values))), ret);
+		return ret;
+	}
+
+	public BoolHolder gt(FusedExpression other) {
+		return compare(other, (a, b) -> a > b);
+	}
+
+	public BoolHolder gt(ObjHolder<? extends Number> other) {
+		return gt(of(other));
+	}
+
+	public BoolHolder gt(double other) {
+		return gt(of(other));
+	}
+
+	public BoolHolder ge(FusedExpression other) {
+		return compare(other, (a, b) -> a >= b);
+	}
+
+	public BoolHolder ge(ObjHolder<? extends Number> other) {
+		return ge(of(other));
+	}
+
+	public BoolHolder ge(double other) {
+		return ge(of(other));
+	}
+
+	public BoolHolder lt(FusedExpression other) {
+		return compare(other, (a, b) -> a < b);
+	}
+
+	public BoolHolder lt(ObjHolder<? extends Number> other) {
+		return lt(of(other));
+	}
+
+	public BoolHolder lt(double other) {
+		return lt(of(other));
+	}
+
+	public BoolHolder le(FusedExpression other) {
+		return compare(other, (a, b) -> a <= b);
+	}
+
+	public BoolHolder le(ObjHolder<? extends Number> other) {
+		return le(of(other));
+	}
+
+	public BoolHolder le(double other) {
+		return le(of(other));
+	}
+
+	public BoolHolder eq(FusedExpression other) {
+		return compare(other, (a, b) -> a == b);
+	}
+
+	public BoolHolder eq(ObjHolder<? extends Number> other) {
+		return eq(of(other));
+	}
+
+	public BoolHolder eq(double other) {
+		return eq(of(other));
+	}
+
+}
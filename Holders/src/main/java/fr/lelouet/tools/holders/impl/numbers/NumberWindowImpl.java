@@ -0,0 +1,530 @@
+package fr.lelouet.tools.holders.impl.numbers;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+import fr.lelouet.tools.holders.interfaces.ObjHolder;
+import fr.lelouet.tools.holders.interfaces.numbers.DoubleHolder;
+import fr.lelouet.tools.holders.interfaces.numbers.IntHolder;
+import fr.lelouet.tools.holders.interfaces.numbers.NumberWindow;
+
+/**
+ * window on the last values of a number holder, bounded by a number of values
+ * and/or an age.
+ * <p>
+ * The values are stored in primitive ring buffers, that only grow until they
+ * reach the steady size of the window. On reception of a value :
+ * <ul>
+ * <li>mean and variance are updated in O(1) with Welford's algorithm</li>
+ * <li>min and max are updated in amortized O(1) with monotonic queues</li>
+ * <li>if any quantile was requested, the values are also kept in an order
+ * statistic tree, so that adding and removing a value, and finding the value
+ * of a given rank, are O(log w) even for a large time-bounded window</li>
+ * </ul>
+ * </p>
+ * <p>
+ * The age of the values is only checked when a new value is received : a
+ * time-bounded window does not shrink while its source does not change.
+ * </p>
+ */
+public class NumberWindowImpl implements NumberWindow, Consumer<Object> {
+
+	private final int maxCount;
+
+	private final long maxAgeNanos;
+
+	private final LongSupplier clock;
+
+	/**
+	 * create a new window and make it follow a source
+	 *
+	 * @param source
+	 *          the holder to follow
+	 * @param maxCount
+	 *          maximum number of values kept, positive.
+	 * @param maxAge
+	 *          maximum age of the values kept, or null for no age limit.
+	 * @param clock
+	 *          provides the current time in ns, typically System::nanoTime
+	 */
+	public <N extends Number> NumberWindowImpl(ObjHolder<N> source, int maxCount, Duration maxAge,
+			LongSupplier clock) {
+		if (maxCount < 1) {
+			throw new IllegalArgumentException("window size must be positive, got " + maxCount);
+		}
+		if (maxAge != null && maxAge.isNegative()) {
+			throw new IllegalArgumentException("window duration must not be negative, got " + maxAge);
+		}
+		this.maxCount = maxCount;
+		maxAgeNanos = maxAge == null ? Long.MAX_VALUE : maxAge.toNanos();
+		this.clock = clock;
+		source.follow(n -> add(n.doubleValue()), this);
+	}
+
+	/**
+	 * create a window on the last values received
+	 *
+	 * @param source
+	 *          the holder to follow
+	 * @param count
+	 *          number of values to keep
+	 * @return a new window
+	 */
+	public static <N extends Number> NumberWindowImpl ofCount(ObjHolder<N> source, int count) {
+		return new NumberWindowImpl(source, count, null, System::nanoTime);
+	}
+
+	/**
+	 * create a window on the values received for a given duration
+	 *
+	 * @param source
+	 *          the holder to follow
+	 * @param duration
+	 *          max age of the values kept
+	 * @return a new window
+	 */
+	public static <N extends Number> NumberWindowImpl ofDuration(ObjHolder<N> source, Duration duration) {
+		return new NumberWindowImpl(source, Integer.MAX_VALUE, duration, System::nanoTime);
+	}
+
+	//
+	// ring buffers
+	//
+
+	/** growable ring buffer of double */
+	private static final class DoubleRing {
+		private double[] data = new double[8];
+		private int head = 0;
+		private int size = 0;
+
+		void addLast(double d) {
+			if (size == data.length) {
+				double[] grown = new double[data.length * 2];
+				for (int i = 0; i < size; i++) {
+					grown[i] = get(i);
+				}
+				data = grown;
+				head = 0;
+			}
+			data[(head + size) % data.length] = d;
+			size++;
+		}
+
+		double get(int i) {
+			return data[(head + i) % data.length];
+		}
+
+		double removeFirst() {
+			double ret = data[head];
+			head = (head + 1) % data.length;
+			size--;
+			return ret;
+		}
+	}
+
+	/** growable ring buffer of long, used as a deque */
+	private static final class LongRing {
+		private long[] data = new long[8];
+		private int head = 0;
+		private int size = 0;
+
+		void addLast(long l) {
+			if (size == data.length) {
+				long[] grown = new long[data.length * 2];
+				for (int i = 0; i < size; i++) {
+					grown[i] = data[(head + i) % data.length];
+				}
+				data = grown;
+				head = 0;
+			}
+			data[(head + size) % data.length] = l;
+			size++;
+		}
+
+		long first() {
+			return data[head];
+		}
+
+		long last() {
+			return data[(head + size - 1) % data.length];
+		}
+
+		long removeFirst() {
+			long ret = data[head];
+			head = (head + 1) % data.length;
+			size--;
+			return ret;
+		}
+
+		void removeLast() {
+			size--;
+		}
+	}
+
+	/**
+	 * treap of double, with the size of each subtree to find the value of a
+	 * rank. The nodes are indexes in primitive arrays ; node 0 is the empty tree.
+	 * Equal values are kept as distinct nodes.
+	 */
+	private static final class OrderTree {
+		private double[] key = new double[8];
+		private int[] left = new int[8];
+		private int[] right = new int[8];
+		private int[] count = new int[8];
+		private int[] priority = new int[8];
+		private int root = 0;
+		/** first released node, the next ones being chained by left */
+		private int free = 0;
+		/** first node never used */
+		private int used = 1;
+		private int seed = 0x2545F491;
+
+		/** roots of the trees made by the last split */
+		private int splitLeft, splitRight;
+
+		void add(double value) {
+			int node = allocate(value);
+			split(root, value);
+			root = merge(merge(splitLeft, node), splitRight);
+		}
+
+		/** remove one node of the value, that must be present */
+		void remove(double value) {
+			root = remove(root, value);
+		}
+
+		/** @return the value of rank k, 0 for the smallest */
+		double select(int k) {
+			int t = root;
+			while (true) {
+				int l = count[left[t]];
+				if (k < l) {
+					t = left[t];
+				} else if (k == l) {
+					return key[t];
+				} else {
+					k -= l + 1;
+					t = right[t];
+				}
+			}
+		}
+
+		private int allocate(double value) {
+			int node;
+			if (free != 0) {
+				node = free;
+				free = left[node];
+			} else {
+				if (used == key.length) {
+					int grown = key.length * 2;
+					key = Arrays.copyOf(key, grown);
+					left = Arrays.copyOf(left, grown);
+					right = Arrays.copyOf(right, grown);
+					count = Arrays.copyOf(count, grown);
+					priority = Arrays.copyOf(priority, grown);
+				}
+				node = used++;
+			}
+			// xorshift
+			seed ^= seed << 13;
+			seed ^= seed >>> 17;
+			seed ^= seed << 5;
+			key[node] = value;
+			left[node] = 0;
+			right[node] = 0;
+			count[node] = 1;
+			priority[node] = seed;
+			return node;
+		}
+
+		private void update(int t) {
+			count[t] = count[left[t]] + count[right[t]] + 1;
+		}
+
+		/** split a tree in the values lower than a value, and the others */
+		private void split(int t, double value) {
+			if (t == 0) {
+				splitLeft = 0;
+				splitRight = 0;
+			} else if (Double.compare(key[t], value) < 0) {
+				split(right[t], value);
+				right[t] = splitLeft;
+				update(t);
+				splitLeft = t;
+			} else {
+				split(left[t], value);
+				left[t] = splitRight;
+				update(t);
+				splitRight = t;
+			}
+		}
+
+		/** merge two trees, the values of a being lower than the values of b */
+		private int merge(int a, int b) {
+			if (a == 0) {
+				return b;
+			}
+			if (b == 0) {
+				return a;
+			}
+			if (priority[a] > priority[b]) {
+				right[a] = merge(right[a], b);
+				update(a);
+				return a;
+			}
+			left[b] = merge(a, left[b]);
+			update(b);
+			return b;
+		}
+
+		private int remove(int t, double value) {
+			int cmp = Double.compare(value, key[t]);
+			if (cmp == 0) {
+				int ret = merge(left[t], right[t]);
+				left[t] = free;
+				free = t;
+				return ret;
+			}
+			if (cmp < 0) {
+				left[t] = remove(left[t], value);
+			} else {
+				right[t] = remove(right[t], value);
+			}
+			update(t);
+			return t;
+		}
+	}
+
+	private final DoubleRing values = new DoubleRing();
+
+	private final LongRing times = new LongRing();
+
+	/** sequence number of the oldest value in the window */
+	private long firstSeq = 0;
+
+	/** sequence numbers of the candidates for min, with increasing values */
+	private final LongRing minQueue = new LongRing();
+
+	/** sequence numbers of the candidates for max, with decreasing values */
+	private final LongRing maxQueue = new LongRing();
+
+	private double mean = 0;
+
+	/** sum of the squared distances to the mean */
+	private double m2 = 0;
+
+	/** the values ordered, null until a quantile is requested */
+	private OrderTree ordered = null;
+
+	private double valueAt(long seq) {
+		return values.get((int) (seq - firstSeq));
+	}
+
+	protected synchronized void add(double value) {
+		long now = clock.getAsLong();
+		long seq = firstSeq + values.size;
+		values.addLast(value);
+		times.addLast(now);
+
+		double delta = value - mean;
+		mean += delta / values.size;
+		m2 += delta * (value - mean);
+
+		while (minQueue.size > 0 && valueAt(minQueue.last()) >= value) {
+			minQueue.removeLast();
+		}
+		minQueue.addLast(seq);
+		while (maxQueue.size > 0 && valueAt(maxQueue.last()) <= value) {
+			maxQueue.removeLast();
+		}
+		maxQueue.addLast(seq);
+
+		if (ordered != null) {
+			ordered.add(value);
+		}
+
+		while (values.size > maxCount || now - times.first() > maxAgeNanos) {
+			removeOldest();
+		}
+		publish();
+	}
+
+	protected void removeOldest() {
+		double value = values.removeFirst();
+		times.removeFirst();
+		long seq = firstSeq++;
+		int n = values.size;
+		if (n == 0) {
+			mean = 0;
+			m2 = 0;
+		} else {
+			double delta = value - mean;
+			mean -= delta / n;
+			m2 -= delta * (value - mean);
+			if (m2 < 0) {
+				m2 = 0;
+			}
+		}
+		if (minQueue.size > 0 && minQueue.first() == seq) {
+			minQueue.removeFirst();
+		}
+		if (maxQueue.size > 0 && maxQueue.first() == seq) {
+			maxQueue.removeFirst();
+		}
+		if (ordered != null) {
+			ordered.remove(value);
+		}
+	}
+
+	//
+	// quantiles
+	//
+
+	private double quantileValue(double q) {
+		int n = values.size;
+		if (n == 0) {
+			return Double.NaN;
+		}
+		double pos = q * (n - 1);
+		int lo = (int) Math.floor(pos);
+		int hi = (int) Math.ceil(pos);
+		double low = ordered.select(lo);
+		return hi == lo ? low : low + (pos - lo) * (ordered.select(hi) - low);
+	}
+
+	//
+	// statistics holders
+	//
+
+	private IntHolderImpl size = null;
+
+	private DoubleHolderImpl meanHolder = null;
+
+	private DoubleHolderImpl varianceHolder = null;
+
+	private DoubleHolderImpl minHolder = null;
+
+	private DoubleHolderImpl maxHolder = null;
+
+	private double[] quantileLevels = new double[0];
+
+	private DoubleHolderImpl[] quantileHolders = new DoubleHolderImpl[0];
+
+	/** set the holders that have been created to the current statistics */
+	protected void publish() {
+		if (values.size == 0) {
+			return;
+		}
+		if (size != null) {
+			size.set(values.size);
+		}
+		if (meanHolder != null) {
+			meanHolder.set(mean);
+		}
+		if (varianceHolder != null) {
+			varianceHolder.set(m2 / values.size);
+		}
+		if (minHolder != null) {
+			minHolder.set(valueAt(minQueue.first()));
+		}
+		if (maxHolder != null) {
+			maxHolder.set(valueAt(maxQueue.first()));
+		}
+		for (int i = 0; i < quantileHolders.length; i++) {
+			quantileHolders[i].set(quantileValue(quantileLevels[i]));
+		}
+	}
+
+	/** make a statistic holder keep this alive. */
+	private <H extends Consumer<Object>> H init(H holder) {
+		holder.accept(this);
+		return holder;
+	}
+
+	@Override
+	public synchronized IntHolder size() {
+		if (size == null) {
+			size = init(new IntHolderImpl());
+			publish();
+		}
+		return size;
+	}
+
+	@Override
+	public synchronized DoubleHolder mean() {
+		if (meanHolder == null) {
+			meanHolder = init(new DoubleHolderImpl());
+			publish();
+		}
+		return meanHolder;
+	}
+
+	@Override
+	public synchronized DoubleHolder variance() {
+		if (varianceHolder == null) {
+			varianceHolder = init(new DoubleHolderImpl());
+			publish();
+		}
+		return varianceHolder;
+	}
+
+	@Override
+	public synchronized DoubleHolder min() {
+		if (minHolder == null) {
+			minHolder = init(new DoubleHolderImpl());
+			publish();
+		}
+		return minHolder;
+	}
+
+	@Override
+	public synchronized DoubleHolder max() {
+		if (maxHolder == null) {
+			maxHolder = init(new DoubleHolderImpl());
+			publish();
+		}
+		return maxHolder;
+	}
+
+	@Override
+	public synchronized DoubleHolder quantile(double q) {
+		if (q < 0 || q > 1) {
+			throw new IllegalArgumentException("quantile must be in [0;1], got " + q);
+		}
+		for (int i = 0; i < quantileLevels.length; i++) {
+			if (quantileLevels[i] == q) {
+				return quantileHolders[i];
+			}
+		}
+		if (ordered == null) {
+			ordered = new OrderTree();
+			for (int i = 0; i < values.size; i++) {
+				ordered.add(values.get(i));
+			}
+		}
+		DoubleHolderImpl ret = init(new DoubleHolderImpl());
+		quantileLevels = Arrays.copyOf(quantileLevels, quantileLevels.length + 1);
+		quantileLevels[quantileLevels.length - 1] = q;
+		quantileHolders = Arrays.copyOf(quantileHolders, quantileHolders.length + 1);
+		quantileHolders[quantileHolders.length - 1] = ret;
+		publish();
+		return ret;
+	}
+
+	//
+	// consumer<Object>
+	//
+
+	private final transient LinkedList<Object> stored = new LinkedList<>();
+
+	@Override
+	public void accept(Object t) {
+		synchronized (stored) {
+			stored.add(t);
+		}
+	}
+
+}
@@ -4,6 +4,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Flow;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -16,7 +17,12 @@ import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import fr.lelouet.tools.holders.impl.ObjHolderSimple;
+import fr.lelouet.tools.holders.impl.flow.HolderPublisher;
+import fr.lelouet.tools.holders.impl.flow.HolderSubscriber;
+import fr.lelouet.tools.holders.interfaces.collections.DoubleListHolder;
+import fr.lelouet.tools.holders.interfaces.collections.IntListHolder;
 import fr.lelouet.tools.holders.interfaces.collections.ListHolder;
+import fr.lelouet.tools.holders.interfaces.collections.LongListHolder;
 import fr.lelouet.tools.holders.interfaces.collections.MapHolder;
 import fr.lelouet.tools.holders.interfaces.collections.SetHolder;
 import fr.lelouet.tools.holders.interfaces.numbers.BoolHolder;
@@ -28,9 +34,10 @@ import fr.lelouet.tools.holders.interfaces.numbers.LongHolder;
 /**
  * holder on a single object.
  * <p>
- * call to listeners should be synchronized in the implementation, especially
- * over the hold data so that no follower can be added while a new data is being
- * set.
+ * changes of the hold data should be synchronized in the implementation, so
+ * that no follower misses a new data, nor receives an older data after a newer
+ * one. The call to the listeners does not need to be done while keeping the
+ * holder locked.
  * </p>
  *
  * <p>
@@ -56,6 +63,38 @@ public interface ObjHolder<U> {
 	 */
 	public U get();
 
+	/**
+	 * @return true if an item has been set. Once true, stays true.
+	 */
+	public boolean isDataAvailable();
+
+	/**
+	 * @return true if the item of this will not change anymore. Following a
+	 *         frozen holder only delivers its item, and does not store the
+	 *         listener.
+	 */
+	public default boolean isFrozen() {
+		return false;
+	}
+
+	/**
+	 * get the internal object without blocking nor locking.
+	 *
+	 * @return the internal object, or null if it's not available yet.
+	 */
+	public U peek();
+
+	/**
+	 * get the internal object without blocking nor locking.
+	 *
+	 * @param defaultValue
+	 *          the value to return if the internal object is not available yet.
+	 * @return the internal object if available, or the default value.
+	 */
+	public default U getIfAvailable(U defaultValue) {
+		return isDataAvailable() ? peek() : defaultValue;
+	}
+
 	/**
 	 *
 	 * @param defaultValue
@@ -149,6 +188,56 @@ public interface ObjHolder<U> {
 	 */
 	public void unfollow(Consumer<U> listener);
 
+	/**
+	 * same as {@link #follow(Consumer, Consumer)}, but returns a subscription
+	 * that removes the listener directly - in O(1) for {@link ObjHolderSimple} -
+	 * instead of searching it with {@link #unfollow(Consumer)}. Two subscriptions of the same listener are
+	 * removed independently.
+	 *
+	 * @param listener
+	 *          the listener that will receive new values.
+	 * @param holder
+	 *          the holder that ensure the consumer is useful, or null.
+	 * @return a new subscription to cancel to remove the listener.
+	 */
+	public default Subscription subscribe(Consumer<U> listener, Consumer<Object> holder) {
+		Consumer<U> registered = listener::accept;
+		follow(registered, holder);
+		return new Subscription() {
+
+			private volatile boolean active = true;
+
+			@Override
+			public void cancel() {
+				if (active) {
+					active = false;
+					unfollow(registered);
+				}
+			}
+
+			@Override
+			public boolean isActive() {
+				return active;
+			}
+		};
+	}
+
+	/**
+	 * add a listener that receives the values until the returned subscription
+	 * is cancelled. if there is already data, the listener receives that data
+	 * before exiting this method. The listener is kept by the subscription, so
+	 * the subscription must be kept until cancelled.
+	 *
+	 * @param listener
+	 *          the listener that will receive new values.
+	 * @return a new subscription to cancel to remove the listener.
+	 */
+	public default Subscription subscribe(Consumer<U> listener) {
+		// the returned subscription keeps the listener
+		return subscribe(listener, o -> {
+		});
+	}
+
 	/**
 	 * create a new obsObjHolder that contains the transformation of the value
 	 * hold in this.
@@ -258,6 +347,39 @@ public interface ObjHolder<U> {
 		return mapList(u -> u == null ? Collections.emptyList() : mapper.apply(u));
 	}
 
+	/**
+	 * create a new object that mirrors the value hold in this, by transforming it
+	 * into an array of int.
+	 *
+	 * @param mapper
+	 *          the method to transform the value. The array returned must not be
+	 *          modified afterwards.
+	 * @return a new holder
+	 */
+	IntListHolder mapIntList(Function<U, int[]> mapper);
+
+	/**
+	 * create a new object that mirrors the value hold in this, by transforming it
+	 * into an array of long.
+	 *
+	 * @param mapper
+	 *          the method to transform the value. The array returned must not be
+	 *          modified afterwards.
+	 * @return a new holder
+	 */
+	LongListHolder mapLongList(Function<U, long[]> mapper);
+
+	/**
+	 * create a new object that mirrors the value hold in this, by transforming it
+	 * into an array of double.
+	 *
+	 * @param mapper
+	 *          the method to transform the value. The array returned must not be
+	 *          modified afterwards.
+	 * @return a new holder
+	 */
+	DoubleListHolder mapDoubleList(Function<U, double[]> mapper);
+
 	/**
 	 * create a new object that mirrors the value hold in this, by transforming it
 	 * into a boolean.
@@ -358,6 +480,17 @@ public interface ObjHolder<U> {
 	public <V> ObjHolder<V> reduce(Function<List<? extends U>, V> reducer, ObjHolder<? extends U> first,
 			ObjHolder<? extends U>... others);
 
+	/**
+	 * publish the values of this to reactive streams subscribers. Each
+	 * subscriber receives the last value hold when it requests, intermediate
+	 * values being dropped when it does not request fast enough.
+	 *
+	 * @return a new publisher on this.
+	 */
+	public default Flow.Publisher<U> toPublisher() {
+		return new HolderPublisher<>(this);
+	}
+
 	//
 	// static utility methods that require the specification of a constructor
 	//
@@ -512,24 +645,46 @@ public interface ObjHolder<U> {
 	 *          function to transform the type hold into the mapped type.
 	 * @return a new variable that holds the mapped type.
 	 */
-	@SuppressWarnings("unchecked")
 	public static <U, V, H extends RWObjHolder<V> & Consumer<Object>> H unPack(ObjHolder<U> target,
 			Supplier<H> creator, Function<U, ObjHolder<V>> unpacker) {
 		H ret = creator.get();
-		ObjHolder<V>[] storeHolder = new ObjHolder[1];
+		Subscription[] storeSubscription = new Subscription[1];
 		Consumer<V> cons = ret::set;
 		target.follow(u -> {
-			synchronized (storeHolder) {
-				if (storeHolder[0] != null) {
-					storeHolder[0].unfollow(cons);
+			synchronized (storeSubscription) {
+				if (storeSubscription[0] != null) {
+					storeSubscription[0].cancel();
+					storeSubscription[0] = null;
 				}
-				storeHolder[0] = unpacker.apply(u);
-				if (storeHolder[0] != null) {
-					storeHolder[0].follow(cons, ret);
+				ObjHolder<V> unpacked = unpacker.apply(u);
+				if (unpacked != null) {
+					storeSubscription[0] = unpacked.subscribe(cons, ret);
 				}
 			}
 		}, ret);
 		return ret;
 	}
 
+	/**
+	 * create a holder on the values produced by a publisher.
+	 *
+	 * @param <U>
+	 *          the type of the values published
+	 * @param <H>
+	 *          holder type returned
+	 * @param publisher
+	 *          the publisher to subscribe to
+	 * @param creator
+	 *          creation of the holder, typically the constructor
+	 * @return a new variable that holds the last value published.
+	 */
+	public static <U, H extends RWObjHolder<U> & Consumer<Object>> H fromPublisher(Flow.Publisher<? extends U> publisher,
+			Supplier<H> creator) {
+		H ret = creator.get();
+		HolderSubscriber<U> subscriber = new HolderSubscriber<>(ret);
+		ret.accept(subscriber);
+		publisher.subscribe(subscriber);
+		return ret;
+	}
+
 }
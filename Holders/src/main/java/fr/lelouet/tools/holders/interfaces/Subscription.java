@@ -0,0 +1,40 @@
+package fr.lelouet.tools.holders.interfaces;
+
+/**
+ * handle on a listener added to a holder, to remove it.
+ * <p>
+ * With {@link ObjHolder#subscribe(java.util.function.Consumer)}, the listener
+ * is kept until the subscription is cancelled, and does not depend on the
+ * garbage collector to be removed : an
+ * {@link fr.lelouet.tools.holders.impl.ObjHolderSimple} keeps it strongly,
+ * while the other implementations keep it through the subscription, that must
+ * then be kept until cancelled.
+ * </p>
+ * <p>
+ * With
+ * {@link ObjHolder#subscribe(java.util.function.Consumer, java.util.function.Consumer)},
+ * the listener is kept like with
+ * {@link ObjHolder#follow(java.util.function.Consumer, java.util.function.Consumer)}
+ * : only weakly by the holder followed when a holder is given, so it is also
+ * removed once that holder is garbage collected.
+ * </p>
+ */
+public interface Subscription extends AutoCloseable {
+
+	/**
+	 * stop sending values to the listener. Calling it several times has no
+	 * effect.
+	 */
+	public void cancel();
+
+	/**
+	 * @return true while the subscription was not cancelled.
+	 */
+	public boolean isActive();
+
+	@Override
+	public default void close() {
+		cancel();
+	}
+
+}
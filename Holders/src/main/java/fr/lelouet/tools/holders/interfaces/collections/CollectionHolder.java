@@ -3,13 +3,16 @@ package fr.lelouet.tools.holders.interfaces.collections;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.BiFunction;
 import java.util.function.BinaryOperator;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.IntBinaryOperator;
 import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
 import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
 import java.util.stream.Collectors;
 
 import fr.lelouet.tools.holders.interfaces.ObjHolder;
@@ -52,6 +55,31 @@ public interface CollectionHolder<U, C extends Collection<U>> extends ObjHolder<
 	 */
 	public CollectionHolder<U, C> filter(Predicate<? super U> predicate);
 
+	/**
+	 * create a filtered collection, testing the items in a fork join pool when
+	 * the collection is large. For expensive predicates.
+	 * <p>
+	 * The collections smaller than the threshold are filtered in the thread that
+	 * sets this. The larger ones are filtered asynchronously, and the order of a
+	 * list is kept. When this receives a new collection while the previous one
+	 * is being filtered, the previous filtering is cancelled and its result is
+	 * never set.
+	 * </p>
+	 *
+	 * @param predicate
+	 *          the predicate to select the items
+	 * @param pool
+	 *          the pool to test the items of large collections
+	 * @param threshold
+	 *          minimum size of a collection to be filtered in the pool
+	 * @return a new collection with same parameterized signature.
+	 */
+	public CollectionHolder<U, C> filterParallel(Predicate<? super U> predicate, ForkJoinPool pool, int threshold);
+
+	public default CollectionHolder<U, C> filterParallel(Predicate<? super U> predicate, int threshold) {
+		return filterParallel(predicate, ForkJoinPool.commonPool(), threshold);
+	}
+
 	/**
 	 * create a filtered collection on an observable predicate.
 	 * <p>
@@ -79,6 +107,27 @@ public interface CollectionHolder<U, C extends Collection<U>> extends ObjHolder<
 	 */
 	public <K> CollectionHolder<K, ?> mapItems(Function<U, K> mapper);
 
+	/**
+	 * map each item in this to a new item in another collection, mapping the
+	 * items in a fork join pool when the collection is large. For expensive
+	 * mappers. Same behaviour as
+	 * {@link #filterParallel(Predicate, ForkJoinPool, int)}
+	 *
+	 * @param mapper
+	 *          the mapping of each item
+	 * @param pool
+	 *          the pool to map the items of large collections
+	 * @param threshold
+	 *          minimum size of a collection to be mapped in the pool
+	 * @return a new collection that contains the mapping this data through the
+	 *         mapper
+	 */
+	public <K> CollectionHolder<K, ?> mapItemsParallel(Function<U, K> mapper, ForkJoinPool pool, int threshold);
+
+	public default <K> CollectionHolder<K, ?> mapItemsParallel(Function<U, K> mapper, int threshold) {
+		return mapItemsParallel(mapper, ForkJoinPool.commonPool(), threshold);
+	}
+
 	public default <K> MapHolder<K, List<U>> grouping(Function<U, K> indexer) {
 		return mapMap(coll -> coll.stream().collect(Collectors.groupingBy(indexer)));
 	}
@@ -189,6 +238,42 @@ public interface CollectionHolder<U, C extends Collection<U>> extends ObjHolder<
 		return mapInt(l -> l.stream().mapToInt(mapper).reduce(neutral, joiner));
 	}
 
+	/**
+	 * map each item in this to an int, in a holder backed by an int[].
+	 *
+	 * @param mapper
+	 *          converter. cannot be null
+	 * @return a new holder on the primitive values, in the iteration order of
+	 *         this collection.
+	 */
+	public default IntListHolder mapToInt(ToIntFunction<U> mapper) {
+		return mapIntList(l -> l.stream().mapToInt(mapper).toArray());
+	}
+
+	/**
+	 * map each item in this to a long, in a holder backed by a long[].
+	 *
+	 * @param mapper
+	 *          converter. cannot be null
+	 * @return a new holder on the primitive values, in the iteration order of
+	 *         this collection.
+	 */
+	public default LongListHolder mapToLong(ToLongFunction<U> mapper) {
+		return mapLongList(l -> l.stream().mapToLong(mapper).toArray());
+	}
+
+	/**
+	 * map each item in this to a double, in a holder backed by a double[].
+	 *
+	 * @param mapper
+	 *          converter. cannot be null
+	 * @return a new holder on the primitive values, in the iteration order of
+	 *         this collection.
+	 */
+	public default DoubleListHolder mapToDouble(ToDoubleFunction<U> mapper) {
+		return mapDoubleList(l -> l.stream().mapToDouble(mapper).toArray());
+	}
+
 	/**
 	 *
 	 * @return a set containing all the elements of this collection in a single
@@ -0,0 +1,131 @@
+package fr.lelouet.tools.holders.interfaces.collections;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoublePredicate;
+import java.util.function.DoubleUnaryOperator;
+import java.util.stream.Collectors;
+
+import fr.lelouet.tools.holders.interfaces.ObjHolder;
+import fr.lelouet.tools.holders.interfaces.numbers.BoolHolder;
+import fr.lelouet.tools.holders.interfaces.numbers.DoubleHolder;
+import fr.lelouet.tools.holders.interfaces.numbers.IntHolder;
+
+/**
+ * holder on a list of double, backed by a double[] instead of a
+ * List&lt;Double&gt; to avoid boxing the elements.
+ * <p>
+ * The array hold must not be modified once it has been set : the holder and
+ * its followers share that array.
+ * </p>
+ */
+public interface DoubleListHolder extends ObjHolder<double[]> {
+
+	@Override
+	default DoubleListHolder follow(Consumer<double[]> listener) {
+		ObjHolder.super.follow(listener);
+		return this;
+	}
+
+	/**
+	 * @return an internally cached variable constrained to the length of the
+	 *         array last time it received data.
+	 */
+	public IntHolder size();
+
+	public BoolHolder isEmpty();
+
+	/**
+	 * map the list to a specific index, or a default value in case the list is
+	 * too small.
+	 *
+	 * @param position
+	 *          index in the list if positive, from the end if negative.
+	 * @param oob
+	 *          default value to return when the list size is too small.
+	 * @return a new holder linked to the item at the given position.
+	 */
+	public default DoubleHolder pos(int position, double oob) {
+		return mapDouble(arr -> position < arr.length && -position <= arr.length
+				? arr[position >= 0 ? position : arr.length + position]
+						: oob);
+	}
+
+	/**
+	 * map each item of this to a new double.
+	 *
+	 * @param mapper
+	 *          function to apply on each element
+	 * @return a new holder
+	 */
+	public default DoubleListHolder mapItems(DoubleUnaryOperator mapper) {
+		return mapDoubleList(arr -> Arrays.stream(arr).map(mapper).toArray());
+	}
+
+	/**
+	 * @param predicate
+	 *          the predicate to select the items
+	 * @return a new holder on the items of this accepted by the predicate, in the
+	 *         same order.
+	 */
+	public default DoubleListHolder filter(DoublePredicate predicate) {
+		return mapDoubleList(arr -> Arrays.stream(arr).filter(predicate).toArray());
+	}
+
+	/**
+	 * join the items in this using a joiner.
+	 *
+	 * @param joiner
+	 *          joins items into one.
+	 * @param neutral
+	 *          the neutral value for joining. if no data is present, this value
+	 *          is returned.
+	 * @return a new holder containing the joining of the elements.
+	 */
+	public default DoubleHolder reduceDouble(DoubleBinaryOperator joiner, double neutral) {
+		return mapDouble(arr -> {
+			double ret = neutral;
+			for (double d : arr) {
+				ret = joiner.applyAsDouble(ret, d);
+			}
+			return ret;
+		});
+	}
+
+	public default DoubleHolder sum() {
+		return reduceDouble(Double::sum, 0.0);
+	}
+
+	/**
+	 * @return a new holder on the minimum value, or
+	 *         {@link Double#POSITIVE_INFINITY} when the list is empty.
+	 */
+	public default DoubleHolder min() {
+		return reduceDouble(Math::min, Double.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * @return a new holder on the maximum value, or
+	 *         {@link Double#NEGATIVE_INFINITY} when the list is empty.
+	 */
+	public default DoubleHolder max() {
+		return reduceDouble(Math::max, Double.NEGATIVE_INFINITY);
+	}
+
+	/**
+	 * @return a new holder on the average value, or {@link Double#NaN} when the
+	 *         list is empty.
+	 */
+	public default DoubleHolder average() {
+		return mapDouble(arr -> Arrays.stream(arr).average().orElse(Double.NaN));
+	}
+
+	/**
+	 * @return a new list holder on the boxed elements of this.
+	 */
+	public default ListHolder<Double> boxed() {
+		return mapList(arr -> Arrays.stream(arr).boxed().collect(Collectors.toList()));
+	}
+
+}
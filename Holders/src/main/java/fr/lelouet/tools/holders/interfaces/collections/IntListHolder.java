@@ -0,0 +1,141 @@
+package fr.lelouet.tools.holders.interfaces.collections;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntPredicate;
+import java.util.function.IntToDoubleFunction;
+import java.util.function.IntToLongFunction;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.Collectors;
+
+import fr.lelouet.tools.holders.interfaces.ObjHolder;
+import fr.lelouet.tools.holders.interfaces.numbers.BoolHolder;
+import fr.lelouet.tools.holders.interfaces.numbers.DoubleHolder;
+import fr.lelouet.tools.holders.interfaces.numbers.IntHolder;
+
+/**
+ * holder on a list of int, backed by an int[] instead of a List&lt;Integer&gt;
+ * to avoid boxing the elements.
+ * <p>
+ * The array hold must not be modified once it has been set : the holder and
+ * its followers share that array.
+ * </p>
+ */
+public interface IntListHolder extends ObjHolder<int[]> {
+
+	@Override
+	default IntListHolder follow(Consumer<int[]> listener) {
+		ObjHolder.super.follow(listener);
+		return this;
+	}
+
+	/**
+	 * @return an internally cached variable constrained to the length of the
+	 *         array last time it received data.
+	 */
+	public IntHolder size();
+
+	public BoolHolder isEmpty();
+
+	/**
+	 * map the list to a specific index, or a default value in case the list is
+	 * too small.
+	 *
+	 * @param position
+	 *          index in the list if positive, from the end if negative.
+	 * @param oob
+	 *          default value to return when the list size is too small.
+	 * @return a new holder linked to the item at the given position.
+	 */
+	public default IntHolder pos(int position, int oob) {
+		return mapInt(arr -> position < arr.length && -position <= arr.length
+				? arr[position >= 0 ? position : arr.length + position]
+						: oob);
+	}
+
+	/**
+	 * map each item of this to a new int.
+	 *
+	 * @param mapper
+	 *          function to apply on each element
+	 * @return a new holder
+	 */
+	public default IntListHolder mapItems(IntUnaryOperator mapper) {
+		return mapIntList(arr -> Arrays.stream(arr).map(mapper).toArray());
+	}
+
+	public default LongListHolder mapToLong(IntToLongFunction mapper) {
+		return mapLongList(arr -> Arrays.stream(arr).mapToLong(mapper).toArray());
+	}
+
+	public default DoubleListHolder mapToDouble(IntToDoubleFunction mapper) {
+		return mapDoubleList(arr -> Arrays.stream(arr).mapToDouble(mapper).toArray());
+	}
+
+	/**
+	 * @param predicate
+	 *          the predicate to select the items
+	 * @return a new holder on the items of this accepted by the predicate, in the
+	 *         same order.
+	 */
+	public default IntListHolder filter(IntPredicate predicate) {
+		return mapIntList(arr -> Arrays.stream(arr).filter(predicate).toArray());
+	}
+
+	/**
+	 * join the items in this using a joiner.
+	 *
+	 * @param joiner
+	 *          joins items into one.
+	 * @param neutral
+	 *          the neutral value for joining. if no data is present, this value
+	 *          is returned.
+	 * @return a new holder containing the joining of the elements.
+	 */
+	public default IntHolder reduceInt(IntBinaryOperator joiner, int neutral) {
+		return mapInt(arr -> {
+			int ret = neutral;
+			for (int i : arr) {
+				ret = joiner.applyAsInt(ret, i);
+			}
+			return ret;
+		});
+	}
+
+	public default IntHolder sum() {
+		return reduceInt(Integer::sum, 0);
+	}
+
+	/**
+	 * @return a new holder on the minimum value, or {@link Integer#MAX_VALUE}
+	 *         when the list is empty.
+	 */
+	public default IntHolder min() {
+		return reduceInt(Math::min, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * @return a new holder on the maximum value, or {@link Integer#MIN_VALUE}
+	 *         when the list is empty.
+	 */
+	public default IntHolder max() {
+		return reduceInt(Math::max, Integer.MIN_VALUE);
+	}
+
+	/**
+	 * @return a new holder on the average value, or {@link Double#NaN} when the
+	 *         list is empty.
+	 */
+	public default DoubleHolder average() {
+		return mapDouble(arr -> Arrays.stream(arr).average().orElse(Double.NaN));
+	}
+
+	/**
+	 * @return a new list holder on the boxed elements of this.
+	 */
+	public default ListHolder<Integer> boxed() {
+		return mapList(arr -> Arrays.stream(arr).boxed().collect(Collectors.toList()));
+	}
+
+}
@@ -1,6 +1,7 @@
 package fr.lelouet.tools.holders.interfaces.collections;
 
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
@@ -46,6 +47,14 @@ public interface ListHolder<U> extends CollectionHolder<U, List<U>> {
 	@Override
 	ListHolder<U> filter(Predicate<? super U> predicate);
 
+	@Override
+	ListHolder<U> filterParallel(Predicate<? super U> predicate, ForkJoinPool pool, int threshold);
+
+	@Override
+	default ListHolder<U> filterParallel(Predicate<? super U> predicate, int threshold) {
+		return filterParallel(predicate, ForkJoinPool.commonPool(), threshold);
+	}
+
 	@Override
 	ListHolder<U> filterWhen(Function<? super U, BoolHolder> filterer);
 
@@ -55,4 +64,12 @@ public interface ListHolder<U> extends CollectionHolder<U, List<U>> {
 	@Override
 	<K> ListHolder<K> mapItems(Function<U, K> mapper);
 
+	@Override
+	<K> ListHolder<K> mapItemsParallel(Function<U, K> mapper, ForkJoinPool pool, int threshold);
+
+	@Override
+	default <K> ListHolder<K> mapItemsParallel(Function<U, K> mapper, int threshold) {
+		return mapItemsParallel(mapper, ForkJoinPool.commonPool(), threshold);
+	}
+
 }
@@ -0,0 +1,137 @@
+package fr.lelouet.tools.holders.interfaces.collections;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.function.LongBinaryOperator;
+import java.util.function.LongPredicate;
+import java.util.function.LongToDoubleFunction;
+import java.util.function.LongUnaryOperator;
+import java.util.stream.Collectors;
+
+import fr.lelouet.tools.holders.interfaces.ObjHolder;
+import fr.lelouet.tools.holders.interfaces.numbers.BoolHolder;
+import fr.lelouet.tools.holders.interfaces.numbers.DoubleHolder;
+import fr.lelouet.tools.holders.interfaces.numbers.IntHolder;
+import fr.lelouet.tools.holders.interfaces.numbers.LongHolder;
+
+/**
+ * holder on a list of long, backed by a long[] instead of a List&lt;Long&gt; to
+ * avoid boxing the elements.
+ * <p>
+ * The array hold must not be modified once it has been set : the holder and
+ * its followers share that array.
+ * </p>
+ */
+public interface LongListHolder extends ObjHolder<long[]> {
+
+	@Override
+	default LongListHolder follow(Consumer<long[]> listener) {
+		ObjHolder.super.follow(listener);
+		return this;
+	}
+
+	/**
+	 * @return an internally cached variable constrained to the length of the
+	 *         array last time it received data.
+	 */
+	public IntHolder size();
+
+	public BoolHolder isEmpty();
+
+	/**
+	 * map the list to a specific index, or a default value in case the list is
+	 * too small.
+	 *
+	 * @param position
+	 *          index in the list if positive, from the end if negative.
+	 * @param oob
+	 *          default value to return when the list size is too small.
+	 * @return a new holder linked to the item at the given position.
+	 */
+	public default LongHolder pos(int position, long oob) {
+		return mapLong(arr -> position < arr.length && -position <= arr.length
+				? arr[position >= 0 ? position : arr.length + position]
+						: oob);
+	}
+
+	/**
+	 * map each item of this to a new long.
+	 *
+	 * @param mapper
+	 *          function to apply on each element
+	 * @return a new holder
+	 */
+	public default LongListHolder mapItems(LongUnaryOperator mapper) {
+		return mapLongList(arr -> Arrays.stream(arr).map(mapper).toArray());
+	}
+
+	public default DoubleListHolder mapToDouble(LongToDoubleFunction mapper) {
+		return mapDoubleList(arr -> Arrays.stream(arr).mapToDouble(mapper).toArray());
+	}
+
+	/**
+	 * @param predicate
+	 *          the predicate to select the items
+	 * @return a new holder on the items of this accepted by the predicate, in the
+	 *         same order.
+	 */
+	public default LongListHolder filter(LongPredicate predicate) {
+		return mapLongList(arr -> Arrays.stream(arr).filter(predicate).toArray());
+	}
+
+	/**
+	 * join the items in this using a joiner.
+	 *
+	 * @param joiner
+	 *          joins items into one.
+	 * @param neutral
+	 *          the neutral value for joining. if no data is present, this value
+	 *          is returned.
+	 * @return a new holder containing the joining of the elements.
+	 */
+	public default LongHolder reduceLong(LongBinaryOperator joiner, long neutral) {
+		return mapLong(arr -> {
+			long ret = neutral;
+			for (long l : arr) {
+				ret = joiner.applyAsLong(ret, l);
+			}
+			return ret;
+		});
+	}
+
+	public default LongHolder sum() {
+		return reduceLong(Long::sum, 0l);
+	}
+
+	/**
+	 * @return a new holder on the minimum value, or {@link Long#MAX_VALUE} when
+	 *         the list is empty.
+	 */
+	public default LongHolder min() {
+		return reduceLong(Math::min, Long.MAX_VALUE);
+	}
+
+	/**
+	 * @return a new holder on the maximum value, or {@link Long#MIN_VALUE} when
+	 *         the list is empty.
+	 */
+	public default LongHolder max() {
+		return reduceLong(Math::max, Long.MIN_VALUE);
+	}
+
+	/**
+	 * @return a new holder on the average value, or {@link Double#NaN} when the
+	 *         list is empty.
+	 */
+	public default DoubleHolder average() {
+		return mapDouble(arr -> Arrays.stream(arr).average().orElse(Double.NaN));
+	}
+
+	/**
+	 * @return a new list holder on the boxed elements of this.
+	 */
+	public default ListHolder<Long> boxed() {
+		return mapList(arr -> Arrays.stream(arr).boxed().collect(Collectors.toList()));
+	}
+
+}
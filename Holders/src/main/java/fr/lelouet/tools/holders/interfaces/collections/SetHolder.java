@@ -1,6 +1,7 @@
 package fr.lelouet.tools.holders.interfaces.collections;
 
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
@@ -40,6 +41,14 @@ public interface SetHolder<U> extends CollectionHolder<U, Set<U>> {
 	@Override
 	SetHolder<U> filter(Predicate<? super U> predicate);
 
+	@Override
+	SetHolder<U> filterParallel(Predicate<? super U> predicate, ForkJoinPool pool, int threshold);
+
+	@Override
+	default SetHolder<U> filterParallel(Predicate<? super U> predicate, int threshold) {
+		return filterParallel(predicate, ForkJoinPool.commonPool(), threshold);
+	}
+
 	@Override
 	SetHolder<U> filterWhen(Function<? super U, BoolHolder> filterer);
 
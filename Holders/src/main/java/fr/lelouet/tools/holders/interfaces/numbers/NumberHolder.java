@@ -1,5 +1,6 @@
 package fr.lelouet.tools.holders.interfaces.numbers;
 
+import java.time.Duration;
 import java.util.function.BiPredicate;
 import java.util.function.Consumer;
 
@@ -175,4 +176,29 @@ extends ObjHolder<Contained> {
 		return test(this::eq, other);
 	}
 
+	//
+	// windowed statistics
+	//
+
+	/**
+	 * create statistics over the last values received by this.
+	 *
+	 * @param count
+	 *          the maximum number of values kept in the window. Must be
+	 *          positive.
+	 * @return a new window.
+	 */
+	public NumberWindow window(int count);
+
+	/**
+	 * create statistics over the values received by this in a recent period.
+	 * The values that are too old are only removed when a new value is
+	 * received.
+	 *
+	 * @param duration
+	 *          the maximum age of the values kept in the window.
+	 * @return a new window.
+	 */
+	public NumberWindow window(Duration duration);
+
 }
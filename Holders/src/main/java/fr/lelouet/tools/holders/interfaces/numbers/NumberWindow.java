@@ -0,0 +1,56 @@
+package fr.lelouet.tools.holders.interfaces.numbers;
+
+/**
+ * statistics over the last values received by a {@link NumberHolder}.
+ * <p>
+ * The window only contains the values received after its creation (including
+ * the value already hold by the number holder, if any). Each statistic is
+ * provided as a holder, created on first call and cached, which is updated
+ * every time the window receives a value.
+ * </p>
+ */
+public interface NumberWindow {
+
+	/**
+	 * @return an internally cached variable on the number of values in the
+	 *         window.
+	 */
+	public IntHolder size();
+
+	/**
+	 * @return an internally cached variable on the arithmetic mean of the
+	 *         window.
+	 */
+	public DoubleHolder mean();
+
+	/**
+	 * @return an internally cached variable on the population variance of the
+	 *         window.
+	 */
+	public DoubleHolder variance();
+
+	/**
+	 * @return an internally cached variable on the minimum value of the window.
+	 */
+	public DoubleHolder min();
+
+	/**
+	 * @return an internally cached variable on the maximum value of the window.
+	 */
+	public DoubleHolder max();
+
+	/**
+	 * get a quantile of the window. The value is interpolated between the two
+	 * closest ranks.
+	 *
+	 * @param q
+	 *          the quantile level, between 0 and 1. eg 0.5 for the median
+	 * @return an internally cached variable on the q-quantile of the window.
+	 */
+	public DoubleHolder quantile(double q);
+
+	public default DoubleHolder median() {
+		return quantile(0.5);
+	}
+
+}
@@ -0,0 +1,258 @@
+package fr.lelouet.tools.holders.persist;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * persistent store of the last value of each key, eg the last response
+ * fetched for each URI of an URIBasedCache, to serve it after a restart.
+ * <p>
+ * The values are appended to a single segment file, with the record format of
+ * the {@link HolderJournal}. Only the position of the last record of each key
+ * is kept in memory ; a value is read from the file when it's requested. When
+ * the records that were overwritten are more than half the file, the file is
+ * compacted : the live records are copied to a new file, that replaces the
+ * segment.
+ * </p>
+ * <p>
+ * The directory is typically a cache directory of the application, eg
+ * {@code XDGApp.cacheFile("uris").toPath()}.
+ * </p>
+ *
+ * @param <V>
+ *          the type of the values
+ */
+public class DiskTier<V> implements Closeable {
+
+	public static final String SEGMENT_FILE = "segment.log";
+
+	/** size of the segment under which it is never compacted */
+	public static final long COMPACT_MIN = 64 * 1024;
+
+	private final Path directory;
+
+	private final HolderCodec<V> codec;
+
+	private FileChannel channel;
+
+	/** position of the last record of each key */
+	private final HashMap<String, Long> index = new HashMap<>();
+
+	/** position after the last record */
+	private long end;
+
+	/** bytes of the records that were overwritten */
+	private long garbage = 0;
+
+	private boolean closed = false;
+
+	/**
+	 * open a store in a directory, and index the values it contains.
+	 *
+	 * @param directory
+	 *          the directory to store the segment into. created if missing.
+	 * @param codec
+	 *          translation of the values
+	 * @throws IOException
+	 *           if the segment can't be read or created.
+	 */
+	public DiskTier(Path directory, HolderCodec<V> codec) throws IOException {
+		this.directory = directory;
+		this.codec = codec;
+		Files.createDirectories(directory);
+		channel = FileChannel.open(directory.resolve(SEGMENT_FILE), StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		end = index();
+		// remove an incomplete record
+		channel.truncate(end);
+	}
+
+	/**
+	 * find the position of the last record of each key.
+	 *
+	 * @return the position after the last complete record.
+	 */
+	private long index() throws IOException {
+		long fileSize = channel.size();
+		long pos = 0;
+		while (pos + 4 <= fileSize) {
+			int length = recordLength(pos);
+			if (length <= 0 || pos + 4 + length > fileSize) {
+				break;
+			}
+			ByteBuffer record = ByteBuffer.allocate(length);
+			readFully(record, pos + 4);
+			String key;
+			try {
+				key = HolderJournal.decodeName(record.array());
+			} catch (IOException e) {
+				// last record was not written completely
+				break;
+			}
+			Long previous = index.put(key, pos);
+			if (previous != null) {
+				garbage += 4 + recordLength(previous);
+			}
+			pos += 4 + length;
+		}
+		return pos;
+	}
+
+	private int recordLength(long pos) throws IOException {
+		ByteBuffer length = ByteBuffer.allocate(4);
+		readFully(length, pos);
+		return length.getInt(0);
+	}
+
+	private void readFully(ByteBuffer buffer, long pos) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, pos + buffer.position()) < 0) {
+				throw new IOException("unexpected end of segment at " + pos);
+			}
+		}
+	}
+
+	/** @return the record at a position */
+	private byte[] readRecord(long pos) throws IOException {
+		ByteBuffer record = ByteBuffer.allocate(recordLength(pos));
+		readFully(record, pos + 4);
+		return record.array();
+	}
+
+	/**
+	 * @return the last value stored for a key, or null if none.
+	 */
+	public synchronized V get(String key) {
+		Long pos = closed ? null : index.get(key);
+		if (pos == null) {
+			return null;
+		}
+		try {
+			return HolderJournal.decode(readRecord(pos), codec);
+		} catch (IOException e) {
+			throw new UnsupportedOperationException("catch this", e);
+		}
+	}
+
+	/**
+	 * @return true if a value is stored for the key
+	 */
+	public synchronized boolean contains(String key) {
+		return index.containsKey(key);
+	}
+
+	/**
+	 * store the value of a key, replacing the previous one.
+	 */
+	public synchronized void put(String key, V value) {
+		if (closed) {
+			return;
+		}
+		byte[] record = HolderJournal.encode(key, value, codec);
+		ByteBuffer buffer = ByteBuffer.allocate(4 + record.length);
+		buffer.putInt(record.length).put(record).flip();
+		try {
+			long pos = end;
+			while (buffer.hasRemaining()) {
+				channel.write(buffer, pos + buffer.position());
+			}
+			end += 4 + record.length;
+			Long previous = index.put(key, pos);
+			if (previous != null) {
+				garbage += 4 + recordLength(previous);
+			}
+			if (end > COMPACT_MIN && garbage * 2 > end) {
+				compact();
+			}
+		} catch (IOException e) {
+			throw new UnsupportedOperationException("catch this", e);
+		}
+	}
+
+	/** @return the number of keys stored */
+	public synchronized int size() {
+		return index.size();
+	}
+
+	/**
+	 * @return the size of the segment, in bytes
+	 */
+	public synchronized long length() {
+		return end;
+	}
+
+	/**
+	 * copy the last record of each key in a new segment, that replaces the
+	 * current one. If the new segment can't replace the current one, the current
+	 * one is kept.
+	 *
+	 * @throws IOException
+	 */
+	public synchronized void compact() throws IOException {
+		if (closed) {
+			return;
+		}
+		Path tmp = directory.resolve(SEGMENT_FILE + ".tmp");
+		HashMap<String, Long> moved = new HashMap<>();
+		long written = 0;
+		try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			for (Map.Entry<String, Long> e : index.entrySet()) {
+				byte[] record = readRecord(e.getValue());
+				ByteBuffer buffer = ByteBuffer.allocate(4 + record.length);
+				buffer.putInt(record.length).put(record).flip();
+				while (buffer.hasRemaining()) {
+					out.write(buffer);
+				}
+				moved.put(e.getKey(), written);
+				written += 4 + record.length;
+			}
+			out.force(true);
+		}
+		channel.close();
+		Path segment = directory.resolve(SEGMENT_FILE);
+		boolean replaced = false;
+		try {
+			Files.move(tmp, segment, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			replaced = true;
+		} finally {
+			// the previous segment is kept if it was not replaced
+			channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			if (replaced) {
+				index.putAll(moved);
+				end = written;
+				garbage = 0;
+			}
+		}
+	}
+
+	/**
+	 * force the segment to the storage device
+	 *
+	 * @throws IOException
+	 */
+	public synchronized void flush() throws IOException {
+		if (!closed) {
+			channel.force(false);
+		}
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		channel.force(false);
+		channel.close();
+	}
+
+}
@@ -0,0 +1,124 @@
+package fr.lelouet.tools.holders.persist;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * translation of a (non null) value of a holder into bytes, and back.
+ *
+ * @param <U>
+ *          the type of the values
+ */
+public interface HolderCodec<U> {
+
+	public void write(U value, DataOutput out) throws IOException;
+
+	public U read(DataInput in) throws IOException;
+
+	public static final HolderCodec<String> STRING = new HolderCodec<>() {
+
+		@Override
+		public void write(String value, DataOutput out) throws IOException {
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+
+		@Override
+		public String read(DataInput in) throws IOException {
+			byte[] bytes = new byte[in.readInt()];
+			in.readFully(bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+	};
+
+	public static final HolderCodec<Integer> INT = new HolderCodec<>() {
+
+		@Override
+		public void write(Integer value, DataOutput out) throws IOException {
+			out.writeInt(value);
+		}
+
+		@Override
+		public Integer read(DataInput in) throws IOException {
+			return in.readInt();
+		}
+	};
+
+	public static final HolderCodec<Long> LONG = new HolderCodec<>() {
+
+		@Override
+		public void write(Long value, DataOutput out) throws IOException {
+			out.writeLong(value);
+		}
+
+		@Override
+		public Long read(DataInput in) throws IOException {
+			return in.readLong();
+		}
+	};
+
+	public static final HolderCodec<Double> DOUBLE = new HolderCodec<>() {
+
+		@Override
+		public void write(Double value, DataOutput out) throws IOException {
+			out.writeDouble(value);
+		}
+
+		@Override
+		public Double read(DataInput in) throws IOException {
+			return in.readDouble();
+		}
+	};
+
+	public static final HolderCodec<Boolean> BOOL = new HolderCodec<>() {
+
+		@Override
+		public void write(Boolean value, DataOutput out) throws IOException {
+			out.writeBoolean(value);
+		}
+
+		@Override
+		public Boolean read(DataInput in) throws IOException {
+			return in.readBoolean();
+		}
+	};
+
+	/**
+	 * @return a codec that uses java serialization.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <U extends Serializable> HolderCodec<U> serializable() {
+		return new HolderCodec<>() {
+
+			@Override
+			public void write(U value, DataOutput out) throws IOException {
+				ByteArrayOutputStream bos = new ByteArrayOutputStream();
+				try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+					oos.writeObject(value);
+				}
+				out.writeInt(bos.size());
+				out.write(bos.toByteArray());
+			}
+
+			@Override
+			public U read(DataInput in) throws IOException {
+				byte[] bytes = new byte[in.readInt()];
+				in.readFully(bytes);
+				try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+					return (U) ois.readObject();
+				} catch (ClassNotFoundException e) {
+					throw new IOException(e);
+				}
+			}
+		};
+	}
+
+}
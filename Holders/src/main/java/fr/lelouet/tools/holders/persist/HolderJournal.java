@@ -0,0 +1,472 @@
+package fr.lelouet.tools.holders.persist;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import fr.lelouet.tools.holders.interfaces.RWObjHolder;
+import fr.lelouet.tools.holders.interfaces.Subscription;
+
+/**
+ * persistence of the values of named holders in a directory, to restore them
+ * after a restart.
+ * <p>
+ * Every value set in a registered holder is appended to a journal file. A
+ * snapshot writes the last value of each name in a snapshot file, then empties
+ * the journal. On opening, the snapshot then the journal are read, and the last
+ * value for each name is set in the holder registered with that name. Holders
+ * should thus be registered before their live sources are started.
+ * </p>
+ * <p>
+ * Each record of the files is the length of the record, the name, and the
+ * value written by the codec. A record that was not completely written when
+ * the process stopped is ignored.
+ * </p>
+ * <p>
+ * The journal can be written through a memory mapped buffer instead of a file
+ * channel, which avoids a system call per value. The file is then grown by
+ * chunks, with zeroes after the last record.
+ * </p>
+ */
+public class HolderJournal implements Closeable {
+
+	private static final Logger logger = LoggerFactory.getLogger(HolderJournal.class);
+
+	public static final String JOURNAL_FILE = "journal.log";
+
+	public static final String SNAPSHOT_FILE = "snapshot.bin";
+
+	/** size of the first mapping of a memory mapped journal */
+	public static final int MAPPED_CHUNK = 1024 * 1024;
+
+	private final Path directory;
+
+	private final JournalWriter journal;
+
+	/** records read on opening, for the names that are not registered yet */
+	private final HashMap<String, byte[]> restored = new HashMap<>();
+
+	/** last record of each name, written by the snapshots */
+	private final LinkedHashMap<String, byte[]> current = new LinkedHashMap<>();
+
+	/**
+	 * subscription to each registered holder. null while the holder is being
+	 * registered
+	 */
+	private final LinkedHashMap<String, Subscription> subscriptions = new LinkedHashMap<>();
+
+	private boolean closed = false;
+
+	/**
+	 * open a journal in a directory, and read the values it contains.
+	 *
+	 * @param directory
+	 *          the directory to store the files into. created if missing.
+	 * @param mapped
+	 *          true to write the journal through a memory mapped buffer.
+	 * @throws IOException
+	 *           if the files can't be read or created.
+	 */
+	public HolderJournal(Path directory, boolean mapped) throws IOException {
+		this.directory = directory;
+		Files.createDirectories(directory);
+		readRecords(directory.resolve(SNAPSHOT_FILE), restored);
+		Path journalPath = directory.resolve(JOURNAL_FILE);
+		long end = readRecords(journalPath, restored);
+		journal = mapped ? new MappedWriter(journalPath, end) : new ChannelWriter(journalPath, end);
+		// values of the holders not registered yet are kept by the snapshots
+		current.putAll(restored);
+	}
+
+	public HolderJournal(Path directory) throws IOException {
+		this(directory, false);
+	}
+
+	//
+	// registration
+	//
+
+	/**
+	 * restore the value of a holder, if present, and journal its new values.
+	 *
+	 * @param <U>
+	 *          the type of the values hold
+	 * @param name
+	 *          unique name of the holder in this journal
+	 * @param holder
+	 *          the holder to restore and journal
+	 * @param codec
+	 *          translation of the values
+	 * @return holder
+	 */
+	public <U, H extends RWObjHolder<U>> H register(String name, H holder, HolderCodec<U> codec) {
+		Consumer<U> listener = value -> append(name, encode(name, value, codec));
+		byte[] record;
+		synchronized (this) {
+			if (closed) {
+				throw new IllegalStateException("journal is closed");
+			}
+			if (subscriptions.containsKey(name)) {
+				throw new IllegalArgumentException("name already registered : " + name);
+			}
+			subscriptions.put(name, null);
+			record = restored.remove(name);
+		}
+		if (record != null) {
+			holder.set(decode(record, codec));
+		}
+		Subscription sub = holder.subscribe(listener);
+		synchronized (this) {
+			if (!closed) {
+				subscriptions.put(name, sub);
+				return holder;
+			}
+		}
+		sub.cancel();
+		return holder;
+	}
+
+	/**
+	 * @return the names of the values read on opening, that have no holder
+	 *         registered yet.
+	 */
+	public synchronized List<String> unregistered() {
+		return new ArrayList<>(restored.keySet());
+	}
+
+	//
+	// records
+	//
+
+	protected static <U> byte[] encode(String name, U value, HolderCodec<U> codec) {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bos)) {
+			out.writeUTF(name);
+			out.writeBoolean(value == null);
+			if (value != null) {
+				codec.write(value, out);
+			}
+		} catch (IOException e) {
+			throw new UnsupportedOperationException("catch this", e);
+		}
+		return bos.toByteArray();
+	}
+
+	protected static <U> U decode(byte[] record, HolderCodec<U> codec) {
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(record))) {
+			in.readUTF();
+			if (in.readBoolean()) {
+				return null;
+			}
+			return codec.read(in);
+		} catch (IOException e) {
+			throw new UnsupportedOperationException("catch this", e);
+		}
+	}
+
+	/** @return the name of a record */
+	protected static String decodeName(byte[] record) throws IOException {
+		return new DataInputStream(new ByteArrayInputStream(record)).readUTF();
+	}
+
+	/**
+	 * read the records of a file into a map.
+	 *
+	 * @return the position after the last complete record.
+	 */
+	protected static long readRecords(Path path, Map<String, byte[]> into) throws IOException {
+		if (!Files.exists(path)) {
+			return 0;
+		}
+		long fileSize = Files.size(path);
+		long pos = 0;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+			while (true) {
+				int length;
+				byte[] record;
+				String name;
+				try {
+					length = in.readInt();
+					if (length <= 0 || pos + 4 + length > fileSize) {
+						break;
+					}
+					record = new byte[length];
+					in.readFully(record);
+					name = decodeName(record);
+				} catch (EOFException | UTFDataFormatException e) {
+					// last record was not written completely
+					break;
+				}
+				into.put(name, record);
+				pos += 4 + length;
+			}
+		}
+		return pos;
+	}
+
+	protected synchronized void append(String name, byte[] record) {
+		if (closed || Arrays.equals(current.get(name), record)) {
+			return;
+		}
+		current.put(name, record);
+		try {
+			journal.append(record);
+		} catch (IOException e) {
+			throw new UnsupportedOperationException("catch this", e);
+		}
+	}
+
+	//
+	// snapshots
+	//
+
+	/**
+	 * write the last value of each name in the snapshot file, then empty the
+	 * journal. The snapshot is first written in a temporary file, so a crash
+	 * during the snapshot keeps the previous snapshot and the journal.
+	 *
+	 * @throws IOException
+	 */
+	public synchronized void snapshot() throws IOException {
+		if (closed) {
+			return;
+		}
+		int size = 0;
+		for (byte[] record : current.values()) {
+			size += 4 + record.length;
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(size);
+		for (byte[] record : current.values()) {
+			buffer.putInt(record.length).put(record);
+		}
+		buffer.flip();
+		Path tmp = directory.resolve(SNAPSHOT_FILE + ".tmp");
+		try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			channel.force(true);
+		}
+		Files.move(tmp, directory.resolve(SNAPSHOT_FILE), StandardCopyOption.ATOMIC_MOVE,
+				StandardCopyOption.REPLACE_EXISTING);
+		journal.reset();
+	}
+
+	/**
+	 * schedule periodic snapshots. A snapshot that fails is logged, and the next
+	 * ones are still made.
+	 *
+	 * @param exec
+	 *          the executor to run the snapshots
+	 * @param period
+	 *          delay between two snapshots
+	 * @return the future of the snapshots, to cancel them.
+	 */
+	public ScheduledFuture<?> snapshotEvery(ScheduledExecutorService exec, Duration period) {
+		return exec.scheduleAtFixedRate(() -> {
+			try {
+				snapshot();
+			} catch (IOException | RuntimeException e) {
+				// an exception would cancel the next snapshots
+				logger.warn("while making snapshot of " + directory, e);
+			}
+		}, period.toMillis(), period.toMillis(), TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * force the journal to the storage device
+	 *
+	 * @throws IOException
+	 */
+	public synchronized void flush() throws IOException {
+		if (!closed) {
+			journal.force();
+		}
+	}
+
+	/**
+	 * stop following the holders and close the journal. No snapshot is made.
+	 */
+	@Override
+	public void close() throws IOException {
+		List<Subscription> toCancel;
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			toCancel = new ArrayList<>(subscriptions.values());
+			subscriptions.clear();
+			journal.close();
+		}
+		for (Subscription sub : toCancel) {
+			if (sub != null) {
+				sub.cancel();
+			}
+		}
+	}
+
+	//
+	// writers
+	//
+
+	private static interface JournalWriter {
+
+		public void append(byte[] record) throws IOException;
+
+		/** remove all the records */
+		public void reset() throws IOException;
+
+		public void force() throws IOException;
+
+		public void close() throws IOException;
+	}
+
+	/** writes the records with a file channel */
+	private static class ChannelWriter implements JournalWriter {
+
+		private final FileChannel channel;
+
+		public ChannelWriter(Path path, long end) throws IOException {
+			channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			// remove an incomplete record, or the zeroes of a mapped journal
+			channel.truncate(end);
+			channel.position(end);
+		}
+
+		@Override
+		public void append(byte[] record) throws IOException {
+			ByteBuffer buffer = ByteBuffer.allocate(4 + record.length);
+			buffer.putInt(record.length).put(record).flip();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		}
+
+		@Override
+		public void reset() throws IOException {
+			channel.truncate(0);
+			channel.position(0);
+		}
+
+		@Override
+		public void force() throws IOException {
+			channel.force(false);
+		}
+
+		@Override
+		public void close() throws IOException {
+			channel.force(false);
+			channel.close();
+		}
+	}
+
+	/**
+	 * writes the records in a memory mapped buffer. After the last record, a
+	 * zero length marks the end of the journal. The length of a record is
+	 * written last, so a record interrupted while written is not read.
+	 */
+	static class MappedWriter implements JournalWriter {
+
+		/** access to the lengths with memory ordering, in the order of DataInput */
+		private static final VarHandle INTS = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+
+		private final FileChannel channel;
+
+		private MappedByteBuffer buffer;
+
+		private int position;
+
+		public MappedWriter(Path path, long end) throws IOException {
+			channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			position = (int) end;
+			map(Math.max(MAPPED_CHUNK, channel.size()));
+			buffer.putInt(position, 0);
+		}
+
+		private void map(long capacity) throws IOException {
+			if (capacity > Integer.MAX_VALUE) {
+				throw new IOException("mapped journal can't grow over " + Integer.MAX_VALUE + " bytes");
+			}
+			buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+		}
+
+		@Override
+		public void append(byte[] record) throws IOException {
+			write(record);
+			publish(record.length);
+		}
+
+		/**
+		 * write a record and the end mark after it, but not its length : the
+		 * record is not part of the journal yet.
+		 */
+		void write(byte[] record) throws IOException {
+			long needed = position + 4L + record.length + 4;
+			if (needed > buffer.capacity()) {
+				buffer.force();
+				map(Math.max(needed, 2L * buffer.capacity()));
+			}
+			ByteBuffer dup = buffer.duplicate();
+			dup.position(position + 4);
+			dup.put(record);
+			buffer.putInt(position + 4 + record.length, 0);
+		}
+
+		/** write the length of the record written, after its content */
+		void publish(int length) {
+			INTS.setRelease(buffer, position, length);
+			position += 4 + length;
+		}
+
+		@Override
+		public void reset() throws IOException {
+			position = 0;
+			buffer.putInt(0, 0);
+			buffer.force();
+		}
+
+		@Override
+		public void force() throws IOException {
+			buffer.force();
+		}
+
+		@Override
+		public void close() throws IOException {
+			buffer.force();
+			channel.close();
+		}
+	}
+
+}
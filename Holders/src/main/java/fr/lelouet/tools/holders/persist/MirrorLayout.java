@@ -0,0 +1,104 @@
+package fr.lelouet.tools.holders.persist;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * layout of a mirror file, shared by the {@link MirrorWriter} and the
+ * {@link MirrorReader}.
+ * <p>
+ * The file starts with a header of {@link #SLOT_SIZE} bytes : the magic
+ * number, the number of slots, then the number of slots allocated on 8 bytes.
+ * Each slot is then {@link #SLOT_SIZE} bytes,
+ * so that two slots never share a cache line :
+ * <ul>
+ * <li>the version of the slot, on 8 bytes. 0 until the first value is written,
+ * odd while the value is being written, even when the value can be read.</li>
+ * <li>the value, on 8 bytes</li>
+ * <li>the type of the value, on 1 byte</li>
+ * <li>the length of the name, on 1 byte, then the name in UTF-8</li>
+ * </ul>
+ * The type and the name are written before the number of slots allocated is
+ * increased to include the slot, and never modified after. A slot is thus
+ * allocated even if no value was written in it.
+ * </p>
+ */
+class MirrorLayout {
+
+	static final int MAGIC = 0x484d4952;
+
+	static final int SLOT_SIZE = 64;
+
+	/** offset in the header of the number of slots allocated */
+	static final int ALLOCATED_OFFSET = 8;
+
+	static final int VERSION_OFFSET = 0;
+
+	static final int VALUE_OFFSET = 8;
+
+	static final int TYPE_OFFSET = 16;
+
+	static final int NAME_OFFSET = 17;
+
+	static final int MAX_NAME_LENGTH = SLOT_SIZE - NAME_OFFSET - 1;
+
+	static final byte TYPE_INT = 1;
+
+	static final byte TYPE_LONG = 2;
+
+	static final byte TYPE_FLOAT = 3;
+
+	static final byte TYPE_DOUBLE = 4;
+
+	static final byte TYPE_BOOL = 5;
+
+	/** access to the longs of the mapped buffer with memory ordering */
+	static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+	static int slotOffset(int slot) {
+		return SLOT_SIZE * (slot + 1);
+	}
+
+	static long fileSize(int slots) {
+		return (long) SLOT_SIZE * (slots + 1);
+	}
+
+	static byte[] nameBytes(String name) {
+		byte[] ret = name.getBytes(StandardCharsets.UTF_8);
+		if (ret.length == 0 || ret.length > MAX_NAME_LENGTH) {
+			throw new IllegalArgumentException(
+					"mirrored name must have 1 to " + MAX_NAME_LENGTH + " bytes in UTF-8, got " + name);
+		}
+		return ret;
+	}
+
+	static String readName(ByteBuffer buffer, int slot) {
+		int offset = slotOffset(slot) + NAME_OFFSET;
+		byte[] bytes = new byte[Byte.toUnsignedInt(buffer.get(offset))];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = buffer.get(offset + 1 + i);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	static String typeName(byte type) {
+		switch (type) {
+		case TYPE_INT:
+			return "int";
+		case TYPE_LONG:
+			return "long";
+		case TYPE_FLOAT:
+			return "float";
+		case TYPE_DOUBLE:
+			return "double";
+		case TYPE_BOOL:
+			return "bool";
+		default:
+			return "unknown type " + type;
+		}
+	}
+
+}
@@ -0,0 +1,281 @@
+package fr.lelouet.tools.holders.persist;
+
+import static fr.lelouet.tools.holders.persist.MirrorLayout.*;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import fr.lelouet.tools.holders.impl.numbers.BoolHolderImpl;
+import fr.lelouet.tools.holders.impl.numbers.DoubleHolderImpl;
+import fr.lelouet.tools.holders.impl.numbers.FloatHolderImpl;
+import fr.lelouet.tools.holders.impl.numbers.IntHolderImpl;
+import fr.lelouet.tools.holders.impl.numbers.LongHolderImpl;
+import fr.lelouet.tools.holders.interfaces.RWObjHolder;
+import fr.lelouet.tools.holders.interfaces.numbers.BoolHolder;
+import fr.lelouet.tools.holders.interfaces.numbers.DoubleHolder;
+import fr.lelouet.tools.holders.interfaces.numbers.FloatHolder;
+import fr.lelouet.tools.holders.interfaces.numbers.IntHolder;
+import fr.lelouet.tools.holders.interfaces.numbers.LongHolder;
+
+/**
+ * reads the values published by a {@link MirrorWriter} in another process, and
+ * exposes them as local holders.
+ * <p>
+ * The file is read on each call to {@link #poll()}, typically scheduled with
+ * {@link #pollEvery(ScheduledExecutorService, Duration)}. A poll only reads the
+ * version of each slot mirrored, and the value of the slots whose version
+ * changed since the last poll. A holder requested before its name is published
+ * stays without data until a poll finds its slot.
+ * </p>
+ */
+public class MirrorReader implements Closeable {
+
+	private static final Logger logger = LoggerFactory.getLogger(MirrorReader.class);
+
+	private final Path file;
+
+	private final FileChannel channel;
+
+	private final MappedByteBuffer buffer;
+
+	private final int slots;
+
+	/** a holder mirroring a slot */
+	private static class Mirrored<T> {
+		final String name;
+		final byte type;
+		final RWObjHolder<T> holder;
+		final LongFunction<T> decoder;
+		/** -1 while the slot is not found */
+		int slot = -1;
+		long version = 0;
+
+		Mirrored(String name, byte type, RWObjHolder<T> holder, LongFunction<T> decoder) {
+			this.name = name;
+			this.type = type;
+			this.holder = holder;
+			this.decoder = decoder;
+		}
+	}
+
+	private final HashMap<String, Mirrored<?>> mirrored = new HashMap<>();
+
+	/** number of slots already scanned for their names */
+	private int scanned = 0;
+
+	private final HashMap<String, Integer> indexes = new HashMap<>();
+
+	private boolean closed = false;
+
+	/**
+	 *
+	 * @param file
+	 *          a file created by a {@link MirrorWriter}
+	 * @throws IOException
+	 *           if the file can't be read, or was not created by a mirror writer
+	 */
+	public MirrorReader(Path file) throws IOException {
+		this.file = file;
+		channel = FileChannel.open(file, StandardOpenOption.READ);
+		long size = channel.size();
+		if (size < SLOT_SIZE) {
+			channel.close();
+			throw new IOException("file " + file + " is not a mirror");
+		}
+		MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, SLOT_SIZE);
+		slots = header.getInt(4);
+		if (header.getInt(0) != MAGIC || slots < 1 || size != fileSize(slots)) {
+			channel.close();
+			throw new IOException("file " + file + " is not a mirror");
+		}
+		buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+	}
+
+	//
+	// holders
+	//
+
+	public IntHolder getInt(String name) {
+		return get(name, TYPE_INT, IntHolderImpl::new, l -> (int) l);
+	}
+
+	public LongHolder getLong(String name) {
+		return get(name, TYPE_LONG, LongHolderImpl::new, l -> l);
+	}
+
+	public FloatHolder getFloat(String name) {
+		return get(name, TYPE_FLOAT, FloatHolderImpl::new, l -> Float.intBitsToFloat((int) l));
+	}
+
+	public DoubleHolder getDouble(String name) {
+		return get(name, TYPE_DOUBLE, DoubleHolderImpl::new, Double::longBitsToDouble);
+	}
+
+	public BoolHolder getBool(String name) {
+		return get(name, TYPE_BOOL, BoolHolderImpl::new, l -> l != 0);
+	}
+
+	/**
+	 * get the holder mirroring a name, creating it and reading its value if
+	 * needed.
+	 *
+	 * @throws IllegalStateException
+	 *           if the name is already published with another type. The holder
+	 *           is then not mirrored.
+	 */
+	@SuppressWarnings("unchecked")
+	protected <T, H extends RWObjHolder<T>> H get(String name, byte type, Supplier<H> creator,
+			LongFunction<T> decoder) {
+		nameBytes(name);
+		H ret;
+		synchronized (this) {
+			Mirrored<?> existing = mirrored.get(name);
+			if (existing != null) {
+				if (existing.type != type) {
+					throw new IllegalArgumentException("name " + name + " is already mirrored as " + typeName(existing.type));
+				}
+				return (H) existing.holder;
+			}
+			ret = creator.get();
+			Mirrored<T> m = new Mirrored<>(name, type, ret, decoder);
+			if (!closed) {
+				find(m);
+				if (m.slot >= 0) {
+					read(m);
+				}
+			}
+			mirrored.put(name, m);
+		}
+		return ret;
+	}
+
+	//
+	// polling
+	//
+
+	/**
+	 * read the new values in the file, and set them in the holders. The holders
+	 * are set inside the lock of this, so that two polls can't set the values
+	 * of a slot in the wrong order.
+	 *
+	 * @throws RuntimeException
+	 *           the first failure to mirror a holder, eg a type mismatch, after
+	 *           the other holders were read.
+	 */
+	public synchronized void poll() {
+		if (closed) {
+			return;
+		}
+		RuntimeException failure = null;
+		for (Mirrored<?> m : mirrored.values()) {
+			try {
+				if (m.slot < 0) {
+					find(m);
+				}
+				if (m.slot >= 0) {
+					read(m);
+				}
+			} catch (RuntimeException e) {
+				if (failure == null) {
+					failure = e;
+				}
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	/** look for the slot of a mirrored holder, scanning the slots allocated since the last scan */
+	protected void find(Mirrored<?> m) {
+		long allocated = Math.min(slots, (long) LONGS.getAcquire(buffer, ALLOCATED_OFFSET));
+		while (scanned < allocated) {
+			indexes.put(readName(buffer, scanned), scanned);
+			scanned++;
+		}
+		Integer slot = indexes.get(m.name);
+		if (slot == null) {
+			return;
+		}
+		byte type = buffer.get(slotOffset(slot) + TYPE_OFFSET);
+		if (type != m.type) {
+			throw new IllegalStateException(
+					"name " + m.name + " is published as " + typeName(type) + ", mirrored as " + typeName(m.type));
+		}
+		m.slot = slot;
+	}
+
+	/**
+	 * read the value of a slot with the sequence lock. If the writer is writing
+	 * the slot, retry a few times then let the next poll read it.
+	 */
+	protected <T> void read(Mirrored<T> m) {
+		int offset = slotOffset(m.slot);
+		for (int tries = 0; tries < 100; tries++) {
+			long before = (long) LONGS.getAcquire(buffer, offset + VERSION_OFFSET);
+			if (before == m.version) {
+				return;
+			}
+			if ((before & 1) == 0) {
+				long value = (long) LONGS.getOpaque(buffer, offset + VALUE_OFFSET);
+				VarHandle.loadLoadFence();
+				long after = (long) LONGS.getOpaque(buffer, offset + VERSION_OFFSET);
+				if (before == after) {
+					m.version = before;
+					m.holder.set(m.decoder.apply(value));
+					return;
+				}
+			}
+			Thread.onSpinWait();
+		}
+	}
+
+	/**
+	 * schedule periodic polls. A poll that fails is logged, and does not stop
+	 * the next ones.
+	 *
+	 * @param exec
+	 *          the executor to run the polls
+	 * @param period
+	 *          delay between two polls
+	 * @return the future of the polls, to cancel them.
+	 */
+	public ScheduledFuture<?> pollEvery(ScheduledExecutorService exec, Duration period) {
+		long nanos = period.toNanos();
+		return exec.scheduleAtFixedRate(() -> {
+			try {
+				poll();
+			} catch (RuntimeException e) {
+				logger.warn("while polling mirror " + file, e);
+			}
+		}, 0, nanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * stop reading the file. The holders keep their last value.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		channel.close();
+	}
+
+}
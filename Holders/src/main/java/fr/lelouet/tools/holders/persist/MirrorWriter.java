@@ -0,0 +1,211 @@
+package fr.lelouet.tools.holders.persist;
+
+import static fr.lelouet.tools.holders.persist.MirrorLayout.*;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+import fr.lelouet.tools.holders.interfaces.ObjHolder;
+import fr.lelouet.tools.holders.interfaces.Subscription;
+import fr.lelouet.tools.holders.interfaces.numbers.BoolHolder;
+import fr.lelouet.tools.holders.interfaces.numbers.DoubleHolder;
+import fr.lelouet.tools.holders.interfaces.numbers.FloatHolder;
+import fr.lelouet.tools.holders.interfaces.numbers.IntHolder;
+import fr.lelouet.tools.holders.interfaces.numbers.LongHolder;
+
+/**
+ * publishes the values of holders in a memory mapped file, so that other
+ * processes on the same host can read them with a {@link MirrorReader}.
+ * <p>
+ * Each holder published is given a slot of the file, identified by a name. The
+ * value is written with a sequence lock : the version of the slot is odd while
+ * the value is written, and increased to the next even number once written. A
+ * reader reads the version, then the value, then checks the version did not
+ * change. Writing a value is thus a few memory stores, without system call or
+ * lock shared with the readers.
+ * </p>
+ * <p>
+ * Only one writer should use a file. A writer opening an existing file with the
+ * same number of slots keeps the slots already published, so the readers keep
+ * following them after a restart of the writer. A slot left being written by
+ * the previous writer is marked readable again, with the value it contains.
+ * </p>
+ */
+public class MirrorWriter implements Closeable {
+
+	private final FileChannel channel;
+
+	private final MappedByteBuffer buffer;
+
+	private final int slots;
+
+	/** slot index of each name published */
+	private final HashMap<String, Integer> indexes = new HashMap<>();
+
+	private final List<Subscription> subscriptions = new ArrayList<>();
+
+	private boolean closed = false;
+
+	/**
+	 *
+	 * @param file
+	 *          the file to write the values into. created if missing.
+	 * @param slots
+	 *          maximum number of holders published
+	 * @throws IOException
+	 *           if the file can't be opened or mapped.
+	 */
+	public MirrorWriter(Path file, int slots) throws IOException {
+		if (slots < 1) {
+			throw new IllegalArgumentException("number of slots must be positive, got " + slots);
+		}
+		this.slots = slots;
+		channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		boolean reuse = channel.size() == fileSize(slots);
+		buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize(slots));
+		if (reuse && buffer.getInt(0) == MAGIC && buffer.getInt(4) == slots) {
+			long allocated = Math.min(slots, (long) LONGS.getAcquire(buffer, ALLOCATED_OFFSET));
+			for (int slot = 0; slot < allocated; slot++) {
+				indexes.put(readName(buffer, slot), slot);
+				// the previous writer stopped while writing the slot
+				int versionOffset = slotOffset(slot) + VERSION_OFFSET;
+				long version = (long) LONGS.getAcquire(buffer, versionOffset);
+				if ((version & 1) != 0) {
+					LONGS.setRelease(buffer, versionOffset, version + 1);
+				}
+			}
+		} else {
+			for (int i = 0; i < buffer.capacity(); i++) {
+				buffer.put(i, (byte) 0);
+			}
+			buffer.putInt(4, slots);
+			buffer.putInt(0, MAGIC);
+			buffer.force();
+		}
+	}
+
+	//
+	// publication
+	//
+
+	public Subscription publish(String name, IntHolder holder) {
+		return publish(name, holder, TYPE_INT, Integer::longValue);
+	}
+
+	public Subscription publish(String name, LongHolder holder) {
+		return publish(name, holder, TYPE_LONG, Long::longValue);
+	}
+
+	public Subscription publish(String name, FloatHolder holder) {
+		return publish(name, holder, TYPE_FLOAT, f -> Float.floatToRawIntBits(f));
+	}
+
+	public Subscription publish(String name, DoubleHolder holder) {
+		return publish(name, holder, TYPE_DOUBLE, Double::doubleToRawLongBits);
+	}
+
+	public Subscription publish(String name, BoolHolder holder) {
+		return publish(name, holder, TYPE_BOOL, b -> b ? 1 : 0);
+	}
+
+	/**
+	 * write each value of a holder in the slot of a name.
+	 *
+	 * @return the subscription to the holder, to stop publishing it. The slot
+	 *         keeps the last value written.
+	 */
+	protected <T> Subscription publish(String name, ObjHolder<T> holder, byte type, ToLongFunction<T> encoder) {
+		byte[] nameBytes = nameBytes(name);
+		int slot;
+		synchronized (this) {
+			if (closed) {
+				throw new IllegalStateException("mirror is closed");
+			}
+			Integer existing = indexes.get(name);
+			if (existing != null) {
+				slot = existing;
+				byte existingType = buffer.get(slotOffset(slot) + TYPE_OFFSET);
+				if (existingType != type) {
+					throw new IllegalArgumentException("name " + name + " is already published as " + typeName(existingType));
+				}
+			} else {
+				if (indexes.size() == slots) {
+					throw new IllegalStateException("no free slot to publish " + name);
+				}
+				slot = indexes.size();
+				int offset = slotOffset(slot);
+				buffer.put(offset + TYPE_OFFSET, type);
+				buffer.put(offset + NAME_OFFSET, (byte) nameBytes.length);
+				for (int i = 0; i < nameBytes.length; i++) {
+					buffer.put(offset + NAME_OFFSET + 1 + i, nameBytes[i]);
+				}
+				// the name is visible to the readers before the slot is allocated
+				LONGS.setRelease(buffer, ALLOCATED_OFFSET, (long) slot + 1);
+				indexes.put(name, slot);
+			}
+		}
+		int offset = slotOffset(slot);
+		Subscription ret = holder.subscribe(value -> {
+			if (value != null) {
+				write(offset, encoder.applyAsLong(value));
+			}
+		});
+		synchronized (this) {
+			if (!closed) {
+				subscriptions.add(ret);
+				return ret;
+			}
+		}
+		ret.cancel();
+		return ret;
+	}
+
+	/**
+	 * write a value in a slot with the sequence lock. A new slot gets its first
+	 * version, 2, when its first value is written ; until then the readers see it
+	 * allocated, without value.
+	 */
+	protected synchronized void write(int offset, long value) {
+		if (closed) {
+			return;
+		}
+		int versionOffset = offset + VERSION_OFFSET;
+		long version = (long) LONGS.get(buffer, versionOffset);
+		LONGS.setOpaque(buffer, versionOffset, version + 1);
+		VarHandle.storeStoreFence();
+		LONGS.setOpaque(buffer, offset + VALUE_OFFSET, value);
+		LONGS.setRelease(buffer, versionOffset, version + 2);
+	}
+
+	/**
+	 * stop publishing the holders. The file is kept with the last values, for
+	 * the readers.
+	 */
+	@Override
+	public void close() throws IOException {
+		List<Subscription> toCancel;
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			toCancel = new ArrayList<>(subscriptions);
+			subscriptions.clear();
+			buffer.force();
+			channel.close();
+		}
+		for (Subscription sub : toCancel) {
+			sub.cancel();
+		}
+	}
+
+}
@@ -0,0 +1,275 @@
+package fr.lelouet.tools.holders.cache;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import fr.lelouet.tools.holders.impl.ObjHolderSimple;
+import fr.lelouet.tools.holders.impl.numbers.IntHolderImpl;
+import fr.lelouet.tools.holders.interfaces.ObjHolder;
+import fr.lelouet.tools.holders.interfaces.numbers.IntHolder;
+import fr.lelouet.tools.holders.persist.DiskTier;
+import fr.lelouet.tools.holders.persist.HolderCodec;
+
+public class URIBasedCacheTest {
+
+	@Test(timeOut = 500)
+	public void testFetchStats() throws Exception {
+		Callable<?>[] next = new Callable<?>[1];
+		AtomicInteger fetched = new AtomicInteger();
+		URIBasedCache<Integer, ObjHolder<Integer>> cache = new URIBasedCache<Integer, ObjHolder<Integer>>(
+				(c, l) -> next[0] = c, ObjHolderSimple<Integer>::new, h -> h,
+				(String uri, Integer last) -> fetched.incrementAndGet() / 2, i -> i != 1, i -> i, i -> true, i -> 0l);
+		ObjHolder<Integer> held = cache.get("uri");
+		Assert.assertEquals(cache.fetchStats().fetches, 0);
+		// 0, then 1 is ignored, then 1 again
+		next[0].call();
+		next[0].call();
+		next[0].call();
+		Assert.assertEquals((int) held.peek(), 0);
+		FetchStats stats = cache.fetchStats();
+		Assert.assertEquals(stats.fetches, 3);
+		Assert.assertEquals(stats.unchanged, 2);
+		Assert.assertEquals(stats.failures, 0);
+		Assert.assertEquals(stats.unchangedRatio(), 2.0 / 3);
+		Assert.assertTrue(stats.maxLagNanos >= 0);
+	}
+
+	@Test(timeOut = 2000)
+	public void testWheel() throws InterruptedException {
+		ExecutorService workers = Executors.newFixedThreadPool(2);
+		try (RefreshWheel wheel = new RefreshWheel(5, 8, 0.0, workers, 3)) {
+			int nb = 10;
+			CountDownLatch done = new CountDownLatch(nb + 1);
+			long start = System.nanoTime();
+			long[] delays = new long[nb];
+			for (int i = 0; i < nb; i++) {
+				int idx = i;
+				// up to 90ms, more than one round of the wheel
+				wheel.accept(() -> {
+					delays[idx] = System.nanoTime() - start;
+					done.countDown();
+					return null;
+				}, 10l * (i + 1) - 10);
+			}
+			int[] fetched = new int[1];
+			URIBasedCache<Integer, IntHolder> cache = PeriodicFetch.cache(wheel, IntHolderImpl::new, i -> i,
+					uri -> ++fetched[0], 20);
+			IntHolder held = cache.get("uri");
+			held.follow(i -> {
+				if (i == 3) {
+					done.countDown();
+				}
+			});
+			Assert.assertTrue(done.await(1500, TimeUnit.MILLISECONDS));
+			for (int i = 0; i < nb; i++) {
+				Assert.assertTrue(delays[i] >= TimeUnit.MILLISECONDS.toNanos(10 * i), "task " + i + " ran after " + delays[i]);
+			}
+		} finally {
+			workers.shutdownNow();
+		}
+	}
+
+	@Test(timeOut = 500)
+	public void testAdaptive() throws Exception {
+		Callable<?>[] next = new Callable<?>[1];
+		List<Long> delays = new ArrayList<>();
+		long[] now = new long[] { 0 };
+		int[] value = new int[] { 0 };
+		AdaptiveRefresh refresh = new AdaptiveRefresh(10, 50, 2, () -> now[0]);
+		Integer[] last = new Integer[1];
+		URIBasedCache<Integer, ObjHolder<Integer>> cache = URIBasedCache.adaptive((c, l) -> {
+			next[0] = c;
+			delays.add(l);
+		}, ObjHolderSimple<Integer>::new, h -> h, (String uri, Integer previous) -> {
+			last[0] = previous;
+			return value[0];
+		}, i -> !i.equals(last[0]), i -> i, i -> true, refresh);
+		ObjHolder<Integer> held = cache.get("uri");
+		for (int i = 0; i < 5; i++) {
+			next[0].call();
+		}
+		// initial, then floor, then backing off
+		Assert.assertEquals(delays, List.of(0l, 10l, 20l, 40l, 50l, 50l));
+		now[0] = 1000;
+		value[0] = 1;
+		next[0].call();
+		Assert.assertEquals((int) held.get(), 1);
+		Assert.assertEquals((long) delays.get(delays.size() - 1), 10l);
+		Assert.assertEquals(refresh.scheduleOf("uri").changeIntervalMs(), 1000.0);
+		Assert.assertEquals(refresh.scheduleOf("uri").changeRate(), 1.0);
+		Assert.assertEquals(cache.fetchStats().unchanged, 4);
+	}
+
+	@Test(timeOut = 500)
+	public void testSuspendIdle() throws Exception {
+		List<Callable<?>> scheduled = new ArrayList<>();
+		int[] value = new int[] { 0 };
+		URIBasedCache<Integer, ObjHolder<Integer>> cache = new URIBasedCache<Integer, ObjHolder<Integer>>(
+				(c, l) -> scheduled.add(c), ObjHolderSimple<Integer>::new, h -> h, (String uri, Integer last) -> ++value[0],
+				i -> true, i -> i, i -> true, i -> 10l).suspendIdle(Duration.ZERO);
+		ObjHolder<Integer> held = cache.get("uri");
+		List<Integer> received = new ArrayList<>();
+		Consumer<Integer> listener = received::add;
+		held.follow(listener);
+		scheduled.remove(0).call();
+		Assert.assertEquals(received, List.of(1));
+		Assert.assertEquals(scheduled.size(), 1);
+
+		held.unfollow(listener);
+		ObjHolderSimple<?> store = (ObjHolderSimple<?>) held;
+		Assert.assertFalse(store.hasFollowers());
+		scheduled.remove(0).call();
+		// not fetched, not rescheduled
+		Assert.assertEquals(value[0], 1);
+		Assert.assertTrue(scheduled.isEmpty());
+		Assert.assertEquals(cache.fetchStats().suspensions, 1);
+
+		// following again delivers the stale value, and resumes
+		List<Integer> second = new ArrayList<>();
+		held.follow(second::add);
+		Assert.assertEquals(second, List.of(1));
+		Assert.assertEquals(scheduled.size(), 1);
+		scheduled.remove(0).call();
+		Assert.assertEquals(second, List.of(1, 2));
+	}
+
+	@Test(timeOut = 500)
+	public void testBatch() throws Exception {
+		List<Callable<?>> scheduled = new ArrayList<>();
+		List<Long> delays = new ArrayList<>();
+		List<Map<String, Integer>> requests = new ArrayList<>();
+		boolean[] fail = new boolean[] { false };
+		URIBasedCache<Integer, ObjHolder<Integer>> cache = URIBasedCache.batch((c, l) -> {
+			scheduled.add(c);
+			delays.add(l);
+		}, ObjHolderSimple<Integer>::new, h -> h, (Map<String, Integer> lasts) -> {
+			requests.add(lasts);
+			if (fail[0]) {
+				throw new IllegalStateException("backend down");
+			}
+			Map<String, Integer> ret = new HashMap<>();
+			for (String uri : lasts.keySet()) {
+				if (!uri.equals("missing")) {
+					ret.put(uri, uri.length());
+				}
+			}
+			return ret;
+		}, i -> true, i -> i, i -> true, i -> 100l, 10, 2);
+		ObjHolder<Integer> a = cache.get("a");
+		ObjHolder<Integer> bb = cache.get("bb");
+		ObjHolder<Integer> missing = cache.get("missing");
+		Assert.assertEquals(scheduled.size(), 3);
+		// a opens a batch and schedules its flush, bb fills it
+		scheduled.get(0).call();
+		scheduled.get(1).call();
+		Assert.assertEquals(requests.size(), 1);
+		Assert.assertEquals(new ArrayList<>(requests.get(0).keySet()), List.of("a", "bb"));
+		Assert.assertEquals((int) a.get(), 1);
+		Assert.assertEquals((int) bb.get(), 2);
+		// flush of the full batch does nothing
+		Assert.assertEquals((long) delays.get(3), 10l);
+		scheduled.get(3).call();
+		Assert.assertEquals(requests.size(), 1);
+
+		scheduled.get(2).call();
+		Callable<?> flush = scheduled.get(scheduled.size() - 1);
+		flush.call();
+		Assert.assertEquals(requests.size(), 2);
+		Assert.assertFalse(missing.isDataAvailable());
+		FetchStats stats = cache.fetchStats();
+		Assert.assertEquals(stats.fetches, 3);
+		Assert.assertEquals(stats.unchanged, 1);
+		Assert.assertEquals(stats.failures, 0);
+		// a missing value is not modified : all are rescheduled after 100ms
+		Assert.assertEquals(delays.stream().filter(l -> l == 100).count(), 3);
+
+		// a failed batch is rescheduled too
+		fail[0] = true;
+		scheduled.get(scheduled.size() - 1).call();
+		scheduled.get(scheduled.size() - 1).call();
+		Assert.assertEquals(requests.size(), 3);
+		Assert.assertEquals(cache.fetchStats().failures, 1);
+		Assert.assertEquals(delays.stream().filter(l -> l == 100).count(), 4);
+	}
+
+	@Test(timeOut = 2000)
+	public void testDisk() throws Exception {
+		Path dir = Files.createTempDirectory("uricache");
+		List<Callable<?>> scheduled = new ArrayList<>();
+		List<String> lasts = new ArrayList<>();
+		// the intermediate is "etag:value"
+		String[] remote = new String[] { "1:a" };
+		for (int run = 0; run < 2; run++) {
+			try (DiskTier<String> disk = new DiskTier<>(dir, HolderCodec.STRING)) {
+				URIBasedCache<String, ObjHolder<String>> cache = new URIBasedCache<String, ObjHolder<String>>(
+						(c, l) -> scheduled.add(c), ObjHolderSimple<String>::new, h -> h, (String uri, String last) -> {
+							lasts.add(last);
+							return last != null && last.startsWith(remote[0].split(":")[0]) ? "304" : remote[0];
+						}, i -> !i.equals("304"), i -> i.split(":")[1], i -> true, i -> 10l).persistTo(disk);
+				ObjHolder<String> held = cache.get("uri");
+				if (run == 1) {
+					// served from disk before any fetch
+					Assert.assertEquals(held.peek(), "a");
+				}
+				scheduled.remove(scheduled.size() - 1).call();
+				Assert.assertEquals(held.get(), "a");
+				scheduled.clear();
+			}
+		}
+		// second run revalidated with the stored value
+		Assert.assertEquals(lasts, Arrays.asList(null, "1:a"));
+	}
+
+	@Test(timeOut = 2000)
+	public void testWarmUp() throws Exception {
+		ScheduledExecutorService exec = Executors.newScheduledThreadPool(4);
+		try {
+			// first fetch is immediate, even with a long delay
+			URIBasedCache<Integer, IntHolder> ints = PeriodicFetch.cacheToInt(exec, String::length, 100000);
+			Assert.assertEquals((int) ints.get("abc").get(), 3);
+
+			AtomicInteger loading = new AtomicInteger();
+			AtomicInteger maxLoading = new AtomicInteger();
+			URIBasedCache<Integer, IntHolder> slow = PeriodicFetch.cacheToInt(exec, uri -> {
+				maxLoading.accumulateAndGet(loading.incrementAndGet(), Math::max);
+				try {
+					Thread.sleep(5);
+				} catch (InterruptedException e) {
+					throw new UnsupportedOperationException("catch this", e);
+				}
+				loading.decrementAndGet();
+				return uri.length();
+			}, 100000);
+			List<String> uris = new ArrayList<>();
+			for (int i = 0; i < 20; i++) {
+				uris.add("uri" + i);
+			}
+			uris.add("uri0");
+			Map<String, IntHolder> loaded = slow.warmUp(uris, 2).get(1500, TimeUnit.MILLISECONDS);
+			Assert.assertEquals(loaded.size(), 20);
+			Assert.assertEquals((int) loaded.get("uri10").peek(), 5);
+			Assert.assertTrue(maxLoading.get() <= 2, "max loading " + maxLoading.get());
+			Assert.assertTrue(slow.warmUp(List.of(), 1).isDone());
+		} finally {
+			exec.shutdownNow();
+		}
+	}
+
+}
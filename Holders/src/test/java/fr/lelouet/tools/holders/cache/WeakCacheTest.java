@@ -1,8 +1,20 @@
 package fr.lelouet.tools.holders.cache;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import fr.lelouet.tools.holders.interfaces.ObjHolder;
 import fr.lelouet.tools.lambdaref.GCManage;
 
 public class WeakCacheTest {
@@ -45,4 +57,237 @@ public class WeakCacheTest {
 		Assert.assertEquals(count[0], 2);
 	}
 
+	@Test(timeOut = 2000)
+	public void testSingleFlight() throws InterruptedException {
+		AtomicInteger count = new AtomicInteger();
+		CountDownLatch slow = new CountDownLatch(1);
+		WeakCache<Integer, Object> cache = new WeakCache<>(i -> {
+			count.incrementAndGet();
+			if (i == 1) {
+				try {
+					slow.await();
+				} catch (InterruptedException e) {
+					throw new UnsupportedOperationException("catch this", e);
+				}
+			}
+			return "v" + i;
+		});
+		List<Thread> threads = new ArrayList<>();
+		List<Object> results = new ArrayList<>();
+		for (int t = 0; t < 4; t++) {
+			Thread th = new Thread(() -> {
+				Object v = cache.get(1);
+				synchronized (results) {
+					results.add(v);
+				}
+			});
+			threads.add(th);
+			th.start();
+		}
+		// the slow generation of key 1 does not block key 2
+		Assert.assertEquals(cache.get(2), "v2");
+		slow.countDown();
+		for (Thread th : threads) {
+			th.join();
+		}
+		Assert.assertEquals(results, List.of("v1", "v1", "v1", "v1"));
+		Assert.assertEquals(count.get(), 2);
+	}
+
+	@Test(timeOut = 500)
+	public void testNullAndFailure() {
+		AtomicInteger count = new AtomicInteger();
+		WeakCache<String, String> cache = new WeakCache<>(s -> {
+			count.incrementAndGet();
+			if ("fail".equals(s)) {
+				throw new IllegalArgumentException(s);
+			}
+			return s == null ? "null" : null;
+		});
+		Assert.assertEquals(cache.get(null), "null");
+		Assert.assertNull(cache.get("a"));
+		Assert.assertNull(cache.get("a"));
+		Assert.assertEquals(count.get(), 2);
+		for (int i = 0; i < 2; i++) {
+			try {
+				cache.get("fail");
+				Assert.fail("generator failed");
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+		}
+		// failures are not cached
+		Assert.assertEquals(count.get(), 4);
+	}
+
+	@Test(timeOut = 500)
+	public void testBounded() {
+		AtomicInteger count = new AtomicInteger();
+		WeakCache<Integer, Object> cache = new WeakCache<Integer, Object>(i -> {
+			count.incrementAndGet();
+			return "v" + i;
+		}).strongValues().maximumSize(2);
+		cache.get(1);
+		cache.get(2);
+		// 1 is used twice, so it is protected
+		cache.get(1);
+		cache.get(3);
+		Assert.assertEquals(cache.size(), 2);
+		Assert.assertEquals(cache.weight(), 2);
+		Assert.assertEquals(count.get(), 3);
+		cache.get(1);
+		Assert.assertEquals(count.get(), 3);
+		// 2 was evicted
+		cache.get(2);
+		Assert.assertEquals(count.get(), 4);
+		Assert.assertEquals(cache.size(), 2);
+
+		WeakCache<String, String> weighted = new WeakCache<String, String>(s -> s).strongValues().maximumWeight(5,
+				String::length);
+		weighted.get("abc");
+		weighted.get("de");
+		Assert.assertEquals(weighted.weight(), 5);
+		weighted.get("fgh");
+		Assert.assertEquals(weighted.weight(), 5);
+		Assert.assertEquals(weighted.size(), 2);
+	}
+
+	@Test(timeOut = 500)
+	public void testExpire() {
+		long[] now = new long[] { 0 };
+		AtomicInteger count = new AtomicInteger();
+		WeakCache<Integer, Object> written = new WeakCache<Integer, Object>(i -> count.incrementAndGet()).strongValues()
+				.ticker(() -> now[0]).expireAfterWrite(Duration.ofNanos(10));
+		Assert.assertEquals(written.get(0), 1);
+		now[0] = 5;
+		Assert.assertEquals(written.get(0), 1);
+		now[0] = 10;
+		Assert.assertEquals(written.get(0), 2);
+
+		WeakCache<Integer, Object> accessed = new WeakCache<Integer, Object>(i -> count.incrementAndGet())
+				.strongValues().ticker(() -> now[0]).expireAfterAccess(Duration.ofNanos(10));
+		Assert.assertEquals(accessed.get(0), 3);
+		now[0] = 15;
+		Assert.assertEquals(accessed.get(0), 3);
+		now[0] = 20;
+		Assert.assertEquals(accessed.get(0), 3);
+		now[0] = 30;
+		accessed.cleanUp();
+		Assert.assertEquals(accessed.size(), 0);
+	}
+
+	@Test
+	public void testSoftValues() {
+		WeakCache<Integer, Integer[]> cache = new WeakCache<Integer, Integer[]>(i -> new Integer[] { i }).softValues();
+		int hash = System.identityHashCode(cache.get(2));
+		GCManage.force();
+		// not collected while the memory is not needed
+		Assert.assertEquals(cache.size(), 1);
+		Assert.assertEquals(System.identityHashCode(cache.get(2)), hash);
+	}
+
+	@Test(timeOut = 500)
+	public void testStats() {
+		WeakCache<Integer, Object> cache = new WeakCache<Integer, Object>(i -> {
+			if (i < 0) {
+				throw new IllegalArgumentException();
+			}
+			return "v" + i;
+		}).strongValues().maximumSize(1);
+		Assert.assertEquals(cache.stats(), CacheStats.EMPTY);
+		cache.recordStats();
+		cache.get(1);
+		cache.get(1);
+		cache.get(2);
+		try {
+			cache.get(-1);
+			Assert.fail("should throw");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		CacheStats stats = cache.stats();
+		Assert.assertEquals(stats.hits, 1);
+		Assert.assertEquals(stats.misses, 3);
+		Assert.assertEquals(stats.loadSuccesses, 2);
+		Assert.assertEquals(stats.loadFailures, 1);
+		Assert.assertEquals(stats.evictions, 1);
+		Assert.assertEquals(stats.inFlight, 0);
+		Assert.assertEquals(stats.requests(), 4);
+		Assert.assertEquals(stats.hitRate(), 0.25);
+		long histogram = 0;
+		for (long l : stats.loadHistogram()) {
+			histogram += l;
+		}
+		Assert.assertEquals(histogram, 3);
+	}
+
+	@Test(timeOut = 1000)
+	public void testAsync() throws InterruptedException, ExecutionException {
+		ExecutorService exec = Executors.newFixedThreadPool(2);
+		try {
+			CountDownLatch release = new CountDownLatch(1);
+			AtomicInteger count = new AtomicInteger();
+			WeakCache<Integer, Object> cache = new WeakCache<Integer, Object>(i -> {
+				count.incrementAndGet();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					throw new UnsupportedOperationException("catch this", e);
+				}
+				if (i < 0) {
+					throw new IllegalArgumentException();
+				}
+				return "v" + i;
+			}).strongValues().executor(exec);
+			CompletableFuture<Object> first = cache.getAsync(1);
+			CompletableFuture<Object> second = cache.getAsync(1);
+			ObjHolder<Object> holder = cache.getHolder(1);
+			CompletableFuture<Object> failed = cache.getAsync(-1);
+			// the calling thread is not blocked
+			Assert.assertFalse(first.isDone());
+			Assert.assertFalse(holder.isDataAvailable());
+			release.countDown();
+			Assert.assertEquals(first.get(), "v1");
+			Assert.assertEquals(second.get(), "v1");
+			Assert.assertEquals(holder.get(), "v1");
+			Assert.assertEquals(cache.get(1), "v1");
+			try {
+				failed.get();
+				Assert.fail("should throw");
+			} catch (ExecutionException e) {
+				Assert.assertTrue(e.getCause() instanceof IllegalArgumentException);
+			}
+			Assert.assertEquals(count.get(), 2);
+			// hit is completed synchronously
+			Assert.assertTrue(cache.getAsync(1).isDone());
+		} finally {
+			exec.shutdownNow();
+			exec.awaitTermination(100, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	@Test(timeOut = 500)
+	public void testWeigherFailure() {
+		WeakCache<Integer, String> cache = new WeakCache<Integer, String>(i -> i == 0 ? null : "v" + i).strongValues()
+				.maximumWeight(10, v -> v.length() - 3);
+		for (int i = 0; i < 2; i++) {
+			// NPE of the weigher on the null value : the key must not stay loading
+			try {
+				cache.get(0);
+				Assert.fail("should throw");
+			} catch (NullPointerException e) {
+				// expected
+			}
+		}
+		try {
+			cache.get(1);
+			Assert.fail("should throw");
+		} catch (IllegalArgumentException e) {
+			// negative weight
+		}
+		Assert.assertEquals(cache.size(), 0);
+		Assert.assertEquals(cache.get(1000), "v1000");
+		Assert.assertEquals(cache.weight(), 2);
+	}
+
 }
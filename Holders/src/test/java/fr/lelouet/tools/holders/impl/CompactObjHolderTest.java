@@ -0,0 +1,80 @@
+package fr.lelouet.tools.holders.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.openjdk.jol.info.GraphLayout;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class CompactObjHolderTest {
+
+	@Test(timeOut = 500)
+	public void testFollow() {
+		CompactObjHolder<String> source = new CompactObjHolder<>();
+		Assert.assertFalse(source.isDataAvailable());
+		List<String> received1 = new ArrayList<>();
+		List<String> received2 = new ArrayList<>();
+		List<String> received3 = new ArrayList<>();
+		Consumer<String> l1 = received1::add;
+		Consumer<String> l2 = received2::add;
+		Consumer<String> l3 = received3::add;
+		CompactObjHolder<Object> keep = new CompactObjHolder<>();
+		source.follow(l1, keep);
+		Assert.assertEquals(source.followers(), 1);
+		source.set("a");
+		Assert.assertTrue(source.isDataAvailable());
+		Assert.assertEquals(source.get(), "a");
+		source.follow(l2, keep);
+		source.follow(l3, keep);
+		Assert.assertEquals(source.followers(), 3);
+		source.set("b");
+		source.set("b");
+		Assert.assertEquals(received1, List.of("a", "b"));
+		Assert.assertEquals(received2, List.of("a", "b"));
+		Assert.assertEquals(received3, List.of("a", "b"));
+
+		source.unfollow(l2);
+		Assert.assertEquals(source.followers(), 2);
+		source.unfollow(l1);
+		Assert.assertEquals(source.followers(), 1);
+		source.set("c");
+		Assert.assertEquals(received1, List.of("a", "b"));
+		Assert.assertEquals(received3, List.of("a", "b", "c"));
+		source.unfollow(l3);
+		Assert.assertEquals(source.followers(), 0);
+	}
+
+	@Test(timeOut = 500)
+	public void testWait() throws InterruptedException {
+		CompactObjHolder<String> source = new CompactObjHolder<>();
+		new Thread(() -> source.set("a")).start();
+		Assert.assertEquals(source.get(), "a");
+		Assert.assertEquals(source.or("b").get(), "a");
+		Assert.assertEquals(new CompactObjHolder<String>().or("b").get(), "b");
+	}
+
+	@Test(timeOut = 5000)
+	public void testFootprint() {
+		int nb = 1000;
+		Consumer<Integer> listener = i -> {
+		};
+		Consumer<Object> keep = o -> {
+		};
+		Object[] simple = new Object[nb];
+		Object[] compact = new Object[nb];
+		for (int i = 0; i < nb; i++) {
+			ObjHolderSimple<Integer> s = new ObjHolderSimple<>(1000 + i);
+			s.follow(listener, keep);
+			simple[i] = s;
+			CompactObjHolder<Integer> c = new CompactObjHolder<>(1000 + i);
+			c.follow(listener, keep);
+			compact[i] = c;
+		}
+		long simpleSize = GraphLayout.parseInstance(simple).totalSize() / nb;
+		long compactSize = GraphLayout.parseInstance(compact).totalSize() / nb;
+		Assert.assertTrue(compactSize * 2 < simpleSize, "simple=" + simpleSize + " compact=" + compactSize);
+	}
+
+}
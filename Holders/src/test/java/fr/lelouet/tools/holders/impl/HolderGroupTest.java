@@ -0,0 +1,71 @@
+package fr.lelouet.tools.holders.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import fr.lelouet.tools.holders.interfaces.ObjHolder;
+
+public class HolderGroupTest {
+
+	@Test(timeOut = 1000)
+	public void testConfined() throws InterruptedException {
+		try (HolderGroup first = HolderGroup.newSingleThread("first");
+				HolderGroup second = HolderGroup.newSingleThread("second")) {
+			ConfinedObjHolder<Integer> source = first.holder();
+			ObjHolder<Integer> mapped = source.map(i -> i + 1);
+			Assert.assertTrue(mapped instanceof ConfinedObjHolder);
+			List<String> threads = new ArrayList<>();
+			mapped.follow(i -> threads.add(Thread.currentThread().getName()));
+
+			// edge to another group
+			ConfinedObjHolder<Integer> other = second.holder();
+			mapped.follow(other::set, other);
+			List<String> otherThreads = new ArrayList<>();
+			other.follow(i -> otherThreads.add(Thread.currentThread().getName()));
+
+			source.set(1);
+			Assert.assertEquals((int) mapped.get(), 2);
+			Assert.assertEquals((int) other.get(), 2);
+
+			// in the thread of the group, set and propagation are synchronous
+			CountDownLatch done = new CountDownLatch(1);
+			int[] seen = new int[1];
+			first.execute(() -> {
+				source.set(5);
+				seen[0] = mapped.peek();
+				done.countDown();
+			});
+			Assert.assertTrue(done.await(500, TimeUnit.MILLISECONDS));
+			Assert.assertEquals(seen[0], 6);
+
+			// wait for the hop to the second group
+			CountDownLatch hopped = new CountDownLatch(1);
+			second.execute(hopped::countDown);
+			Assert.assertTrue(hopped.await(500, TimeUnit.MILLISECONDS));
+			Assert.assertEquals((int) other.peek(), 6);
+			Assert.assertEquals(threads, List.of("first", "first"));
+			Assert.assertEquals(otherThreads, List.of("second", "second"));
+		}
+	}
+
+	@Test(timeOut = 1000)
+	public void testSharedThread() throws InterruptedException, ExecutionException {
+		ExecutorService exec = Executors.newSingleThreadExecutor();
+		try (HolderGroup group = new HolderGroup(exec)) {
+			boolean[] inside = new boolean[1];
+			group.execute(() -> inside[0] = group.inGroup());
+			// same thread, but not running a task of the group
+			Assert.assertFalse(exec.submit(group::inGroup).get());
+			Assert.assertTrue(inside[0]);
+		}
+	}
+
+}
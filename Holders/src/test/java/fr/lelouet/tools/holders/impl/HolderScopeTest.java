@@ -0,0 +1,102 @@
+package fr.lelouet.tools.holders.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import fr.lelouet.tools.holders.impl.collections.ListHolderImpl;
+import fr.lelouet.tools.holders.interfaces.ObjHolder;
+import fr.lelouet.tools.holders.interfaces.Subscription;
+import fr.lelouet.tools.holders.interfaces.numbers.IntHolder;
+
+public class HolderScopeTest {
+
+	@Test(timeOut = 500)
+	public void testSubscribe() {
+		ObjHolderSimple<String> source = new ObjHolderSimple<>("a");
+		List<String> received = new ArrayList<>();
+		Subscription sub = source.subscribe(received::add);
+		Assert.assertTrue(sub.isActive());
+		Assert.assertEquals(source.followers(), 1);
+		source.set("b");
+		sub.cancel();
+		Assert.assertFalse(sub.isActive());
+		Assert.assertEquals(source.followers(), 0);
+		source.set("c");
+		Assert.assertEquals(received, List.of("a", "b"));
+		sub.cancel();
+	}
+
+	@Test(timeOut = 500)
+	public void testScope() {
+		ObjHolderSimple<String> source = new ObjHolderSimple<>("a");
+		ObjHolder<String> upper;
+		IntHolder length;
+		List<String> received = new ArrayList<>();
+		try (HolderScope scope = new HolderScope()) {
+			upper = scope.own(source.map(String::toUpperCase));
+			length = scope.own(source.mapInt(String::length));
+			scope.follow(upper, received::add);
+			Assert.assertEquals(source.followers(), 2);
+			Assert.assertEquals(scope.size(), 3);
+			source.set("bb");
+			Assert.assertEquals(upper.get(), "BB");
+			Assert.assertEquals((int) length.get(), 2);
+		}
+		Assert.assertEquals(source.followers(), 0);
+		source.set("ccc");
+		Assert.assertEquals(upper.get(), "BB");
+		Assert.assertEquals((int) length.get(), 2);
+		Assert.assertEquals(received, List.of("A", "BB"));
+	}
+
+	@Test(timeOut = 500)
+	public void testNested() {
+		ObjHolderSimple<String> source = new ObjHolderSimple<>("a");
+		try (HolderScope outer = new HolderScope()) {
+			ObjHolder<String> outerMap = outer.own(source.map(s -> s + "1"));
+			try (HolderScope inner = new HolderScope()) {
+				inner.own(source.map(s -> s + "2"));
+				Assert.assertEquals(source.followers(), 2);
+			}
+			Assert.assertEquals(source.followers(), 1);
+			source.set("b");
+			Assert.assertEquals(outerMap.get(), "b1");
+		}
+		Assert.assertEquals(source.followers(), 0);
+	}
+
+	@Test(timeOut = 500)
+	public void testImplicitFollows() {
+		ListHolderImpl<String> source = new ListHolderImpl<>(List.of("a"));
+		ObjHolder<String> mapped;
+		try (HolderScope scope = new HolderScope()) {
+			// lazily cached and unowned derived holders are not captured
+			source.size();
+			mapped = source.map(l -> l.get(0));
+			Assert.assertEquals(scope.size(), 0);
+		}
+		source.set(List.of("b", "c"));
+		Assert.assertEquals((int) source.size().get(), 2);
+		Assert.assertEquals(mapped.get(), "b");
+	}
+
+	@Test(timeOut = 500)
+	public void testClosedByOtherThread() throws InterruptedException {
+		ObjHolderSimple<String> source = new ObjHolderSimple<>("a");
+		List<String> received = new ArrayList<>();
+		HolderScope scope = new HolderScope();
+		Subscription sub = scope.follow(source, received::add);
+		Thread closer = new Thread(scope::close);
+		closer.start();
+		closer.join();
+		Assert.assertFalse(sub.isActive());
+		source.set("b");
+		Assert.assertEquals(received, List.of("a"));
+		// a closed scope cancels the new subscriptions
+		Assert.assertFalse(scope.follow(source, received::add).isActive());
+	}
+
+}
@@ -1,7 +1,13 @@
 package fr.lelouet.tools.holders.impl;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
 
 import org.testng.Assert;
@@ -9,12 +15,14 @@ import org.testng.annotations.Test;
 
 import fr.lelouet.tools.holders.impl.numbers.IntHolderImpl;
 import fr.lelouet.tools.holders.interfaces.ObjHolder;
+import fr.lelouet.tools.holders.interfaces.Subscription;
 import fr.lelouet.tools.holders.interfaces.collections.ListHolder;
 import fr.lelouet.tools.holders.interfaces.collections.MapHolder;
 import fr.lelouet.tools.holders.interfaces.numbers.FloatHolder;
 import fr.lelouet.tools.holders.interfaces.numbers.IntHolder;
 import fr.lelouet.tools.holders.interfaces.numbers.LongHolder;
 import fr.lelouet.tools.lambdaref.GCManage;
+import fr.lelouet.tools.lambdaref.references.IRef;
 
 public class ObjHolderSimpleTest {
 
@@ -141,10 +149,224 @@ public class ObjHolderSimpleTest {
 		Assert.assertEquals(res.get(), (Integer) 1);
 		test.set(h2);
 		Assert.assertEquals(res.get(), (Integer) 20);
+		Assert.assertEquals(h1.followers(), 0);
+		Assert.assertEquals(h2.followers(), 1);
 		h1.set(5);
 		Assert.assertEquals(res.get(), (Integer) 20);
 		h2.set(40);
 		Assert.assertEquals(res.get(), (Integer) 40);
 	}
 
+	@Test(timeOut = 500)
+	public void testDeliverOutsideLock() throws InterruptedException {
+		ObjHolderSimple<String> test = new ObjHolderSimple<>("a");
+		CountDownLatch entered = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ObjHolderSimple<String> copy = new ObjHolderSimple<>();
+		test.follow(s -> {
+			if (s.equals("b")) {
+				entered.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					throw new UnsupportedOperationException(e);
+				}
+			}
+			copy.set(s);
+		}, copy);
+		Assert.assertEquals(test.sequence(), 1);
+		Thread setter = new Thread(() -> test.set("b"));
+		setter.start();
+		entered.await();
+		// the follower is still receiving b, yet this is not locked
+		Assert.assertEquals(test.followers(), 1);
+		Assert.assertEquals(test.get(), "b");
+		Assert.assertEquals(test.sequence(), 2);
+		Assert.assertEquals(copy.get(), "a");
+		release.countDown();
+		setter.join();
+		Assert.assertEquals(copy.get(), "b");
+	}
+
+	@Test(timeOut = 500)
+	public void testDeliverOutsideFollower() throws InterruptedException {
+		ObjHolderSimple<String> test = new ObjHolderSimple<>("a");
+		CountDownLatch entered = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		List<String> received = new ArrayList<>();
+		test.subscribe(s -> {
+			if (s.equals("b")) {
+				entered.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					throw new UnsupportedOperationException(e);
+				}
+			}
+			received.add(s);
+		});
+		Thread setter = new Thread(() -> test.set("b"));
+		setter.start();
+		entered.await();
+		// the follower is receiving b, yet another writer is not blocked
+		test.set("c");
+		test.set("d");
+		Assert.assertEquals(received, List.of("a"));
+		release.countDown();
+		setter.join();
+		// the thread delivering b delivered the last item after
+		Assert.assertEquals(received, List.of("a", "b", "d"));
+	}
+
+	@Test(timeOut = 500)
+	public void testDiscardStale() {
+		List<String> received = new ArrayList<>();
+		Consumer<String> cons = received::add;
+		ObjHolderSimple.Follower<String> follower = new ObjHolderSimple.Follower<>(IRef.strong(cons));
+		follower.deliver("a", 1);
+		follower.deliver("c", 3);
+		follower.deliver("b", 2);
+		follower.deliver("c", 3);
+		Assert.assertEquals(received, List.of("a", "c"));
+	}
+
+	@Test(timeOut = 500)
+	public void testPeek() {
+		ObjHolderSimple<String> test = new ObjHolderSimple<>();
+		Assert.assertNull(test.peek());
+		Assert.assertEquals(test.getIfAvailable("none"), "none");
+		Assert.assertNull(test.snapshot());
+		test.set("a");
+		Assert.assertEquals(test.peek(), "a");
+		Assert.assertEquals(test.getIfAvailable("none"), "a");
+		test.set(null);
+		Assert.assertEquals(test.getIfAvailable("none"), null);
+		Assert.assertEquals(test.snapshot().sequence, 2);
+	}
+
+	@Test(timeOut = 2000)
+	public void testReadConsistent() throws InterruptedException {
+		IntHolderImpl a = new IntHolderImpl(0);
+		IntHolderImpl b = new IntHolderImpl(0);
+		Thread writer = new Thread(() -> {
+			for (int i = 1; i <= 20000; i++) {
+				a.set(i);
+				b.set(i);
+			}
+		});
+		writer.start();
+		int reads = 0;
+		while (writer.isAlive() || reads == 0) {
+			Object[] values = ObjHolderSimple.readConsistent(a, b);
+			int diff = (Integer) values[0] - (Integer) values[1];
+			Assert.assertTrue(diff == 0 || diff == 1, "read a=" + values[0] + " b=" + values[1]);
+			reads++;
+		}
+		writer.join();
+		Assert.assertEquals(ObjHolderSimple.readConsistent(a, b), new Object[] { 20000, 20000 });
+	}
+
+	@Test(timeOut = 500)
+	public void testShareDerived() {
+		Function<String, Integer> length = String::length;
+		ToIntFunction<String> intLength = String::length;
+		ObjHolderSimple<String> test = new ObjHolderSimple<>("a");
+		Assert.assertNotSame(test.map(length), test.map(length));
+
+		test.shareDerived();
+		ObjHolder<Integer> mapped = test.map(length);
+		Assert.assertSame(test.map(length), mapped);
+		IntHolder intMapped = test.mapInt(intLength);
+		Assert.assertSame(test.mapInt(intLength), intMapped);
+		Assert.assertNotSame(test.map(s -> s.length()), mapped);
+		Assert.assertNotSame(test.mapList(s -> List.of(s)), test.mapList(s -> List.of(s)));
+
+		test.set("abc");
+		Assert.assertEquals((int) mapped.get(), 3);
+		Assert.assertEquals((int) intMapped.get(), 3);
+	}
+
+	@Test(timeOut = 500)
+	public void testSubscribeSameListener() {
+		ObjHolderSimple<String> test = new ObjHolderSimple<>("a");
+		List<String> received = new ArrayList<>();
+		Consumer<String> cons = received::add;
+		ObjHolderSimple<Object> keep = new ObjHolderSimple<>();
+		Subscription first = test.subscribe(cons, keep);
+		Subscription second = test.subscribe(cons, keep);
+		Assert.assertEquals(test.followers(), 2);
+		first.cancel();
+		Assert.assertFalse(first.isActive());
+		Assert.assertTrue(second.isActive());
+		test.set("b");
+		Assert.assertEquals(received, List.of("a", "a", "b"));
+		Assert.assertEquals(test.followers(), 1);
+	}
+
+	@Test(timeOut = 500)
+	public void testFreeze() {
+		ObjHolderSimple<Integer> source = new ObjHolderSimple<>(2);
+		ObjHolderSimple<Integer> other = new ObjHolderSimple<>(3);
+		ObjHolder<Integer> mapped = source.map(i -> i * 2);
+		ObjHolderSimple<Integer> combined = ObjHolder.combine(mapped, other, ObjHolderSimple::new, Integer::sum);
+		Assert.assertEquals((int) combined.get(), 7);
+
+		source.freeze();
+		Assert.assertTrue(source.isFrozen());
+		Assert.assertEquals(source.followers(), 0);
+		// mapped only followed source
+		Assert.assertTrue(mapped.isFrozen());
+		// combined still follows other
+		Assert.assertFalse(combined.isFrozen());
+		other.set(4);
+		Assert.assertEquals((int) combined.get(), 8);
+		other.freeze();
+		Assert.assertTrue(combined.isFrozen());
+
+		// a frozen holder accepts the same item, not another one
+		source.set(2);
+		try {
+			source.set(3);
+			Assert.fail("source is frozen");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+
+		// following delivers without storing the listener
+		List<Integer> received = new ArrayList<>();
+		Subscription sub = combined.subscribe(received::add);
+		Assert.assertEquals(received, List.of(8));
+		Assert.assertFalse(sub.isActive());
+		Assert.assertEquals(combined.followers(), 0);
+
+		// a holder derived from a frozen holder is frozen
+		Assert.assertTrue(source.map(i -> i + 1).isFrozen());
+
+		try {
+			new ObjHolderSimple<>().freeze();
+			Assert.fail("can't freeze without item");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+	}
+
+	@Test(timeOut = 500)
+	public void testFreezeUntracked() {
+		ObjHolderSimple<Integer> frozen = new ObjHolderSimple<>(2).freeze();
+		CompactObjHolder<Integer> compact = new CompactObjHolder<>(3);
+		ObjHolderSimple<Integer> combined = ObjHolder.combine(frozen, compact, ObjHolderSimple::new, Integer::sum);
+		Assert.assertEquals((int) combined.get(), 5);
+		// the subscription to compact is not known
+		Assert.assertFalse(combined.isFrozen());
+		compact.set(4);
+		Assert.assertEquals((int) combined.get(), 6);
+
+		ObjHolderSimple<Integer> source = new ObjHolderSimple<>(1);
+		ObjHolderSimple<Integer> mixed = ObjHolder.combine(source, compact, ObjHolderSimple::new, Integer::sum);
+		source.freeze();
+		Assert.assertFalse(mixed.isFrozen());
+		compact.set(5);
+		Assert.assertEquals((int) mixed.get(), 6);
+	}
+
 }
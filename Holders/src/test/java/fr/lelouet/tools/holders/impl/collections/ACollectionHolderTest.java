@@ -63,4 +63,29 @@ public class ACollectionHolderTest {
 		Assert.assertEquals(concat.get(), "a12345");
 	}
 
+	@Test(timeOut = 500)
+	public void testUnpackFrozen() {
+		ListHolderImpl<Integer> source = ListHolderImpl.of(0, 1);
+		Map<Integer, ObjHolderSimple<String>> backMap = new HashMap<>();
+		CollectionHolder<String, ?> test = source
+				.unpackItems(i -> backMap.computeIfAbsent(i, i2 -> new ObjHolderSimple<>("" + i2)));
+		Assert.assertEquals(test.get(), List.of("0", "1"));
+		backMap.values().forEach(ObjHolderSimple::freeze);
+		Assert.assertFalse(test.isFrozen());
+		source.set(List.of(1, 2));
+		Assert.assertEquals(test.get(), List.of("1", "2"));
+	}
+
+	@Test(timeOut = 500)
+	public void testFlattenFrozen() {
+		ListHolderImpl<ListHolder<Character>> test = new ListHolderImpl<>();
+		ListHolderImpl<Character> chars = new ListHolderImpl<>(Arrays.asList('a', 'b'));
+		test.set(Arrays.asList(chars));
+		ListHolder<Character> flattened = test.flatten(l -> l);
+		test.freeze();
+		Assert.assertFalse(flattened.isFrozen());
+		chars.set(Arrays.asList('c'));
+		Assert.assertEquals(flattened.get(), Arrays.asList('c'));
+	}
+
 }
@@ -0,0 +1,31 @@
+package fr.lelouet.tools.holders.impl.collections;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import fr.lelouet.tools.holders.interfaces.collections.DoubleListHolder;
+import fr.lelouet.tools.holders.interfaces.numbers.DoubleHolder;
+
+public class DoubleListHolderImplTest {
+
+	@Test(timeOut = 500)
+	public void testTransform() {
+		DoubleListHolderImpl source = DoubleListHolderImpl.of(1.5, -2.0, 4.5);
+		DoubleListHolder abs = source.mapItems(Math::abs);
+		DoubleHolder sum = source.sum();
+		DoubleHolder min = source.min();
+		DoubleHolder max = source.max();
+		Assert.assertEquals(abs.get(), new double[] { 1.5, 2.0, 4.5 });
+		Assert.assertEquals(source.filter(d -> d > 0).get(), new double[] { 1.5, 4.5 });
+		Assert.assertEquals(sum.get(), 4.0, 1e-9);
+		Assert.assertEquals(min.get(), -2.0, 1e-9);
+		Assert.assertEquals(max.get(), 4.5, 1e-9);
+		Assert.assertEquals(source.average().get(), 4.0 / 3, 1e-9);
+
+		source.setEmpty();
+		Assert.assertEquals(sum.get(), 0.0, 1e-9);
+		Assert.assertEquals(min.get(), (Double) Double.POSITIVE_INFINITY);
+		Assert.assertEquals(max.get(), (Double) Double.NEGATIVE_INFINITY);
+	}
+
+}
@@ -0,0 +1,82 @@
+package fr.lelouet.tools.holders.impl.collections;
+
+import java.util.Arrays;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import fr.lelouet.tools.holders.interfaces.collections.IntListHolder;
+import fr.lelouet.tools.holders.interfaces.numbers.DoubleHolder;
+import fr.lelouet.tools.holders.interfaces.numbers.IntHolder;
+
+public class IntListHolderImplTest {
+
+	@Test(timeOut = 500)
+	public void testCreation() {
+		int[][] last = new int[1][];
+		int[] calls = new int[1];
+		IntListHolderImpl test = new IntListHolderImpl();
+		test.follow(arr -> {
+			last[0] = arr;
+			calls[0]++;
+		});
+		Assert.assertNull(last[0]);
+
+		test.set((int[]) null);
+		Assert.assertEquals(test.get(), new int[0]);
+		Assert.assertEquals(test.size().get(), (Integer) 0);
+		Assert.assertTrue(test.isEmpty().get());
+
+		test.set(new int[] { 1, 2 });
+		Assert.assertEquals(last[0], new int[] { 1, 2 });
+		Assert.assertEquals(test.size().get(), (Integer) 2);
+		Assert.assertFalse(test.isEmpty().get());
+		Assert.assertEquals(calls[0], 2);
+
+		// same content is not propagated
+		test.set(new int[] { 1, 2 });
+		Assert.assertEquals(calls[0], 2);
+	}
+
+	@Test(timeOut = 500)
+	public void testTransform() {
+		IntListHolderImpl source = IntListHolderImpl.of(3, 1, 4, 1, 5);
+		IntListHolder doubled = source.mapItems(i -> i * 2);
+		IntListHolder odd = source.filter(i -> i % 2 == 1);
+		IntHolder sum = source.sum();
+		IntHolder min = source.min();
+		IntHolder max = source.max();
+		DoubleHolder avg = source.average();
+		IntHolder last = source.pos(-1, -1);
+
+		Assert.assertEquals(doubled.get(), new int[] { 6, 2, 8, 2, 10 });
+		Assert.assertEquals(odd.get(), new int[] { 3, 1, 1, 5 });
+		Assert.assertEquals(sum.get(), (Integer) 14);
+		Assert.assertEquals(min.get(), (Integer) 1);
+		Assert.assertEquals(max.get(), (Integer) 5);
+		Assert.assertEquals(avg.get(), 2.8, 1e-9);
+		Assert.assertEquals(last.get(), (Integer) 5);
+		Assert.assertEquals(source.pos(5, -1).get(), (Integer) (-1));
+		Assert.assertEquals(source.boxed().get(), Arrays.asList(3, 1, 4, 1, 5));
+
+		source.set(new int[] { 7 });
+		Assert.assertEquals(doubled.get(), new int[] { 14 });
+		Assert.assertEquals(sum.get(), (Integer) 7);
+		Assert.assertEquals(last.get(), (Integer) 7);
+
+		source.setEmpty();
+		Assert.assertEquals(sum.get(), (Integer) 0);
+		Assert.assertTrue(Double.isNaN(avg.get()));
+	}
+
+	@Test(timeOut = 500)
+	public void testFromList() {
+		ListHolderImpl<String> source = ListHolderImpl.of("a", "bb", "ccc");
+		IntListHolder lengths = source.mapToInt(String::length);
+		Assert.assertEquals(lengths.get(), new int[] { 1, 2, 3 });
+		Assert.assertEquals(lengths.sum().get(), (Integer) 6);
+		source.set("dddd");
+		Assert.assertEquals(lengths.get(), new int[] { 4 });
+	}
+
+}
@@ -1,10 +1,15 @@
 package fr.lelouet.tools.holders.impl.collections;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.testng.Assert;
 import org.testng.annotations.Test;
@@ -199,4 +204,69 @@ public class ListHolderImplTest {
 		Assert.assertEquals(source.pos(2, "").get(), "");
 	}
 
+	@Test(dependsOnMethods = "testCreation", timeOut = 2000)
+	public void testParallel() {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			List<Integer> small = Arrays.asList(3, 1, 2);
+			List<Integer> large = IntStream.range(0, 1000).boxed().collect(Collectors.toList());
+			ListHolderImpl<Integer> source = new ListHolderImpl<>(small);
+
+			// small list is processed in the thread that sets the source
+			ListHolder<Integer> doubled = source.mapItemsParallel(i -> i * 2, pool, 100);
+			ListHolder<Integer> odd = source.filterParallel(i -> i % 2 == 1, pool, 100);
+			Assert.assertEquals(doubled.peek(), Arrays.asList(6, 2, 4));
+			Assert.assertEquals(odd.peek(), Arrays.asList(3, 1));
+
+			// large list keeps its order
+			source.set(large);
+			pool.awaitQuiescence(1, TimeUnit.SECONDS);
+			Assert.assertEquals(doubled.get(), large.stream().map(i -> i * 2).collect(Collectors.toList()));
+			Assert.assertEquals(odd.get(), large.stream().filter(i -> i % 2 == 1).collect(Collectors.toList()));
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	@Test(dependsOnMethods = "testCreation", timeOut = 2000)
+	public void testParallelCancelStale() throws InterruptedException {
+		ForkJoinPool pool = new ForkJoinPool(2);
+		try {
+			CountDownLatch started = new CountDownLatch(1);
+			CountDownLatch gate = new CountDownLatch(1);
+			ListHolderImpl<Integer> source = new ListHolderImpl<>();
+			ListHolder<Integer> mapped = source.mapItemsParallel(i -> {
+				if (i < 0) {
+					started.countDown();
+					try {
+						gate.await();
+					} catch (InterruptedException e) {
+						throw new UnsupportedOperationException("catch this", e);
+					}
+				}
+				return i * 10;
+			}, pool, 10);
+			List<List<Integer>> received = new ArrayList<>();
+			mapped.follow(l -> {
+				synchronized (received) {
+					received.add(l);
+				}
+			});
+
+			List<Integer> stale = IntStream.range(-1, 50).boxed().collect(Collectors.toList());
+			source.set(stale);
+			started.await();
+			List<Integer> last = IntStream.range(0, 20).boxed().collect(Collectors.toList());
+			source.set(last);
+			gate.countDown();
+			Assert.assertEquals(mapped.get(), last.stream().map(i -> i * 10).collect(Collectors.toList()));
+			pool.awaitQuiescence(1, TimeUnit.SECONDS);
+			synchronized (received) {
+				Assert.assertEquals(received.size(), 1);
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
 }
@@ -0,0 +1,32 @@
+package fr.lelouet.tools.holders.impl.collections;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import fr.lelouet.tools.holders.impl.ObjHolderSimple;
+import fr.lelouet.tools.holders.interfaces.collections.LongListHolder;
+
+public class LongListHolderImplTest {
+
+	@Test(timeOut = 500)
+	public void testTransform() {
+		LongListHolderImpl source = LongListHolderImpl.of(3l, 1l, 4l);
+		Assert.assertEquals(source.mapItems(l -> l * 10).get(), new long[] { 30l, 10l, 40l });
+		Assert.assertEquals(source.filter(l -> l > 2).get(), new long[] { 3l, 4l });
+		Assert.assertEquals(source.sum().get(), (Long) 8l);
+		Assert.assertEquals(source.min().get(), (Long) 1l);
+		Assert.assertEquals(source.max().get(), (Long) 4l);
+		Assert.assertEquals(source.mapToDouble(l -> l / 2.0).get(), new double[] { 1.5, 0.5, 2.0 });
+	}
+
+	@Test(timeOut = 500)
+	public void testFromObj() {
+		ObjHolderSimple<String> source = new ObjHolderSimple<>("1,2,3");
+		LongListHolder parsed = source
+				.mapLongList(s -> s.chars().filter(Character::isDigit).mapToLong(c -> c - '0').toArray());
+		Assert.assertEquals(parsed.get(), new long[] { 1l, 2l, 3l });
+		source.set("4");
+		Assert.assertEquals(parsed.get(), new long[] { 4l });
+	}
+
+}
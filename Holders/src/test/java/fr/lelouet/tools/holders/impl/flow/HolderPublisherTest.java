@@ -0,0 +1,85 @@
+package fr.lelouet.tools.holders.impl.flow;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import fr.lelouet.tools.holders.impl.ObjHolderSimple;
+import fr.lelouet.tools.holders.interfaces.ObjHolder;
+
+public class HolderPublisherTest {
+
+	private static class ListSubscriber<U> implements Flow.Subscriber<U> {
+
+		final List<U> received = new ArrayList<>();
+
+		Flow.Subscription subscription;
+
+		@Override
+		public void onSubscribe(Flow.Subscription subscription) {
+			this.subscription = subscription;
+		}
+
+		@Override
+		public void onNext(U item) {
+			received.add(item);
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			throw new UnsupportedOperationException(throwable);
+		}
+
+		@Override
+		public void onComplete() {
+		}
+	}
+
+	@Test(timeOut = 500)
+	public void testDemand() {
+		ObjHolderSimple<String> source = new ObjHolderSimple<>("a");
+		ListSubscriber<String> sub = new ListSubscriber<>();
+		source.toPublisher().subscribe(sub);
+		Assert.assertEquals(sub.received, List.of());
+
+		sub.subscription.request(1);
+		Assert.assertEquals(sub.received, List.of("a"));
+
+		// no demand : only the latest value is kept
+		source.set("b");
+		source.set("c");
+		Assert.assertEquals(sub.received, List.of("a"));
+		sub.subscription.request(5);
+		Assert.assertEquals(sub.received, List.of("a", "c"));
+
+		// remaining demand is used directly
+		source.set("d");
+		Assert.assertEquals(sub.received, List.of("a", "c", "d"));
+
+		sub.subscription.cancel();
+		source.set("e");
+		Assert.assertEquals(sub.received, List.of("a", "c", "d"));
+	}
+
+	@Test(timeOut = 500)
+	public void testFromPublisher() throws InterruptedException {
+		ObjHolderSimple<String> source = new ObjHolderSimple<>();
+		ObjHolderSimple<String> copy = ObjHolder.fromPublisher(source.toPublisher(), ObjHolderSimple::new);
+		Assert.assertFalse(copy.isDataAvailable());
+		source.set("a");
+		Assert.assertEquals(copy.get(), "a");
+		source.set("b");
+		Assert.assertEquals(copy.get(), "b");
+
+		try (SubmissionPublisher<Integer> publisher = new SubmissionPublisher<>()) {
+			ObjHolderSimple<Integer> last = ObjHolder.fromPublisher(publisher, ObjHolderSimple::new);
+			publisher.submit(1);
+			Assert.assertEquals((int) last.get(), 1);
+		}
+	}
+
+}
@@ -0,0 +1,61 @@
+package fr.lelouet.tools.holders.impl.numbers;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import fr.lelouet.tools.holders.interfaces.numbers.BoolHolder;
+import fr.lelouet.tools.holders.interfaces.numbers.DoubleHolder;
+
+public class FusedExpressionTest {
+
+	@Test(timeOut = 500)
+	public void testChain() {
+		IntHolderImpl a = new IntHolderImpl(1);
+		DoubleHolderImpl b = new DoubleHolderImpl(2.5);
+		LongHolderImpl c = new LongHolderImpl();
+		IntHolderImpl d = new IntHolderImpl(5);
+		FusedExpression expr = FusedExpression.of(a).add(b).mult(c).sub(2);
+		Assert.assertEquals(expr.inputs().size(), 3);
+		Assert.assertEquals(expr.toString(), "(((in[0]+in[1])*in[2])-2.0)");
+
+		DoubleHolder value = expr.toDouble();
+		BoolHolder gt = expr.gt(d);
+		// c not received yet
+		Assert.assertFalse(((DoubleHolderImpl) value).isDataAvailable());
+
+		c.set(2l);
+		Assert.assertEquals(value.get(), 5.0, 1e-9);
+		Assert.assertFalse(gt.get());
+
+		a.set(2);
+		Assert.assertEquals(value.get(), 7.0, 1e-9);
+		Assert.assertTrue(gt.get());
+
+		d.set(10);
+		Assert.assertFalse(gt.get());
+	}
+
+	@Test(timeOut = 500)
+	public void testSameInput() {
+		IntHolderImpl a = new IntHolderImpl(3);
+		FusedExpression square = FusedExpression.of(a).mult(a);
+		Assert.assertEquals(square.inputs().size(), 1);
+		DoubleHolder value = square.div(FusedExpression.of(2)).toDouble();
+		Assert.assertEquals(value.get(), 4.5, 1e-9);
+		a.set(4);
+		Assert.assertEquals(value.get(), 8.0, 1e-9);
+	}
+
+	@Test(timeOut = 500)
+	public void testCompiler() {
+		int[] compiled = new int[] { 0 };
+		IntHolderImpl a = new IntHolderImpl(3);
+		DoubleHolder value = FusedExpression.of(a).add(1).toDouble((expr, inputs) -> {
+			compiled[0]++;
+			return FusedExpression.LAMBDA_COMPILER.compile(expr, inputs);
+		});
+		Assert.assertEquals(compiled[0], 1);
+		Assert.assertEquals(value.get(), 4.0, 1e-9);
+	}
+
+}
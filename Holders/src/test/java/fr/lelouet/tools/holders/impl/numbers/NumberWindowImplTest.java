@@ -0,0 +1,135 @@
+package fr.lelouet.tools.holders.impl.numbers;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import fr.lelouet.tools.holders.interfaces.numbers.DoubleHolder;
+import fr.lelouet.tools.holders.interfaces.numbers.NumberWindow;
+
+public class NumberWindowImplTest {
+
+	@Test(timeOut = 500)
+	public void testCount() {
+		IntHolderImpl source = new IntHolderImpl(4);
+		NumberWindow window = source.window(3);
+		DoubleHolder mean = window.mean();
+		DoubleHolder variance = window.variance();
+		DoubleHolder min = window.min();
+		DoubleHolder max = window.max();
+		DoubleHolder median = window.median();
+		Assert.assertEquals(window.size().get(), (Integer) 1);
+		Assert.assertEquals(mean.get(), 4.0, 1e-9);
+		Assert.assertEquals(variance.get(), 0.0, 1e-9);
+		Assert.assertEquals(median.get(), 4.0, 1e-9);
+
+		source.set(8);
+		source.set(6);
+		// window is 4, 8, 6
+		Assert.assertEquals(window.size().get(), (Integer) 3);
+		Assert.assertEquals(mean.get(), 6.0, 1e-9);
+		Assert.assertEquals(variance.get(), 8.0 / 3, 1e-9);
+		Assert.assertEquals(min.get(), 4.0, 1e-9);
+		Assert.assertEquals(max.get(), 8.0, 1e-9);
+		Assert.assertEquals(median.get(), 6.0, 1e-9);
+
+		source.set(1);
+		// window is 8, 6, 1
+		Assert.assertEquals(window.size().get(), (Integer) 3);
+		Assert.assertEquals(mean.get(), 5.0, 1e-9);
+		Assert.assertEquals(min.get(), 1.0, 1e-9);
+		Assert.assertEquals(max.get(), 8.0, 1e-9);
+		Assert.assertEquals(median.get(), 6.0, 1e-9);
+
+		source.set(2);
+		source.set(3);
+		// window is 1, 2, 3
+		Assert.assertEquals(mean.get(), 2.0, 1e-9);
+		Assert.assertEquals(variance.get(), 2.0 / 3, 1e-9);
+		Assert.assertEquals(max.get(), 3.0, 1e-9);
+		Assert.assertEquals(window.quantile(0.25).get(), 1.5, 1e-9);
+		Assert.assertSame(window.quantile(0.25), window.quantile(0.25));
+	}
+
+	@Test(timeOut = 500)
+	public void testLargeWindow() {
+		DoubleHolderImpl source = new DoubleHolderImpl();
+		NumberWindow window = source.window(100);
+		DoubleHolder max = window.max();
+		DoubleHolder q90 = window.quantile(0.9);
+		for (int i = 1; i <= 1000; i++) {
+			// values are 1, -2, 3, -4 ...
+			source.set((double) (i % 2 == 0 ? -i : i));
+		}
+		// window is 901, -902 ... 999, -1000
+		Assert.assertEquals(max.get(), 999.0, 1e-9);
+		Assert.assertEquals(window.min().get(), -1000.0, 1e-9);
+		Assert.assertEquals(window.mean().get(), -0.5, 1e-9);
+		Assert.assertEquals(q90.get(), 979.2, 1e-9);
+	}
+
+	@Test(timeOut = 500)
+	public void testDuration() {
+		long[] now = new long[] { 0 };
+		IntHolderImpl source = new IntHolderImpl(10);
+		NumberWindowImpl window = new NumberWindowImpl(source, Integer.MAX_VALUE, Duration.ofNanos(100),
+				() -> now[0]);
+		now[0] = 50;
+		source.set(20);
+		Assert.assertEquals(window.size().get(), (Integer) 2);
+		Assert.assertEquals(window.mean().get(), 15.0, 1e-9);
+		now[0] = 120;
+		source.set(30);
+		// 10 is too old
+		Assert.assertEquals(window.size().get(), (Integer) 2);
+		Assert.assertEquals(window.mean().get(), 25.0, 1e-9);
+		Assert.assertEquals(window.min().get(), 20.0, 1e-9);
+		now[0] = 1000;
+		source.set(40);
+		Assert.assertEquals(window.size().get(), (Integer) 1);
+		Assert.assertEquals(window.min().get(), 40.0, 1e-9);
+		Assert.assertEquals(window.variance().get(), 0.0, 1e-9);
+	}
+
+	@Test(timeOut = 2000)
+	public void testQuantilesDuration() {
+		long[] now = new long[] { 0 };
+		IntHolderImpl source = new IntHolderImpl();
+		NumberWindowImpl window = new NumberWindowImpl(source, Integer.MAX_VALUE, Duration.ofNanos(5000),
+				() -> now[0]);
+		DoubleHolder median = window.median();
+		DoubleHolder q99 = window.quantile(0.99);
+		Random random = new Random(42);
+		for (int i = 0; i < 20000; i++) {
+			now[0] = i;
+			// few distinct values, so many are equal
+			source.set(random.nextInt(100) * 2 - i % 2);
+			if (i % 997 == 0 || i == 19999) {
+				int from = Math.max(0, i - 5000);
+				Random replay = new Random(42);
+				double[] kept = new double[i - from + 1];
+				for (int j = 0; j <= i; j++) {
+					int value = replay.nextInt(100) * 2 - j % 2;
+					if (j >= from) {
+						kept[j - from] = value;
+					}
+				}
+				Arrays.sort(kept);
+				Assert.assertEquals((int) window.size().get(), kept.length);
+				Assert.assertEquals(median.get(), interpolate(kept, 0.5), 1e-9);
+				Assert.assertEquals(q99.get(), interpolate(kept, 0.99), 1e-9);
+			}
+		}
+	}
+
+	private static double interpolate(double[] sorted, double q) {
+		double pos = q * (sorted.length - 1);
+		int lo = (int) Math.floor(pos);
+		int hi = (int) Math.ceil(pos);
+		return sorted[lo] + (pos - lo) * (sorted[hi] - sorted[lo]);
+	}
+
+}
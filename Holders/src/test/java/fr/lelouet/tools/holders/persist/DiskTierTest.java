@@ -0,0 +1,47 @@
+package fr.lelouet.tools.holders.persist;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class DiskTierTest {
+
+	@Test(timeOut = 2000)
+	public void testRestart() throws IOException {
+		Path dir = Files.createTempDirectory("disktier");
+		try (DiskTier<String> tier = new DiskTier<>(dir, HolderCodec.STRING)) {
+			tier.put("a", "1");
+			tier.put("b", "2");
+			tier.put("a", "3");
+			Assert.assertEquals(tier.get("a"), "3");
+			Assert.assertNull(tier.get("c"));
+		}
+		// a record not completely written is ignored
+		Files.write(dir.resolve(DiskTier.SEGMENT_FILE), new byte[] { 0, 0, 0, 50, 1 }, StandardOpenOption.APPEND);
+		try (DiskTier<String> tier = new DiskTier<>(dir, HolderCodec.STRING)) {
+			Assert.assertEquals(tier.size(), 2);
+			Assert.assertEquals(tier.get("a"), "3");
+			Assert.assertEquals(tier.get("b"), "2");
+			tier.put("c", "4");
+			Assert.assertEquals(tier.get("c"), "4");
+
+			// overwriting compacts the segment
+			String big = "x".repeat(1000);
+			for (int i = 0; i < 200; i++) {
+				tier.put("big", big + i);
+			}
+			Assert.assertTrue(tier.length() < 200 * 1000, "length " + tier.length());
+			Assert.assertEquals(tier.get("big"), big + 199);
+			Assert.assertEquals(tier.get("a"), "3");
+		}
+		try (DiskTier<String> tier = new DiskTier<>(dir, HolderCodec.STRING)) {
+			Assert.assertEquals(tier.size(), 4);
+			Assert.assertEquals(tier.get("c"), "4");
+		}
+	}
+
+}
@@ -0,0 +1,99 @@
+package fr.lelouet.tools.holders.persist;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import fr.lelouet.tools.holders.impl.ObjHolderSimple;
+import fr.lelouet.tools.holders.impl.numbers.IntHolderImpl;
+
+public class HolderJournalTest {
+
+	private void testRestart(boolean mapped) throws IOException {
+		Path dir = Files.createTempDirectory("holderjournal");
+		try (HolderJournal journal = new HolderJournal(dir, mapped)) {
+			IntHolderImpl count = journal.register("count", new IntHolderImpl(), HolderCodec.INT);
+			ObjHolderSimple<String> name = journal.register("name", new ObjHolderSimple<>(), HolderCodec.STRING);
+			count.set(1);
+			count.set(2);
+			name.set("a");
+			name.set(null);
+		}
+
+		try (HolderJournal journal = new HolderJournal(dir, mapped)) {
+			Assert.assertEquals(journal.unregistered().size(), 2);
+			IntHolderImpl count = journal.register("count", new IntHolderImpl(), HolderCodec.INT);
+			Assert.assertEquals((int) count.get(), 2);
+			journal.snapshot();
+			count.set(3);
+			Assert.assertEquals(journal.unregistered(), List.of("name"));
+		}
+
+		try (HolderJournal journal = new HolderJournal(dir, mapped)) {
+			IntHolderImpl count = journal.register("count", new IntHolderImpl(), HolderCodec.INT);
+			ObjHolderSimple<String> name = journal.register("name", new ObjHolderSimple<>(), HolderCodec.STRING);
+			Assert.assertEquals((int) count.get(), 3);
+			Assert.assertTrue(name.isDataAvailable());
+			Assert.assertNull(name.get());
+		}
+	}
+
+	@Test(timeOut = 5000)
+	public void testRestartChannel() throws IOException {
+		testRestart(false);
+	}
+
+	@Test(timeOut = 5000)
+	public void testRestartMapped() throws IOException {
+		testRestart(true);
+	}
+
+	@Test(timeOut = 5000)
+	public void testTornRecord() throws IOException {
+		Path dir = Files.createTempDirectory("holderjournal");
+		try (HolderJournal journal = new HolderJournal(dir)) {
+			journal.register("count", new IntHolderImpl(), HolderCodec.INT).set(5);
+		}
+		// a record that was interrupted while written
+		Files.write(dir.resolve(HolderJournal.JOURNAL_FILE), new byte[] { 0, 0, 0, 50, 0, 5, 'c' },
+				StandardOpenOption.APPEND);
+		try (HolderJournal journal = new HolderJournal(dir)) {
+			IntHolderImpl count = journal.register("count", new IntHolderImpl(), HolderCodec.INT);
+			Assert.assertEquals((int) count.get(), 5);
+			count.set(6);
+		}
+		try (HolderJournal journal = new HolderJournal(dir)) {
+			Assert.assertEquals((int) journal.register("count", new IntHolderImpl(), HolderCodec.INT).get(), 6);
+		}
+	}
+
+	@Test(timeOut = 5000)
+	public void testTornRecordMapped() throws IOException {
+		Path dir = Files.createTempDirectory("holderjournal");
+		Path path = dir.resolve(HolderJournal.JOURNAL_FILE);
+		HolderJournal.MappedWriter writer = new HolderJournal.MappedWriter(path, 0);
+		writer.append(HolderJournal.encode("count", 1, HolderCodec.INT));
+		writer.append(HolderJournal.encode("count", 2, HolderCodec.INT));
+		writer.reset();
+		// interrupted after the content of the record, over the previous records
+		byte[] record = HolderJournal.encode("count", 3, HolderCodec.INT);
+		writer.write(record);
+		writer.force();
+		Map<String, byte[]> read = new HashMap<>();
+		Assert.assertEquals(HolderJournal.readRecords(path, read), 0);
+		Assert.assertTrue(read.isEmpty());
+		writer.publish(record.length);
+		writer.close();
+		try (HolderJournal journal = new HolderJournal(dir, true)) {
+			Assert.assertEquals((int) journal.register("count", new IntHolderImpl(), HolderCodec.INT).get(), 3);
+		}
+	}
+
+}
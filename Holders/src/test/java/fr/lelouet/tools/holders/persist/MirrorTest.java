@@ -0,0 +1,194 @@
+package fr.lelouet.tools.holders.persist;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import fr.lelouet.tools.holders.impl.numbers.BoolHolderImpl;
+import fr.lelouet.tools.holders.impl.numbers.DoubleHolderImpl;
+import fr.lelouet.tools.holders.impl.numbers.IntHolderImpl;
+import fr.lelouet.tools.holders.interfaces.numbers.BoolHolder;
+import fr.lelouet.tools.holders.interfaces.numbers.DoubleHolder;
+import fr.lelouet.tools.holders.interfaces.numbers.IntHolder;
+
+public class MirrorTest {
+
+	@Test(timeOut = 1000)
+	public void testMirror() throws IOException {
+		Path file = Files.createTempFile("mirror", ".bin");
+		IntHolderImpl count = new IntHolderImpl(1);
+		DoubleHolderImpl ratio = new DoubleHolderImpl();
+		BoolHolderImpl running = new BoolHolderImpl(true);
+		try (MirrorWriter writer = new MirrorWriter(file, 8); MirrorReader reader = new MirrorReader(file)) {
+			writer.publish("count", count);
+			writer.publish("ratio", ratio);
+
+			IntHolder mirroredCount = reader.getInt("count");
+			DoubleHolder mirroredRatio = reader.getDouble("ratio");
+			BoolHolder mirroredRunning = reader.getBool("running");
+			Assert.assertSame(reader.getInt("count"), mirroredCount);
+			Assert.assertEquals((int) mirroredCount.get(), 1);
+			// no value set yet, or not published yet
+			Assert.assertFalse(mirroredRatio.isDataAvailable());
+			Assert.assertFalse(mirroredRunning.isDataAvailable());
+
+			count.set(2);
+			ratio.set(0.5);
+			writer.publish("running", running);
+			Assert.assertEquals((int) mirroredCount.get(), 1);
+			reader.poll();
+			Assert.assertEquals((int) mirroredCount.get(), 2);
+			Assert.assertEquals(mirroredRatio.get(), 0.5);
+			Assert.assertTrue(mirroredRunning.get());
+
+			try {
+				reader.getLong("count");
+				Assert.fail("count is mirrored as an int");
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+			try {
+				writer.publish("ratio", count);
+				Assert.fail("ratio is published as a double");
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+		}
+
+		// a new writer keeps the slots, and the readers follow it
+		try (MirrorReader reader = new MirrorReader(file)) {
+			IntHolder mirroredCount = reader.getInt("count");
+			Assert.assertEquals((int) mirroredCount.get(), 2);
+			try (MirrorWriter writer = new MirrorWriter(file, 8)) {
+				writer.publish("count", count);
+				count.set(3);
+				reader.poll();
+				Assert.assertEquals((int) mirroredCount.get(), 3);
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test(timeOut = 1000)
+	public void testUnsetSlot() throws IOException {
+		Path file = Files.createTempFile("mirror", ".bin");
+		IntHolderImpl unset = new IntHolderImpl();
+		IntHolderImpl set = new IntHolderImpl(1);
+		try {
+			try (MirrorWriter writer = new MirrorWriter(file, 4); MirrorReader reader = new MirrorReader(file)) {
+				writer.publish("unset", unset);
+				writer.publish("set", set);
+				// the slot after an unset one is visible
+				IntHolder mirroredSet = reader.getInt("set");
+				Assert.assertEquals((int) mirroredSet.get(), 1);
+				Assert.assertFalse(reader.getInt("unset").isDataAvailable());
+			}
+			// a restarted writer does not reuse the slots allocated
+			try (MirrorWriter writer = new MirrorWriter(file, 4); MirrorReader reader = new MirrorReader(file)) {
+				IntHolder mirroredSet = reader.getInt("set");
+				writer.publish("other", new DoubleHolderImpl(0.5));
+				writer.publish("set", set);
+				set.set(2);
+				reader.poll();
+				Assert.assertEquals((int) mirroredSet.get(), 2);
+				Assert.assertEquals(reader.getDouble("other").get(), 0.5);
+				unset.set(3);
+				writer.publish("unset", unset);
+				Assert.assertEquals((int) reader.getInt("unset").get(), 3);
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test(timeOut = 1000)
+	public void testInterruptedWrite() throws IOException {
+		Path file = Files.createTempFile("mirror", ".bin");
+		IntHolderImpl count = new IntHolderImpl(1);
+		try {
+			try (MirrorWriter writer = new MirrorWriter(file, 4)) {
+				writer.publish("count", count);
+			}
+			// the writer stopped while writing the value
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+				MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+				MirrorLayout.LONGS.setRelease(buffer, MirrorLayout.slotOffset(0) + MirrorLayout.VERSION_OFFSET, 3l);
+				buffer.force();
+			}
+			try (MirrorWriter writer = new MirrorWriter(file, 4); MirrorReader reader = new MirrorReader(file)) {
+				IntHolder mirroredCount = reader.getInt("count");
+				Assert.assertEquals((int) mirroredCount.get(), 1);
+				writer.publish("count", count);
+				count.set(2);
+				reader.poll();
+				Assert.assertEquals((int) mirroredCount.get(), 2);
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test(timeOut = 2000)
+	public void testPollFailure() throws IOException, InterruptedException {
+		Path file = Files.createTempFile("mirror", ".bin");
+		IntHolderImpl count = new IntHolderImpl(1);
+		DoubleHolderImpl ratio = new DoubleHolderImpl(0.5);
+		ScheduledExecutorService exec = Executors.newSingleThreadScheduledExecutor();
+		try (MirrorWriter writer = new MirrorWriter(file, 4); MirrorReader reader = new MirrorReader(file)) {
+			writer.publish("ratio", ratio);
+			DoubleHolder mirroredRatio = reader.getDouble("ratio");
+			writer.publish("other", new IntHolderImpl(0));
+			try {
+				reader.getLong("other");
+				Assert.fail("other is published as an int");
+			} catch (IllegalStateException e) {
+				// expected
+			}
+			Assert.assertEquals((int) reader.getInt("other").get(), 0);
+			// mirrored before it's published with another type
+			reader.getLong("count");
+			writer.publish("count", count);
+			try {
+				reader.poll();
+				Assert.fail("count is published as an int");
+			} catch (IllegalStateException e) {
+				// expected
+			}
+			ScheduledFuture<?> polls = reader.pollEvery(exec, Duration.ofMillis(5));
+			ratio.set(0.75);
+			while (mirroredRatio.get() != 0.75) {
+				Thread.sleep(5);
+			}
+			Assert.assertFalse(polls.isDone());
+		} finally {
+			exec.shutdownNow();
+			Files.delete(file);
+		}
+	}
+
+	@Test(timeOut = 1000)
+	public void testNotMirror() throws IOException {
+		Path file = Files.createTempFile("mirror", ".bin");
+		try {
+			Files.write(file, new byte[200]);
+			new MirrorReader(file).close();
+			Assert.fail("file is not a mirror");
+		} catch (IOException e) {
+			// expected
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+}
@@ -0,0 +1,85 @@
+package fr.lelouet.tools.webfetchers;
+
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.reactivestreams.Publisher;
+
+import fr.lelouet.tools.holders.impl.ObjHolderSimple;
+import fr.lelouet.tools.holders.interfaces.ObjHolder;
+import fr.lelouet.tools.holders.interfaces.RWObjHolder;
+import reactor.adapter.JdkFlowAdapter;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * bridges between holders and reactor publishers, based on the
+ * {@link java.util.concurrent.Flow} publishers of the holders.
+ * <p>
+ * The values are pushed to the holders when the publishers emit them, so no
+ * thread is blocked waiting for a value.
+ * </p>
+ */
+public class ReactiveHolders {
+
+	private ReactiveHolders() {
+	}
+
+	/**
+	 * @param <U>
+	 *          type of the values hold
+	 * @param holder
+	 *          the holder to publish
+	 * @return a new flux on the values of the holder. This flux never completes
+	 *         and only keeps the last value when the subscriber lags.
+	 */
+	public static <U> Flux<U> toFlux(ObjHolder<U> holder) {
+		return JdkFlowAdapter.flowPublisherToFlux(holder.toPublisher());
+	}
+
+	/**
+	 * create a holder on the values produced by a reactive streams publisher.
+	 *
+	 * @param <U>
+	 *          the type of the values published
+	 * @param <H>
+	 *          holder type returned
+	 * @param publisher
+	 *          the publisher to subscribe to
+	 * @param creator
+	 *          creation of the holder, typically the constructor
+	 * @return a new variable that holds the last value published.
+	 */
+	public static <U, H extends RWObjHolder<U> & Consumer<Object>> H fromPublisher(Publisher<U> publisher,
+			Supplier<H> creator) {
+		return ObjHolder.fromPublisher(JdkFlowAdapter.publisherToFlowPublisher(publisher), creator);
+	}
+
+	public static <U> ObjHolderSimple<U> fromPublisher(Publisher<U> publisher) {
+		return fromPublisher(publisher, ObjHolderSimple::new);
+	}
+
+	/**
+	 * @param <U>
+	 *          the type of the value
+	 * @param mono
+	 *          the mono to subscribe to
+	 * @return a new holder that receives the value of the mono once it's
+	 *         produced. If the mono is empty, the holder never receives data.
+	 */
+	public static <U> ObjHolderSimple<U> fromMono(Mono<U> mono) {
+		return fromPublisher(mono);
+	}
+
+	/**
+	 * @param <U>
+	 *          the type of the values
+	 * @param flux
+	 *          the flux to subscribe to
+	 * @return a new holder on the last value emitted by the flux.
+	 */
+	public static <U> ObjHolderSimple<U> fromFlux(Flux<U> flux) {
+		return fromPublisher(flux);
+	}
+
+}